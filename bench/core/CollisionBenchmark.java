@@ -0,0 +1,62 @@
+package core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import domain.Balls;
+import view.HeadlessGameView;
+
+/**
+ * Benchmark of checking if player unit was hit by any ball.
+ * The balls are moved once per invocation, so the spatial grid is rebuilt as in a real tick.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CollisionBenchmark {
+
+    private final int BOUNDARY_X = 640;
+    private final int BOUNDARY_Y = 480;
+
+    @Param( { "5", "50", "1000", "10000", "100000", "1000000" } )
+    private int numberOfBalls;
+
+    @Param( { "BRUTE_FORCE", "BRANCHLESS_SCAN", "SPATIAL_GRID", "CONTINUOUS" } )
+    private BouncingBallCore.CollisionDetectionMode collisionDetectionMode;
+
+    private BouncingBallCore bouncingBallCore;
+    private Balls balls;
+
+    @Setup
+    public void setUp() {
+        bouncingBallCore = new BouncingBallCore( new HeadlessGameView() );
+        bouncingBallCore.setCollisionDetectionMode( collisionDetectionMode );
+        balls = bouncingBallCore.getBalls();
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            balls.launchABall();
+        }
+        for( int i = 0; i < 200; i++ ) {
+            balls.ballsMove( BOUNDARY_X, BOUNDARY_Y );
+        }
+    }
+
+    @Benchmark
+    public boolean isBallCollided() {
+        balls.ballsMove( BOUNDARY_X, BOUNDARY_Y );
+        return bouncingBallCore.isBallCollided();
+    }
+}
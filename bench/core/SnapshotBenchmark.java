@@ -0,0 +1,68 @@
+package core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import domain.Balls;
+import domain.HeapBalls;
+import domain.OffHeapBalls;
+import view.HeadlessGameView;
+
+/**
+ * Benchmark of capturing & restoring a game snapshot. (compare with the tick time:
+ * a checkpoint every captureInterval ticks costs captureSnapshot() / captureInterval per tick)
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class SnapshotBenchmark {
+
+    @Param( { "5", "1000", "100000", "1000000" } )
+    private int numberOfBalls;
+
+    @Param( { "HEAP", "OFF_HEAP" } )
+    private String storage;
+
+    private BouncingBallCore bouncingBallCore;
+    private GameSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        Balls balls = storage.equals( "OFF_HEAP" ) ? new OffHeapBalls() : new HeapBalls();
+
+        balls.setNumberOfInitialBalls( numberOfBalls );
+        bouncingBallCore = new BouncingBallCore( new HeadlessGameView() );
+        bouncingBallCore.setBalls( balls );
+        bouncingBallCore.setPlayerUnitInvincible( true );
+        bouncingBallCore.executeTicks( 200 );
+
+        snapshot = new GameSnapshot();
+        bouncingBallCore.captureSnapshot( snapshot );
+    }
+
+    @Benchmark
+    public GameSnapshot captureSnapshot() {
+        bouncingBallCore.captureSnapshot( snapshot );
+        return snapshot;
+    }
+
+    @Benchmark
+    public long restoreSnapshot() {
+        bouncingBallCore.restoreSnapshot( snapshot );
+        return bouncingBallCore.getGameTicks();
+    }
+}
@@ -0,0 +1,83 @@
+package domain;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of moving & launching balls.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class BallsBenchmark {
+
+    private final int BOUNDARY_X = 640;
+    private final int BOUNDARY_Y = 480;
+
+    @Param( { "5", "50", "1000", "10000", "100000", "1000000" } )
+    private int numberOfBalls;
+
+    @Param( { "HEAP", "OFF_HEAP" } )        // OFF_HEAP: OffHeapBalls
+    private String storage;
+
+    private Balls balls;
+
+    @Setup
+    public void setUp() {
+        balls = newBalls();
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            balls.launchABall();
+        }
+        // spread the balls over the game window
+        for( int i = 0; i < 200; i++ ) {
+            balls.ballsMove( BOUNDARY_X, BOUNDARY_Y );
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if( balls instanceof OffHeapBalls ) {
+            ((OffHeapBalls)balls).close();
+        }
+    }
+
+    /**
+     * one tick of balls moving, including the wall rebound checking.
+     */
+    @Benchmark
+    public Balls ballsMove() {
+        balls.ballsMove( BOUNDARY_X, BOUNDARY_Y );
+        return balls;
+    }
+
+    /**
+     * launch all the balls into an empty Balls, including every doubling of the balls' arrays.
+     */
+    @Benchmark
+    public Balls launchBalls() {
+        Balls launchedBalls = newBalls();
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            launchedBalls.launchABall();
+        }
+        return launchedBalls;
+    }
+
+    private Balls newBalls() {
+        return storage.equals( "OFF_HEAP" ) ? new OffHeapBalls() : new HeapBalls();
+    }
+}
@@ -0,0 +1,95 @@
+package domain;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of ball-to-ball collisions: a tick of moving with & without the collisions
+ * (sweep and prune + circle-circle + bounce), and the naive pairwise overlap check, by number of balls.
+ * From about 1500 balls the 640 x 480 window is packed, so the number of touching pairs grows too.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class BallsCollisionBenchmark {
+
+    private final int BOUNDARY_X = 640;
+    private final int BOUNDARY_Y = 480;
+
+    @Param( { "50", "200", "1000", "5000", "20000" } )
+    private int numberOfBalls;
+
+    private Balls balls;
+    private Balls collidingBalls;
+
+    @Setup
+    public void setUp() {
+        balls = new HeapBalls( 1 );
+        collidingBalls = new HeapBalls( 1 );
+        collidingBalls.setBallsCollisionEnabled( true );
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            balls.launchABall();
+            collidingBalls.launchABall();
+        }
+        // spread the balls over the game window
+        for( int i = 0; i < 200; i++ ) {
+            balls.ballsMove( BOUNDARY_X, BOUNDARY_Y );
+            collidingBalls.ballsMove( BOUNDARY_X, BOUNDARY_Y );
+        }
+    }
+
+    /**
+     * one tick of balls moving, without ball-to-ball collisions. (the baseline)
+     */
+    @Benchmark
+    public Balls ballsMove() {
+        balls.ballsMove( BOUNDARY_X, BOUNDARY_Y );
+        return balls;
+    }
+
+    /**
+     * one tick of balls moving, with ball-to-ball collisions.
+     */
+    @Benchmark
+    public Balls ballsMoveWithCollisions() {
+        collidingBalls.ballsMove( BOUNDARY_X, BOUNDARY_Y );
+        return collidingBalls;
+    }
+
+    /**
+     * count the touching pairs by checking every pair. (what the sweep and prune avoids)
+     */
+    @Benchmark
+    public int naivePairwiseCheck() {
+        double minDistanceSquare = (double)collidingBalls.getDiameter() * (double)collidingBalls.getDiameter();
+        double distanceX;
+        double distanceY;
+        int touchingPairs = 0;
+
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            for( int j = i + 1; j < numberOfBalls; j++ ) {
+                distanceX = collidingBalls.getBallsCenterX( j ) - collidingBalls.getBallsCenterX( i );
+                distanceY = collidingBalls.getballsCenterY( j ) - collidingBalls.getballsCenterY( i );
+                if( distanceX * distanceX + distanceY * distanceY < minDistanceSquare ) {
+                    touchingPairs++;
+                }
+            }
+        }
+
+        return touchingPairs;
+    }
+}
@@ -0,0 +1,187 @@
+package domain;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Experiment: a branchless moving kernel, against the scalar one of HeapBalls.
+ * - scalar:     check the walls with branches, ball by ball (the arithmetic of HeapBalls.ballsMove())
+ * - branchless: select the rebound results without branches, one axis per loop, so the JIT
+ *               could compile the loop to conditional moves or SIMD blends
+ * Both kernels move their own copy of the same balls (struct of arrays, like HeapBalls).
+ * The setup checks that both give exactly the same results, bit for bit, before measuring.
+ * Measured through HeapBalls on JDK 17 (C2), the selects are not vectorized and the rebound branches are
+ * well predicted, so the scalar kernel is faster (about 3.4 vs 5.4 ms a tick at 1M balls);
+ * that's why HeapBalls has the scalar kernel only.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class MovingKernelBenchmark {
+
+    private final int BOUNDARY_X = 640;
+    private final int BOUNDARY_Y = 480;
+    private final double RADIUS = 8.0;
+    private final int CHECKED_MOVES = 1000;     // moves compared by the setup
+
+    @Param( { "1000", "100000", "1000000" } )
+    private int numberOfBalls;
+
+    @Param( { "3", "30" } )         // largest speed in one direction (30: a rebound every few ticks)
+    private double maxSpeed;
+
+    private double centerX[];
+    private double centerY[];
+    private double previousCenterX[];
+    private double previousCenterY[];
+    private double speedX[];
+    private double speedY[];
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom( 1 );
+
+        centerX = new double[ numberOfBalls ];
+        centerY = new double[ numberOfBalls ];
+        previousCenterX = new double[ numberOfBalls ];
+        previousCenterY = new double[ numberOfBalls ];
+        speedX = new double[ numberOfBalls ];
+        speedY = new double[ numberOfBalls ];
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            centerX[ i ] = RADIUS + random.nextDouble() * (BOUNDARY_X - 2 * RADIUS);
+            centerY[ i ] = RADIUS + random.nextDouble() * (BOUNDARY_Y - 2 * RADIUS);
+            speedX[ i ] = (random.nextDouble() * 2.0 - 1.0) * maxSpeed;
+            speedY[ i ] = (random.nextDouble() * 2.0 - 1.0) * maxSpeed;
+        }
+
+        checkSameResults();
+    }
+
+    /**
+     * one tick of the scalar kernel.
+     */
+    @Benchmark
+    public double[] scalar() {
+        moveScalar( centerX, centerY, previousCenterX, previousCenterY, speedX, speedY );
+        return centerX;
+    }
+
+    /**
+     * one tick of the branchless kernel.
+     */
+    @Benchmark
+    public double[] branchless() {
+        moveBranchless( centerX, previousCenterX, speedX, BOUNDARY_X );
+        moveBranchless( centerY, previousCenterY, speedY, BOUNDARY_Y );
+        return centerX;
+    }
+
+    /**
+     * move copies of the balls with both kernels, and compare them after every move.
+     */
+    private void checkSameResults() {
+        double scalarState[][] = copyState();
+        double branchlessState[][] = copyState();
+
+        for( int move = 1; move <= CHECKED_MOVES; move++ ) {
+            moveScalar(
+                scalarState[ 0 ], scalarState[ 1 ], scalarState[ 2 ], scalarState[ 3 ],
+                scalarState[ 4 ], scalarState[ 5 ]
+            );
+            moveBranchless( branchlessState[ 0 ], branchlessState[ 2 ], branchlessState[ 4 ], BOUNDARY_X );
+            moveBranchless( branchlessState[ 1 ], branchlessState[ 3 ], branchlessState[ 5 ], BOUNDARY_Y );
+            for( int column = 0; column < scalarState.length; column++ ) {
+                if( !Arrays.equals( scalarState[ column ], branchlessState[ column ] ) ) {
+                    throw new IllegalStateException( "the kernels differ in column " + column + " at move " + move );
+                }
+            }
+        }
+    }
+
+    private double[][] copyState() {
+        return new double[][] {
+            centerX.clone(), centerY.clone(), previousCenterX.clone(), previousCenterY.clone(),
+            speedX.clone(), speedY.clone()
+        };
+    }
+
+    /**
+     * the same as HeapBalls.ballsMove(), without rebounding more than once in a move.
+     */
+    private void moveScalar(
+        double[] centerX, double[] centerY, double[] previousCenterX, double[] previousCenterY,
+        double[] speedX, double[] speedY
+    ) {
+        double position1;
+        double position2;
+
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            previousCenterX[ i ] = centerX[ i ];
+            previousCenterY[ i ] = centerY[ i ];
+            centerX[ i ] = centerX[ i ] + speedX[ i ];
+            centerY[ i ] = centerY[ i ] + speedY[ i ];
+
+            position1 = centerX[ i ] - RADIUS;
+            position2 = centerX[ i ] + RADIUS;
+            if( position1 < 0 ) {
+                centerX[ i ] = RADIUS + (0 - position1);
+                speedX[ i ] = speedX[ i ] * (-1.0);
+            } else if( position2 > BOUNDARY_X ) {
+                centerX[ i ] = BOUNDARY_X - RADIUS - (position2 - BOUNDARY_X);
+                speedX[ i ] = speedX[ i ] * (-1.0);
+            }
+
+            position1 = centerY[ i ] - RADIUS;
+            position2 = centerY[ i ] + RADIUS;
+            if( position1 < 0 ) {
+                centerY[ i ] = RADIUS + (0 - position1);
+                speedY[ i ] = speedY[ i ] * (-1.0);
+            } else if( position2 > BOUNDARY_Y ) {
+                centerY[ i ] = BOUNDARY_Y - RADIUS - (position2 - BOUNDARY_Y);
+                speedY[ i ] = speedY[ i ] * (-1.0);
+            }
+        }
+    }
+
+    /**
+     * the same arithmetic as moveScalar(), one axis, the rebound selected without branches.
+     */
+    private void moveBranchless( double[] center, double[] previousCenter, double[] speed, int boundary ) {
+        double limit = (double)boundary;
+        double position;
+        double position1;
+        double position2;
+        boolean hitLowerWall;
+        boolean hitUpperWall;
+
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            previousCenter[ i ] = center[ i ];
+            position = center[ i ] + speed[ i ];
+            position1 = position - RADIUS;
+            position2 = position + RADIUS;
+            hitLowerWall = position1 < 0;
+            hitUpperWall = !hitLowerWall & (position2 > limit);
+
+            center[ i ] = hitLowerWall ? RADIUS + (0 - position1)
+                        : hitUpperWall ? limit - RADIUS - (position2 - limit)
+                        : position;
+            speed[ i ] = (hitLowerWall | hitUpperWall) ? speed[ i ] * (-1.0) : speed[ i ];
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package domain;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of moving the player unit.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class PlayerUnitBenchmark {
+
+    private final int BOUNDARY_X = 640;
+    private final int BOUNDARY_Y = 480;
+
+    private PlayerUnit playerUnit;
+    private int tick;
+
+    @Setup
+    public void setUp() {
+        playerUnit = new PlayerUnit();
+        playerUnit.initialLaunch();
+        tick = 0;
+    }
+
+    /**
+     * move the player unit, walking it around, so it hits the walls sometimes.
+     */
+    @Benchmark
+    public PlayerUnit unitMove() {
+        tick++;
+        playerUnit.setDirectionX( ((tick >> 7) & 1) == 0 ? 1 : -1 );
+        playerUnit.setDirectionY( ((tick >> 6) & 1) == 0 ? 1 : -1 );
+        playerUnit.unitMove( BOUNDARY_X, BOUNDARY_Y );
+        return playerUnit;
+    }
+}
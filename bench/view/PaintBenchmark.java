@@ -0,0 +1,78 @@
+package view;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import domain.Balls;
+import domain.HeapBalls;
+import domain.PlayerUnit;
+
+/**
+ * Benchmark of drawing one frame of the main panel into an offscreen image.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class PaintBenchmark {
+
+    private final int BOUNDARY_X = 640;
+    private final int BOUNDARY_Y = 480;
+
+    @Param( { "5", "50", "1000", "10000", "100000", "1000000" } )
+    private int numberOfBalls;
+
+    @Param( { "SPRITES", "RASTER" } )
+    private String renderingPath;           // a sprite per ball, or the balls drawn into an image's pixels
+
+    private MainPanel mainPanel;
+    private BufferedImage offscreenImage;
+    private Graphics offscreenGraphics;
+
+    @Setup
+    public void setUp() {
+        Balls balls = new HeapBalls();
+        PlayerUnit playerUnit = new PlayerUnit();
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            balls.launchABall();
+        }
+        for( int i = 0; i < 200; i++ ) {
+            balls.ballsMove( BOUNDARY_X, BOUNDARY_Y );
+        }
+
+        mainPanel = new MainPanel();
+        mainPanel.setSize( BOUNDARY_X, BOUNDARY_Y );
+        mainPanel.setRasterRenderingThreshold( renderingPath.equals( "RASTER" ) ? 0 : Integer.MAX_VALUE );
+        mainPanel.updateBallsAndPlayerUnit( balls, playerUnit );
+
+        offscreenImage = new BufferedImage( BOUNDARY_X, BOUNDARY_Y, BufferedImage.TYPE_INT_RGB );
+        offscreenGraphics = offscreenImage.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        offscreenGraphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paintComponent() {
+        mainPanel.paintComponent( offscreenGraphics );
+        return offscreenImage;
+    }
+}
@@ -0,0 +1,119 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Results of the sessions of a batch simulation (see BatchRunner):
+ * the survival ticks & the number of balls at the end of each session's game,
+ * and the aggregate statistics.
+ */
+public class BatchResult {
+
+    private final long survivalTicks[];         // ticks each session's game lasted
+    private final int ballsAtDeath[];           // number of balls when each session's game ended
+    private final boolean gameOver[];           // false: the game reached the max ticks without being over
+    private final long elapsedTime;             // nano-seconds the whole batch took
+
+    BatchResult( long theSurvivalTicks[], int theBallsAtDeath[], boolean theGameOver[], long theElapsedTime ) {
+        survivalTicks = theSurvivalTicks;
+        ballsAtDeath = theBallsAtDeath;
+        gameOver = theGameOver;
+        elapsedTime = theElapsedTime;
+    }
+
+    public int getNumberOfSessions() {
+        return survivalTicks.length;
+    }
+
+    public long getSurvivalTicks( int session ) {
+        return survivalTicks[ session ];
+    }
+
+    public int getBallsAtDeath( int session ) {
+        return ballsAtDeath[ session ];
+    }
+
+    public boolean isGameOver( int session ) {
+        return gameOver[ session ];
+    }
+
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public int getNumberOfGamesOver() {
+        int numberOfGamesOver = 0;
+
+        for( int s = 0; s < gameOver.length; s++ ) {
+            if( gameOver[ s ] ) {
+                numberOfGamesOver++;
+            }
+        }
+
+        return numberOfGamesOver;
+    }
+
+    /**
+     * get the ticks of all the sessions.
+     */
+    public long getTotalTicks() {
+        long totalTicks = 0;
+
+        for( int s = 0; s < survivalTicks.length; s++ ) {
+            totalTicks += survivalTicks[ s ];
+        }
+
+        return totalTicks;
+    }
+
+    /**
+     * get the ticks simulated per second (wall-clock), over all the sessions.
+     */
+    public double getTicksPerSecond() {
+        return (elapsedTime > 0) ? getTotalTicks() * 1e9 / elapsedTime : 0.0;
+    }
+
+    public double getMeanSurvivalTicks() {
+        return (survivalTicks.length > 0) ? (double)getTotalTicks() / survivalTicks.length : 0.0;
+    }
+
+    /**
+     * get the survival ticks at the specified fraction (0.0 ~ 1.0) of the sessions, in ascending order.
+     */
+    public long getSurvivalTicksPercentile( double fraction ) {
+        long sortedSurvivalTicks[];
+        int rank;
+
+        if( survivalTicks.length == 0 ) {
+            return 0;
+        }
+
+        sortedSurvivalTicks = Arrays.copyOf( survivalTicks, survivalTicks.length );
+        Arrays.sort( sortedSurvivalTicks );
+        rank = (int)Math.ceil( fraction * sortedSurvivalTicks.length ) - 1;
+        return sortedSurvivalTicks[ Math.max( 0, Math.min( rank, sortedSurvivalTicks.length - 1 ) ) ];
+    }
+
+    public double getMeanBallsAtDeath() {
+        long totalBalls = 0;
+
+        if( ballsAtDeath.length == 0 ) {
+            return 0.0;
+        }
+        for( int s = 0; s < ballsAtDeath.length; s++ ) {
+            totalBalls += ballsAtDeath[ s ];
+        }
+
+        return (double)totalBalls / ballsAtDeath.length;
+    }
+
+    public int getMaxBallsAtDeath() {
+        int maxBalls = 0;
+
+        for( int s = 0; s < ballsAtDeath.length; s++ ) {
+            maxBalls = Math.max( maxBalls, ballsAtDeath[ s ] );
+        }
+
+        return maxBalls;
+    }
+}
@@ -0,0 +1,99 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import view.HeadlessGameView;
+
+/**
+ * Runs many independent headless game sessions concurrently, for bots & survival time studies.
+ * Each session plays one game with its own core, balls & player unit, without sleeping,
+ * until the game is over (or the max ticks). The sessions share nothing, so the workers
+ * (one per thread of a fixed pool) only meet at the counter handing out the next session.
+ */
+public class BatchRunner {
+
+    /**
+     * Creates the input policy of each session.
+     */
+    public interface InputPolicyFactory {
+        InputPolicy createInputPolicy( int session );
+    }
+
+    private final int numberOfThreads;
+    private final int ticksPerSecond;
+    private final long maxTicksPerGame;         // a game not over after this many ticks is ended
+
+    public BatchRunner( int theNumberOfThreads, int theTicksPerSecond, long theMaxTicksPerGame ) {
+        numberOfThreads = Math.max( theNumberOfThreads, 1 );
+        ticksPerSecond = theTicksPerSecond;
+        maxTicksPerGame = theMaxTicksPerGame;
+    }
+
+    /**
+     * run the specified number of sessions, and wait until all of them end.
+     * Each session's seed is derived from the batch seed by its index, so a batch
+     * gives the same results with any number of threads (for deterministic policies).
+     */
+    public BatchResult run(
+        int numberOfSessions, long batchSeed, final InputPolicyFactory inputPolicyFactory
+    ) throws InterruptedException {
+        final long sessionsSeed[] = new long[ numberOfSessions ];
+        final long survivalTicks[] = new long[ numberOfSessions ];
+        final int ballsAtDeath[] = new int[ numberOfSessions ];
+        final boolean gameOver[] = new boolean[ numberOfSessions ];
+        final AtomicInteger nextSession = new AtomicInteger( 0 );
+        ExecutorService executor = Executors.newFixedThreadPool( numberOfThreads );
+        List<Future<?>> workers = new ArrayList<Future<?>>();
+        SplittableRandom seedGenerator = new SplittableRandom( batchSeed );
+        long beginTime;
+
+        for( int s = 0; s < numberOfSessions; s++ ) {
+            sessionsSeed[ s ] = seedGenerator.nextLong();
+        }
+
+        beginTime = System.nanoTime();
+        try {
+            for( int t = 0; t < numberOfThreads; t++ ) {
+                workers.add( executor.submit( new Runnable() {
+                    @Override
+                    public void run() {
+                        for( int s = nextSession.getAndIncrement(); s < sessionsSeed.length;
+                                s = nextSession.getAndIncrement() ) {
+                            HeadlessGameView headlessGameView = new HeadlessGameView();
+                            BouncingBallCore bouncingBallCore = new BouncingBallCore( headlessGameView, ticksPerSecond );
+
+                            bouncingBallCore.setSessionSeed( sessionsSeed[ s ] );
+                            bouncingBallCore.setInputPolicy( inputPolicyFactory.createInputPolicy( s ) );
+                            bouncingBallCore.setTickTimingEnabled( false );
+
+                            survivalTicks[ s ] = bouncingBallCore.executeGame( maxTicksPerGame );
+                            ballsAtDeath[ s ] = headlessGameView.getBalls().getNumberOfBalls();
+                            gameOver[ s ] = (bouncingBallCore.getGamePhase() == BouncingBallCore.GamePhase.GAME_OVER);
+                        }
+                    }
+                } ) );
+            }
+
+            for( Future<?> worker : workers ) {
+                worker.get();
+            }
+        } catch( ExecutionException e ) {
+            throw new IllegalStateException( "a session failed", e.getCause() );
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new BatchResult( survivalTicks, ballsAtDeath, gameOver, System.nanoTime() - beginTime );
+    }
+
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+}
@@ -1,21 +1,39 @@
 package core;
 
-import view.MainFrame;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import core.TickStatistics.Stage;
+import view.GameView;
 import domain.Balls;
+import domain.HeapBalls;
 import domain.PlayerUnit;
+import domain.SplitMix64;
 
 /**
  * Core of this game application
  */
 public class BouncingBallCore {
     
-    private final int FRAME_PER_SECOND = 60;    // 60 frames per second
-    private final long ONE_FRAME_TIME = (long)(1000 / FRAME_PER_SECOND);
+    private final static int DEFAULT_TICKS_PER_SECOND = 60;     // 60 physics steps per second
+    private final int REFERENCE_TICKS_PER_SECOND = 60;  // balls' & player unit's speeds are defined per 1/60 second
+    private final long NANOSECONDS_PER_SECOND = 1000000000L;
+    private final long MILLISECONDS_PER_SECOND = 1000L;
+    private final int MAX_CATCH_UP_STEPS = 5;           // at most 5 physics steps per rendered frame
     private final long DEFAULT_BALL_LAUNCHING_TIMER = 5000;    // lauch a ball each 5000 mili-seconds (5 sec)
-    private final int BOUNDARY_X = 640;         // |<--- 640 --->|
-    private final int BOUNDARY_Y = 480;         // +-------------+ -+-
+    private final int DEFAULT_BOUNDARY_X = 640; // |<--- 640 --->|
+    private final int DEFAULT_BOUNDARY_Y = 480; // +-------------+ -+-
                                                 // | game window |  | 480
                                                 // +-------------+ -+-
+    private final double BALLS_LAUNCH_POSITION_Y = 30.0;            // balls are launched at the top center
+    private final double PLAYER_UNIT_DISTANCE_FROM_BOTTOM = 20.0;   // player unit starts at the bottom center
+
+    public final static int INPUT_UP = 1;       // input of a tick: bit flags of the pressed arrow keys
+    public final static int INPUT_DOWN = 2;
+    public final static int INPUT_LEFT = 4;
+    public final static int INPUT_RIGHT = 8;
 
     /**
      * Define the phases of this game:
@@ -25,46 +43,111 @@ public class BouncingBallCore {
      */
     public enum GamePhase{ INITIAL, DURING_GAME, GAME_OVER }
     private GamePhase gamePhase;           // phase of this game
+    
+    /**
+     * Define the ways of checking if player unit was hit by any ball:
+     * - BRUTE_FORCE:     Check every ball
+     * - BRANCHLESS_SCAN: Check every ball, in blocks without branches
+     * - SPATIAL_GRID:    Check only the balls in the grid cells around player unit
+     * - CONTINUOUS:      Check the balls in the grid cells around player unit's move, during the whole tick
+     *                    (swept circles), so fast moves & low tick rates don't pass through a ball
+     */
+    public enum CollisionDetectionMode{ BRUTE_FORCE, BRANCHLESS_SCAN, SPATIAL_GRID, CONTINUOUS }
+    private CollisionDetectionMode collisionDetectionMode;
 
-    private MainFrame mainFrameRef;             // reference of the main frame
+    private GameView gameViewRef;               // reference of the view (main frame, or headless view)
+   
+    private int boundaryX;                      // size of the game world (the game window by default)
+    private int boundaryY;
    
     private Balls balls;                        // ball entities in this game
     private PlayerUnit playerUnit;  // player controlled unit in this game
+    private SplitMix64 gameSeedGenerator;       // generates the random seed of each game (as SplittableRandom)
+    private long gameSeed;                      // random seed of the balls in the current game
    
-    private long frameBeginTime;                // record the time while a frame started
-    private long frameEndTime;                  // record the time while a frame ended
-    private long gameBeginTime;                 // record the time while a game started
+    private int ticksPerSecond;                 // physics steps per second
+    private double tickTimeScale;               // moving distance of one tick, relative to a 1/60 second tick
+    private long previousLoopTime;              // record the time (nano-second) while the previous loop pass started
+    private long tickAccumulator;               // not yet simulated time, in 1/ticksPerSecond nano-seconds
+    private long gameTicks;                     // number of ticks simulated in this game
     private long gameElapsedTime;               // record the current elapsed time of this game
    
-    private long ballLaunchingTimer;            // the timer for ball launching
-    private long timePoint1;                    // for timer computing
-    private long timePoint2;                    // for timer computing
+    private long ballLaunchingTimer;            // the timer for ball launching, in 1/ticksPerSecond mili-seconds
+    private SpawnRateCurve spawnRateCurve;      // balls launched per second instead of the timer (null: the timer)
+    private double spawnAccumulator;            // balls to launch, not launched yet (fraction of a ball)
+    private int maxNumberOfBalls;               // no balls are launched beyond this number (0: no limit)
+   
+    private boolean playerUnitInvincible;       // true: the game is never over
+    private long tickLimit;                     // stop executing after this many ticks in total (0: no limit)
+    private long totalTicks;                    // number of ticks simulated in all games
+   
+    private boolean realTimeMode;               // false while running ticks as fast as possible
    
-    public BouncingBallCore( MainFrame theMainFrameRef ) {
-        mainFrameRef = theMainFrameRef;
+    private InputRecorder inputRecorder;        // records the inputs of the next game (null: not recording)
+    private InputReplay inputReplay;            // replays the recorded inputs instead of the keys (null: live keys)
+    private InputPolicy inputPolicy;            // decides the inputs instead of the keys (null: live keys)
+   
+    private RewindRing rewindRing;              // checkpoints of the current game (null: not captured)
+   
+    private TickStatistics tickStatistics;      // latencies of the tick stages (null: not created yet)
+    private boolean tickTimingEnabled;          // false: the tick stages are not timed (nor recorded)
+   
+    public BouncingBallCore( GameView theGameViewRef ) {
+        this( theGameViewRef, DEFAULT_TICKS_PER_SECOND );
+    }
+   
+    public BouncingBallCore( GameView theGameViewRef, int theTicksPerSecond ) {
+        gameViewRef = theGameViewRef;
+       
+        boundaryX = DEFAULT_BOUNDARY_X;
+        boundaryY = DEFAULT_BOUNDARY_Y;
+       
+        ticksPerSecond = theTicksPerSecond;
+        tickTimeScale = (double)REFERENCE_TICKS_PER_SECOND / (double)ticksPerSecond;
        
         gamePhase = GamePhase.INITIAL;
+        collisionDetectionMode = CollisionDetectionMode.CONTINUOUS;
        
-        balls = new Balls();
+        balls = new HeapBalls();
         playerUnit = new PlayerUnit();
+        gameSeedGenerator = new SplitMix64( ThreadLocalRandom.current().nextLong() );
+        gameSeed = 0;
        
-        frameBeginTime = 0;
-        frameEndTime = 0;
-        gameBeginTime = 0;
+        previousLoopTime = 0;
+        tickAccumulator = 0;
+        gameTicks = 0;
         gameElapsedTime = 0;
        
-        ballLaunchingTimer = DEFAULT_BALL_LAUNCHING_TIMER;
-        timePoint1 = 0;
-        timePoint2 = 0;
+        ballLaunchingTimer = DEFAULT_BALL_LAUNCHING_TIMER * ticksPerSecond;
+        spawnRateCurve = null;
+        spawnAccumulator = 0.0;
+        maxNumberOfBalls = 0;
+       
+        playerUnitInvincible = false;
+        tickLimit = 0;
+        totalTicks = 0;
        
-        mainFrameRef.updateBallsAndPlayerUnit( balls, playerUnit );
+        realTimeMode = true;
+       
+        inputRecorder = null;
+        inputReplay = null;
+        inputPolicy = null;
+       
+        rewindRing = null;
+       
+        tickStatistics = null;      // created when ticks are timed, or when asked for
+        tickTimingEnabled = true;
+       
+        gameViewRef.updateBallsAndPlayerUnit( balls, playerUnit );
     }
    
     /**
-     * main procedure of this game application
+     * main procedure of this game application. (until the thread is interrupted, or the tick limit)
+     * While waiting for the start or restart button, the thread blocks without polling.
      */
     public void execute() {
-        while( true ) {
+        prepareTickStatistics();
+        while( !Thread.currentThread().isInterrupted() && !isTickLimitReached() ) {
             switch( gamePhase ) {
                 case INITIAL:
                     initialPhaseExecuting();
@@ -82,78 +165,287 @@ public class BouncingBallCore {
     }
    
     /**
-     * executed while game phase is INITIAL.
+     * Run the specified number of ticks as fast as possible, without waiting
+     * for the tick time.
+     * A new game is started whenever the view reports the start or restart button pushed.
+     * (stops early when the thread is interrupted, or at the tick limit)
      */
-    private void initialPhaseExecuting() {
-        sleep(100);     // polling every 0.1 second
+    public void executeTicks( long numberOfTicks ) {
+        realTimeMode = false;
+        prepareTickStatistics();
+       
+        for( long tick = 0; tick < numberOfTicks && !Thread.currentThread().isInterrupted()
+                            && !isTickLimitReached(); tick++ ) {
+            if( gamePhase == GamePhase.INITIAL && gameViewRef.isStartButtonPushed() ) {
+                switchInitialPhaseToDuringGame();
+            } else if( gamePhase == GamePhase.GAME_OVER && gameViewRef.isRestartButtonPushed() ) {
+                switchGameOverPhaseToDuringGame();
+            }
+           
+            if( gamePhase == GamePhase.DURING_GAME ) {
+                updateGame();
+                refreshScreen( 1.0 );
+            }
+        }
+       
+        realTimeMode = true;
+    }
+   
+    /**
+     * Play one game as fast as possible, until the game is over or has run the specified
+     * number of ticks, and return the number of ticks of the game.
+     * A new game is started without waiting for the view's buttons, unless the previous game
+     * reached the number of ticks but is not over yet, which is then continued.
+     */
+    public long executeGame( long maxTicks ) {
+        realTimeMode = false;
+        prepareTickStatistics();
        
-        if( mainFrameRef.isStartButtonPushed() ) {
+        if( gamePhase == GamePhase.INITIAL ) {
             switchInitialPhaseToDuringGame();
+        } else if( gamePhase == GamePhase.GAME_OVER ) {
+            switchGameOverPhaseToDuringGame();
+        }
+       
+        while( gamePhase == GamePhase.DURING_GAME && gameTicks < maxTicks ) {
+            updateGame();
+            refreshScreen( 1.0 );
+        }
+       
+        realTimeMode = true;
+        return gameTicks;
+    }
+   
+    /**
+     * executed while game phase is INITIAL.
+     */
+    private void initialPhaseExecuting() {
+        try {
+            gameViewRef.waitForStartButtonPushed();
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();     // stop executing
+            return;
         }
+       
+        switchInitialPhaseToDuringGame();
     }
    
     /**
      * executed while game phase is DURING_GAME.
+     * The physics advance in fixed ticks, as many as the time passed since the previous
+     * loop pass (at most MAX_CATCH_UP_STEPS), and the screen is refreshed once with
+     * the fraction of the next tick already passed, for interpolating the displayed positions.
      */
     private void duringGamePhaseExecuting() {
-        // record the frame begin time
-        frameBeginTime = System.currentTimeMillis();
+        long loopBeginTime = System.nanoTime();
+        long passedTime = Math.min( loopBeginTime - previousLoopTime, NANOSECONDS_PER_SECOND );
+        int steps = 0;
+        long timeToNextTick;
+        long tickTime = NANOSECONDS_PER_SECOND / ticksPerSecond;
+       
+        previousLoopTime = loopBeginTime;
+        tickAccumulator += passedTime * ticksPerSecond;
+       
+        // simulate the passed ticks
+        while( tickAccumulator >= NANOSECONDS_PER_SECOND && gamePhase == GamePhase.DURING_GAME
+                && !isTickLimitReached() ) {
+            if( steps == MAX_CATCH_UP_STEPS ) {
+                // too far behind, drop the ticks which can not be caught up
+                if( tickTimingEnabled ) {
+                    tickStatistics.recordDroppedTicks( tickAccumulator / NANOSECONDS_PER_SECOND );
+                }
+                tickAccumulator %= NANOSECONDS_PER_SECOND;
+                break;
+            }
+           
+            updateGame();
+            tickAccumulator -= NANOSECONDS_PER_SECOND;
+            steps++;
+        }
+       
+        // refresh screen
+        refreshScreen( Math.min( (double)tickAccumulator / (double)NANOSECONDS_PER_SECOND, 1.0 ) );
+       
+        // waiting for the next tick
+        if( tickTimingEnabled && System.nanoTime() - loopBeginTime > tickTime ) {
+            tickStatistics.recordFrameOverrun();
+        }
+        timeToNextTick = (NANOSECONDS_PER_SECOND - tickAccumulator) / ticksPerSecond
+                         - (System.nanoTime() - loopBeginTime);
+        if( timeToNextTick > 0 ) {
+            sleepNanosecond( timeToNextTick );
+        }
+    }
+   
+    /**
+     * advance the game by one tick.
+     */
+    private void updateGame() {
+        long tickBeginTime = tickTimingEnabled ? System.nanoTime() : 0;
+        long stageBeginTime = tickBeginTime;
+        boolean ballCollided;
        
         // update game playing time
-        gameElapsedTime = System.currentTimeMillis() - gameBeginTime;
-        mainFrameRef.updateGamePlayingTime( gameElapsedTime );
+        gameTicks++;
+        totalTicks++;
+        gameElapsedTime = gameTicks * MILLISECONDS_PER_SECOND / ticksPerSecond;
+        gameViewRef.updateGamePlayingTime( gameElapsedTime );
+        stageBeginTime = recordStage( Stage.HUD, stageBeginTime );
        
         // balls moving
-        balls.ballsMove( BOUNDARY_X, BOUNDARY_Y );
+        balls.ballsMove( boundaryX, boundaryY, tickTimeScale );
+        stageBeginTime = recordStage( Stage.BALLS_MOVE, stageBeginTime );
+       
+        // get user keyboard inputs (or the replayed or decided inputs), and set player unit's moving direction
+        int input;
+        if( inputReplay != null ) {
+            input = inputReplay.nextInput();
+        } else if( inputPolicy != null ) {
+            input = inputPolicy.nextInput( balls, playerUnit, gameTicks );
+        } else {
+            input = readInput();
+        }
+        recordInput( input );
        
-        // get user keyboard inputs, and set player unit's moving direction
-        if( mainFrameRef.isBothUpAndDownArrowKeyPressed() ) {
+        if( (input & (INPUT_UP | INPUT_DOWN)) == (INPUT_UP | INPUT_DOWN) ) {
             playerUnit.setDirectionY( 0 );
-        } else if( mainFrameRef.isUpArrowKeyPressed() ) {
+        } else if( (input & INPUT_UP) != 0 ) {
             playerUnit.setDirectionY( -1 );
-        } else if( mainFrameRef.isDownArrowKeyPressed() ) {
+        } else if( (input & INPUT_DOWN) != 0 ) {
             playerUnit.setDirectionY( 1 );
         } else {
             playerUnit.setDirectionY( 0 );
         }
        
-        if( mainFrameRef.isBothLeftAndRightArrowKeyPressed() ) {
+        if( (input & (INPUT_LEFT | INPUT_RIGHT)) == (INPUT_LEFT | INPUT_RIGHT) ) {
             playerUnit.setDirectionX( 0 );
-        } else if( mainFrameRef.isLeftArrowKeyPressed() ) {
+        } else if( (input & INPUT_LEFT) != 0 ) {
             playerUnit.setDirectionX( -1 );
-        } else if( mainFrameRef.isRightArrowKeyPressed() ) {
+        } else if( (input & INPUT_RIGHT) != 0 ) {
             playerUnit.setDirectionX( 1 );
         } else {
             playerUnit.setDirectionX( 0 );
         }
+        stageBeginTime = recordStage( Stage.INPUT, stageBeginTime );
        
         // player unit moving
-        playerUnit.unitMove( BOUNDARY_X, BOUNDARY_Y );
+        playerUnit.unitMove( boundaryX, boundaryY, tickTimeScale );
+        stageBeginTime = recordStage( Stage.UNIT_MOVE, stageBeginTime );
        
         // Update balls' & player unit's states to main frame
-        mainFrameRef.updateBallsAndPlayerUnit( balls, playerUnit );
-       
-        // determine if it needs to launch a ball
-        timePoint1 = timePoint2;
-        timePoint2 = System.currentTimeMillis();
-        ballLaunchingTimer -= (timePoint2 - timePoint1);
-        if( ballLaunchingTimer < 0 ) {
-            balls.launchABall();
-            ballLaunchingTimer += DEFAULT_BALL_LAUNCHING_TIMER;
+        gameViewRef.updateBallsAndPlayerUnit( balls, playerUnit );
+        stageBeginTime = recordStage( Stage.VIEW_UPDATE, stageBeginTime );
+       
+        // determine if it needs to launch a ball (or the balls of the spawn rate)
+        if( spawnRateCurve != null ) {
+            spawnAccumulator += spawnRateCurve.getRate( (double)gameTicks / ticksPerSecond ) / ticksPerSecond;
+            while( spawnAccumulator >= 1.0 && !isMaxNumberOfBallsReached() ) {
+                balls.launchABall();
+                spawnAccumulator -= 1.0;
+            }
+            // at the limit, the balls not launched are dropped (not launched all at once later)
+            spawnAccumulator -= Math.floor( spawnAccumulator );
+        } else {
+            ballLaunchingTimer -= MILLISECONDS_PER_SECOND;
+            if( ballLaunchingTimer < 0 ) {
+                if( !isMaxNumberOfBallsReached() ) {
+                    balls.launchABall();
+                }
+                ballLaunchingTimer += DEFAULT_BALL_LAUNCHING_TIMER * ticksPerSecond;
+            }
         }
+        stageBeginTime = recordStage( Stage.LAUNCH, stageBeginTime );
        
         // check if player unit was hit by any ball
-        if( isBallCollided() ) {
+        ballCollided = isBallCollided();
+        stageBeginTime = recordStage( Stage.COLLISION, stageBeginTime );
+       
+        // capture a checkpoint every few ticks (unless the game is over, or the slot is still growing)
+        if( rewindRing != null && gameTicks % rewindRing.getCaptureInterval() == 0
+                && !(ballCollided && !playerUnitInvincible) ) {
+            GameSnapshot slot = rewindRing.nextSlot( getSnapshotSize( balls.getNumberOfBalls() ) );
+            if( slot != null ) {
+                captureSnapshot( slot );
+            }
+            stageBeginTime = recordStage( Stage.SNAPSHOT, stageBeginTime );
+        }
+        if( tickTimingEnabled ) {
+            tickStatistics.recordTick(
+                stageBeginTime - tickBeginTime, NANOSECONDS_PER_SECOND / ticksPerSecond, balls.getNumberOfBalls()
+            );
+        }
+       
+        if( ballCollided && !playerUnitInvincible ) {
             switchDuringGamePhaseToGameOver();
         }
+    }
+   
+    /**
+     * refresh screen, and record the time it took.
+     */
+    private void refreshScreen( double interpolationAlpha ) {
+        long beginTime;
+       
+        if( !tickTimingEnabled ) {
+            gameViewRef.refreshScreen( interpolationAlpha );
+            return;
+        }
        
-        // refresh screen
-        mainFrameRef.refreshScreen();
+        beginTime = System.nanoTime();
+        gameViewRef.refreshScreen( interpolationAlpha );
+        tickStatistics.record( Stage.REFRESH, System.nanoTime() - beginTime );
+    }
+   
+    /**
+     * record the latency of a stage which began at the specified time, and return the end time of it.
+     */
+    private long recordStage( Stage stage, long stageBeginTime ) {
+        long stageEndTime;
+       
+        if( !tickTimingEnabled ) {
+            return stageBeginTime;
+        }
+       
+        stageEndTime = System.nanoTime();
+        tickStatistics.record( stage, stageEndTime - stageBeginTime );
+        return stageEndTime;
+    }
+   
+    /**
+     * get the pressed arrow keys from the view, as the input of a tick.
+     */
+    private int readInput() {
+        int input = 0;
+       
+        if( gameViewRef.isUpArrowKeyPressed() ) {
+            input |= INPUT_UP;
+        }
+        if( gameViewRef.isDownArrowKeyPressed() ) {
+            input |= INPUT_DOWN;
+        }
+        if( gameViewRef.isLeftArrowKeyPressed() ) {
+            input |= INPUT_LEFT;
+        }
+        if( gameViewRef.isRightArrowKeyPressed() ) {
+            input |= INPUT_RIGHT;
+        }
+       
+        return input;
+    }
+   
+    /**
+     * write the input of a tick to the input recorder, if recording.
+     */
+    private void recordInput( int input ) {
+        if( inputRecorder == null ) {
+            return;
+        }
        
-        // record the frame end time, and waiting for a frame time
-        frameEndTime = System.currentTimeMillis();
-        if( (frameEndTime - frameBeginTime) < ONE_FRAME_TIME ) {
-            sleep( ONE_FRAME_TIME - (frameEndTime - frameBeginTime) );
+        try {
+            inputRecorder.record( input );
+        } catch( IOException e ) {
+            e.printStackTrace();
+            inputRecorder = null;
         }
     }
    
@@ -161,11 +453,14 @@ public class BouncingBallCore {
      * executed while game phase is GAME_OVER.
      */
     private void gameOverPhaseExecuting() {
-        sleep( 100 );   // polling every 0.1 second
-       
-        if( mainFrameRef.isRestartButtonPushed() ) {
-            switchGameOverPhaseToDuringGame();
+        try {
+            gameViewRef.waitForRestartButtonPushed();
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();     // stop executing
+            return;
         }
+       
+        switchGameOverPhaseToDuringGame();
     }
     
     /**
@@ -173,31 +468,37 @@ public class BouncingBallCore {
      */
     private void switchInitialPhaseToDuringGame() {
         // notify mainPanel to change game phase
-        mainFrameRef.switchInitialPhaseToDuringGame();
+        gameViewRef.switchInitialPhaseToDuringGame();
        
         // Launch the initial balls & player unit
+        beginGameSeed();
         balls.ballsInitialLaunch();
         playerUnit.initialLaunch();
        
         // Update the current configuration of all balls and player unit to main frame
-        mainFrameRef.updateBallsAndPlayerUnit( balls, playerUnit );
+        gameViewRef.updateBallsAndPlayerUnit( balls, playerUnit );
        
         // transfer the focus to mainFrame. (getting key input)
-        mainFrameRef.requestFocus();
+        gameViewRef.requestFocus();
        
         // refresh screen
-        mainFrameRef.refreshScreen();
+        gameViewRef.refreshScreen( 1.0 );
        
-        // waiting for a frame time
-        sleep( ONE_FRAME_TIME );
-       
-        // record game begin time
-        gameBeginTime = System.currentTimeMillis();
+        // waiting for a tick time
+        if( realTimeMode ) {
+            sleepNanosecond( NANOSECONDS_PER_SECOND / ticksPerSecond );
+        }
        
-        // initialize the ball launching timer related parameters
-        ballLaunchingTimer = DEFAULT_BALL_LAUNCHING_TIMER;
-        timePoint1 = gameBeginTime;
-        timePoint2 = gameBeginTime;
+        // initialize the game time & ball launching timer
+        previousLoopTime = System.nanoTime();
+        tickAccumulator = 0;
+        gameTicks = 0;
+        gameElapsedTime = 0;
+        ballLaunchingTimer = DEFAULT_BALL_LAUNCHING_TIMER * ticksPerSecond;
+        spawnAccumulator = 0.0;
+        if( rewindRing != null ) {
+            rewindRing.clear();     // the checkpoints are of the current game only
+        }
        
         // switch game phase to DURING_GAME
         gamePhase = GamePhase.DURING_GAME;
@@ -208,10 +509,20 @@ public class BouncingBallCore {
      */
     private void switchDuringGamePhaseToGameOver() {
         // notify mainPanel to change game phase
-        mainFrameRef.switchDuringGamePhaseToGameOver();
+        gameViewRef.switchDuringGamePhaseToGameOver();
        
         // reset key input
-        mainFrameRef.resetKeyPressedFlag();
+        gameViewRef.resetKeyPressedFlag();
+       
+        // the recording holds one game
+        if( inputRecorder != null ) {
+            try {
+                inputRecorder.close();
+            } catch( IOException e ) {
+                e.printStackTrace();
+            }
+            inputRecorder = null;
+        }
        
         // switch game phase to GAME_OVER
         gamePhase = GamePhase.GAME_OVER;
@@ -222,40 +533,88 @@ public class BouncingBallCore {
      */
     private void switchGameOverPhaseToDuringGame() {
         // notify mainPanel to change game phase
-        mainFrameRef.switchGameOverPhaseToDuringGame();
+        gameViewRef.switchGameOverPhaseToDuringGame();
        
         // Initially launch balls & player unit
+        beginGameSeed();
         balls.ballsInitialLaunch();
         playerUnit.initialLaunch();
        
         // Update balls' & player unit's states to main frame
-        mainFrameRef.updateBallsAndPlayerUnit( balls, playerUnit );
+        gameViewRef.updateBallsAndPlayerUnit( balls, playerUnit );
        
         // transfer focus to mainFrame. (getting key input)
-        mainFrameRef.requestFocus();
+        gameViewRef.requestFocus();
        
         // refresh screen
-        mainFrameRef.refreshScreen();
+        gameViewRef.refreshScreen( 1.0 );
        
-        // waiting for a frame time
-        sleep( ONE_FRAME_TIME );
-       
-        // record game begin time
-        gameBeginTime = System.currentTimeMillis();
+        // waiting for a tick time
+        if( realTimeMode ) {
+            sleepNanosecond( NANOSECONDS_PER_SECOND / ticksPerSecond );
+        }
        
-        // initialize the ball launching timer related parameters
-        ballLaunchingTimer = DEFAULT_BALL_LAUNCHING_TIMER;
-        timePoint1 = gameBeginTime;
-        timePoint2 = gameBeginTime;
+        // initialize the game time & ball launching timer
+        previousLoopTime = System.nanoTime();
+        tickAccumulator = 0;
+        gameTicks = 0;
+        gameElapsedTime = 0;
+        ballLaunchingTimer = DEFAULT_BALL_LAUNCHING_TIMER * ticksPerSecond;
+        spawnAccumulator = 0.0;
+        if( rewindRing != null ) {
+            rewindRing.clear();     // the checkpoints are of the current game only
+        }
        
         // switch game phase to DURING_GAME
         gamePhase = GamePhase.DURING_GAME;
     }
    
+    /**
+     * set the random seed of the new game: the recorded seed while replaying,
+     * otherwise the next seed of this session. (and start recording, if requested)
+     */
+    private void beginGameSeed() {
+        gameSeed = (inputReplay != null) ? inputReplay.getGameSeed() : gameSeedGenerator.nextLong();
+        balls.setRandomSeed( gameSeed );
+       
+        if( inputRecorder != null && !inputRecorder.isStarted() ) {
+            try {
+                inputRecorder.begin( ticksPerSecond, gameSeed );
+            } catch( IOException e ) {
+                e.printStackTrace();
+                inputRecorder = null;
+            }
+        }
+    }
+   
     /**
      * check if player unit was hit by any ball.
+     * (package-private for the benchmarks)
+     */
+    boolean isBallCollided() {
+        switch( collisionDetectionMode ) {
+            case CONTINUOUS:
+                return balls.isAnyBallSweptCollidedWith(
+                    playerUnit.getPreviousCenterX(), playerUnit.getPreviousCenterY(),
+                    playerUnit.getCenterX(), playerUnit.getCenterY(), playerUnit.getRadius()
+                );
+            case SPATIAL_GRID:
+                return balls.isAnyBallCollidedWith(
+                    playerUnit.getCenterX(), playerUnit.getCenterY(), playerUnit.getRadius()
+                );
+            case BRANCHLESS_SCAN:
+                return balls.isAnyBallOverlapping(
+                    playerUnit.getCenterX(), playerUnit.getCenterY(), playerUnit.getRadius()
+                );
+            default:
+                return isBallCollidedBruteForce();
+        }
+    }
+   
+    /**
+     * check if player unit was hit by any ball, by checking every ball.
      */
-    private boolean isBallCollided() {
+    private boolean isBallCollidedBruteForce() {
         double centerDistence_x;
         double centerDistence_y;
         double centerDistence_min = (double)balls.getRadius() + (double)playerUnit.getRadius();
@@ -274,13 +633,300 @@ public class BouncingBallCore {
     }
    
     /**
-     * pause execution for the specified millisecond.
+     * (package-private for the benchmarks)
      */
-    private void sleep( long milisecond ) {
-        try {
-            Thread.sleep( milisecond );
-        } catch( InterruptedException e ) {
-            e.printStackTrace();
+    Balls getBalls() {
+        return balls;
+    }
+   
+    /**
+     * replace the balls of this game, e.g. by OffHeapBalls for a huge number of balls.
+     * (before the game starts; the balls are launched again when it starts)
+     */
+    public void setBalls( Balls theBalls ) {
+        balls = theBalls;
+        if( rewindRing != null ) {
+            rewindRing.reserve( getSnapshotSize( Math.max( balls.getSizeOfBallsArray(), balls.getNumberOfBalls() ) ) );
+        }
+        balls.setLaunchPosition( boundaryX / 2.0, BALLS_LAUNCH_POSITION_Y );
+        gameViewRef.updateBallsAndPlayerUnit( balls, playerUnit );
+    }
+   
+    /**
+     * set the size of the game world (640 x 480 by default, the game window).
+     * Balls are launched at its top center, and player unit at its bottom center.
+     * (before the game starts; the view still displays the 640 x 480 top left of a larger world)
+     */
+    public void setWorldSize( int width, int height ) {
+        boundaryX = width;
+        boundaryY = height;
+        balls.setLaunchPosition( boundaryX / 2.0, BALLS_LAUNCH_POSITION_Y );
+        playerUnit.setInitialPosition( boundaryX / 2.0, boundaryY - PLAYER_UNIT_DISTANCE_FROM_BOTTOM );
+    }
+   
+    public int getWorldWidth() {
+        return boundaryX;
+    }
+   
+    public int getWorldHeight() {
+        return boundaryY;
+    }
+   
+    /**
+     * launch the balls by the specified spawn rate curve, instead of one ball each 5 seconds.
+     * (null: one ball each 5 seconds again)
+     */
+    public void setSpawnRateCurve( SpawnRateCurve theSpawnRateCurve ) {
+        spawnRateCurve = theSpawnRateCurve;
+    }
+   
+    /**
+     * set if player unit is invincible: being hit by a ball doesn't end the game.
+     * (the collisions are still checked, so a tick costs the same)
+     */
+    public void setPlayerUnitInvincible( boolean thePlayerUnitInvincible ) {
+        playerUnitInvincible = thePlayerUnitInvincible;
+    }
+   
+    /**
+     * launch no balls beyond the specified number of balls. (0: no limit)
+     * (bounds the memory of a game whose player unit is invincible)
+     */
+    public void setMaxNumberOfBalls( int theMaxNumberOfBalls ) {
+        maxNumberOfBalls = theMaxNumberOfBalls;
+    }
+   
+    private boolean isMaxNumberOfBallsReached() {
+        return maxNumberOfBalls > 0 && balls.getNumberOfBalls() >= maxNumberOfBalls;
+    }
+   
+    /**
+     * stop executing after the specified number of ticks in total. (0: no limit)
+     */
+    public void setTickLimit( long theTickLimit ) {
+        tickLimit = theTickLimit;
+    }
+   
+    public boolean isTickLimitReached() {
+        return tickLimit > 0 && totalTicks >= tickLimit;
+    }
+   
+    /**
+     * get the number of ticks simulated in all games.
+     */
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+   
+    /**
+     * capture checkpoints of the current game into the specified rewind ring, every few ticks.
+     * (null: stop capturing) The ring's slots are allocated now, for as many balls as the balls' arrays hold
+     * (see Balls.reserveBalls()); for more balls, the ring grows them in the background.
+     */
+    public void setRewindRing( RewindRing theRewindRing ) {
+        rewindRing = theRewindRing;
+        if( rewindRing != null ) {
+            rewindRing.reserve( getSnapshotSize( Math.max( balls.getSizeOfBallsArray(), balls.getNumberOfBalls() ) ) );
+        }
+    }
+   
+    public RewindRing getRewindRing() {
+        return rewindRing;
+    }
+   
+    /**
+     * rewind the current game to a checkpoint of the rewind ring, counted back from the latest one
+     * (0: the latest), and drop the newer checkpoints. Returns false if there's no such checkpoint.
+     * (on the thread executing this core)
+     */
+    public boolean rewind( int checkpointsBack ) {
+        if( rewindRing == null || checkpointsBack < 0 || checkpointsBack >= rewindRing.getNumberOfCheckpoints() ) {
+            return false;
+        }
+       
+        restoreSnapshot( rewindRing.getCheckpoint( checkpointsBack ) );
+        rewindRing.dropNewerThan( checkpointsBack );
+        return true;
+    }
+   
+    /**
+     * get the size of a snapshot of a game with the specified number of balls, in bytes.
+     */
+    private int getSnapshotSize( int numberOfBalls ) {
+        return GameSnapshot.HEADER_SIZE + playerUnit.getStateSize() + balls.getStateSize( numberOfBalls );
+    }
+   
+    /**
+     * capture the state of the current game (balls, player unit, timers & random sources) into the snapshot.
+     * (on the thread executing this core, between ticks; see GameSnapshot for the format)
+     */
+    public void captureSnapshot( GameSnapshot snapshot ) {
+        ByteBuffer buffer = snapshot.beginWriting( getSnapshotSize( balls.getNumberOfBalls() ) );
+       
+        buffer.putInt( GameSnapshot.MAGIC );
+        buffer.putInt( GameSnapshot.VERSION );
+        buffer.putInt( ticksPerSecond );
+        buffer.putInt( boundaryX );
+        buffer.putInt( boundaryY );
+        buffer.putInt( 0 );
+        buffer.putLong( gameSeed );
+        buffer.putLong( gameSeedGenerator.getSeed() );
+        buffer.putLong( gameTicks );
+        buffer.putLong( ballLaunchingTimer );
+        buffer.putDouble( spawnAccumulator );
+        playerUnit.writeState( buffer );
+        balls.writeState( buffer );
+       
+        snapshot.endWriting();
+    }
+   
+    /**
+     * restore the game of the snapshot, which then continues from the tick it was captured at,
+     * also if the game is over or not started yet. The snapshot must be of the same ticks per second.
+     * (on the thread executing this core, between ticks; an input recording goes on recording,
+     * so it doesn't replay the restored game)
+     */
+    public void restoreSnapshot( GameSnapshot snapshot ) {
+        ByteBuffer buffer;
+       
+        if( snapshot.isEmpty() ) {
+            throw new IllegalArgumentException( "empty snapshot" );
+        }
+        if( snapshot.getTicksPerSecond() != ticksPerSecond ) {
+            throw new IllegalArgumentException(
+                "snapshot of " + snapshot.getTicksPerSecond() + " ticks per second, not " + ticksPerSecond
+            );
+        }
+       
+        buffer = snapshot.beginReading();
+        buffer.position( GameSnapshot.TICKS_PER_SECOND_POSITION + 4 );
+        boundaryX = buffer.getInt();
+        boundaryY = buffer.getInt();
+        buffer.getInt();
+        gameSeed = buffer.getLong();
+        gameSeedGenerator.setSeed( buffer.getLong() );
+        gameTicks = buffer.getLong();
+        ballLaunchingTimer = buffer.getLong();
+        spawnAccumulator = buffer.getDouble();
+        playerUnit.readState( buffer );
+        balls.readState( buffer );
+        gameElapsedTime = gameTicks * MILLISECONDS_PER_SECOND / ticksPerSecond;
+       
+        // continue the restored game
+        if( gamePhase == GamePhase.INITIAL ) {
+            gameViewRef.switchInitialPhaseToDuringGame();
+        } else if( gamePhase == GamePhase.GAME_OVER ) {
+            gameViewRef.switchGameOverPhaseToDuringGame();
+        }
+        gameViewRef.updateGamePlayingTime( gameElapsedTime );
+        gameViewRef.updateBallsAndPlayerUnit( balls, playerUnit );
+        gameViewRef.refreshScreen( 1.0 );
+       
+        previousLoopTime = System.nanoTime();
+        tickAccumulator = 0;
+        gamePhase = GamePhase.DURING_GAME;
+    }
+   
+    /**
+     * set the random seed of this session. The same seed (and the same inputs) replays
+     * the same games, since each game's balls are generated from a seed derived from it.
+     */
+    public void setSessionSeed( long sessionSeed ) {
+        gameSeedGenerator.setSeed( sessionSeed );
+    }
+   
+    /**
+     * get the random seed of the balls in the current game.
+     */
+    public long getGameSeed() {
+        return gameSeed;
+    }
+   
+    /**
+     * record the inputs of the next game into the specified recorder.
+     * The recorder is closed when the game is over.
+     */
+    public void setInputRecorder( InputRecorder theInputRecorder ) {
+        inputRecorder = theInputRecorder;
+    }
+   
+    /**
+     * replay the recorded inputs instead of the keys. The games use the recorded seed,
+     * and this core should run at the recorded ticks per second.
+     */
+    public void setInputReplay( InputReplay theInputReplay ) {
+        inputReplay = theInputReplay;
+    }
+   
+    /**
+     * decide the inputs by the specified policy instead of the keys. (null: the keys again)
+     */
+    public void setInputPolicy( InputPolicy theInputPolicy ) {
+        inputPolicy = theInputPolicy;
+    }
+   
+    /**
+     * enable or disable timing the tick stages. (disabled, no time is read while ticking,
+     * and the tick statistics are left as they are; a core never timed doesn't create them,
+     * e.g. each session's core of BatchRunner)
+     */
+    public void setTickTimingEnabled( boolean theTickTimingEnabled ) {
+        tickTimingEnabled = theTickTimingEnabled;
+        prepareTickStatistics();
+    }
+   
+    /**
+     * get the tick statistics. (created now, if not yet)
+     */
+    public TickStatistics getTickStatistics() {
+        if( tickStatistics == null ) {
+            tickStatistics = new TickStatistics();
+        }
+       
+        return tickStatistics;
+    }
+   
+    /**
+     * create the tick statistics before executing, if the ticks are timed.
+     * (so they are not created on the tick path)
+     */
+    private void prepareTickStatistics() {
+        if( tickTimingEnabled ) {
+            getTickStatistics();
         }
     }
+   
+    public GamePhase getGamePhase() {
+        return gamePhase;
+    }
+   
+    public long getGameTicks() {
+        return gameTicks;
+    }
+   
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+   
+    /**
+     * set if balls bounce off each other, instead of passing through.
+     */
+    public void setBallsCollisionEnabled( boolean ballsCollisionEnabled ) {
+        balls.setBallsCollisionEnabled( ballsCollisionEnabled );
+    }
+   
+    public CollisionDetectionMode getCollisionDetectionMode() {
+        return collisionDetectionMode;
+    }
+   
+    public void setCollisionDetectionMode( CollisionDetectionMode collisionDetectionMode ) {
+        this.collisionDetectionMode = collisionDetectionMode;
+    }
+   
+    /**
+     * pause execution for the specified nano-second.
+     */
+    private void sleepNanosecond( long nanosecond ) {
+        LockSupport.parkNanos( nanosecond );
+    }
 }
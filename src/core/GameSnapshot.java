@@ -0,0 +1,184 @@
+package core;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * The state of a game at a tick, in a compact binary format, held in a direct buffer.
+ * Captured & restored by BouncingBallCore; capturing again reuses the buffer, which is only
+ * reallocated when the state doesn't fit. A snapshot can be saved to & loaded from a file.
+ * Format (little-endian):
+ * - header: magic "BBSS" (int), version (int), ticks per second (int), world width, height (int),
+ *           (reserved int), game seed (long), session seed generator's seed (long), game ticks (long),
+ *           ball launching timer (long), spawn accumulator (double)
+ * - player unit: see PlayerUnit.writeState()
+ * - balls: see Balls.writeState()
+ */
+public class GameSnapshot {
+
+    public final static int MAGIC = 0x42425353;        // "BBSS"
+    public final static int VERSION = 1;
+    public final static int HEADER_SIZE = 6 * 4 + 5 * 8;
+    public final static int TICKS_PER_SECOND_POSITION = 4 + 4;
+    public final static int GAME_TICKS_POSITION = 6 * 4 + 8 + 8;
+
+    private final int GROWTH_DIVISOR = 4;       // a reallocated buffer has 1/4 more room than needed
+
+    private ByteBuffer buffer;                  // the snapshot is [0, limit) (limit 0: empty)
+
+    public GameSnapshot() {
+        this( 0 );
+    }
+
+    /**
+     * an empty snapshot whose buffer holds states of up to the specified bytes without reallocating.
+     */
+    public GameSnapshot( int capacity ) {
+        buffer = allocate( capacity );
+        buffer.limit( 0 );
+    }
+
+    /**
+     * allocate a buffer for a snapshot. (package-private for RewindRing, which allocates the slots' buffers ahead)
+     */
+    static ByteBuffer allocate( int capacity ) {
+        return ByteBuffer.allocateDirect( capacity ).order( ByteOrder.LITTLE_ENDIAN );
+    }
+
+    /**
+     * make the buffer hold states of up to the specified bytes. (the snapshot is emptied if it's reallocated)
+     */
+    public void reserve( int capacity ) {
+        if( buffer.capacity() < capacity ) {
+            buffer = allocate( capacity );
+            buffer.limit( 0 );
+        }
+    }
+
+    /**
+     * replace the buffer by a larger one allocated by allocate(). (the snapshot is emptied)
+     * (package-private for RewindRing)
+     */
+    void replaceBuffer( ByteBuffer largerBuffer ) {
+        buffer = largerBuffer;
+        buffer.limit( 0 );
+    }
+
+    /**
+     * get the buffer for writing a state of the specified size, from its beginning.
+     * (package-private for BouncingBallCore)
+     */
+    ByteBuffer beginWriting( int size ) {
+        if( buffer.capacity() < size ) {
+            buffer = allocate( size + size / GROWTH_DIVISOR );
+        }
+        buffer.clear();
+
+        return buffer;
+    }
+
+    /**
+     * end the snapshot where the state written ends.
+     */
+    void endWriting() {
+        buffer.flip();
+    }
+
+    /**
+     * get the buffer for reading the state from its beginning.
+     */
+    ByteBuffer beginReading() {
+        buffer.rewind();
+
+        return buffer;
+    }
+
+    public boolean isEmpty() {
+        return buffer.limit() == 0;
+    }
+
+    /**
+     * get the size of the state, in bytes.
+     */
+    public int getSize() {
+        return buffer.limit();
+    }
+
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * get the ticks per second of the game. (not for an empty snapshot)
+     */
+    public int getTicksPerSecond() {
+        return buffer.getInt( TICKS_PER_SECOND_POSITION );
+    }
+
+    /**
+     * get the tick of the game when it was captured. (not for an empty snapshot)
+     */
+    public long getGameTicks() {
+        return buffer.getLong( GAME_TICKS_POSITION );
+    }
+
+    /**
+     * write the snapshot into a file, replacing its contents.
+     */
+    public void save( String fileName ) throws IOException {
+        RandomAccessFile file = new RandomAccessFile( fileName, "rw" );
+        ByteBuffer contents = buffer.duplicate();
+
+        try {
+            file.setLength( 0 );
+            FileChannel channel = file.getChannel();
+            contents.rewind();
+            while( contents.hasRemaining() ) {
+                channel.write( contents );
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * read a snapshot saved by save().
+     */
+    public static GameSnapshot load( String fileName ) throws IOException {
+        RandomAccessFile file = new RandomAccessFile( fileName, "r" );
+        GameSnapshot snapshot;
+        ByteBuffer contents;
+
+        try {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            if( size < HEADER_SIZE || size > Integer.MAX_VALUE ) {
+                throw new IOException( fileName + " is not a game snapshot" );
+            }
+
+            snapshot = new GameSnapshot( (int)size );
+            contents = snapshot.beginWriting( (int)size );
+            contents.limit( (int)size );
+            while( contents.hasRemaining() ) {
+                if( channel.read( contents ) < 0 ) {
+                    throw new IOException( fileName + " is truncated" );
+                }
+            }
+            snapshot.endWriting();
+        } finally {
+            file.close();
+        }
+
+        if( contents.getInt( 0 ) != MAGIC ) {
+            throw new IOException( fileName + " is not a game snapshot" );
+        }
+        if( contents.getInt( 4 ) != VERSION ) {
+            throw new IOException( "unsupported game snapshot version: " + contents.getInt( 4 ) );
+        }
+
+        return snapshot;
+    }
+}
@@ -0,0 +1,17 @@
+package core;
+
+import domain.Balls;
+import domain.PlayerUnit;
+
+/**
+ * Decides the input of each tick instead of the keys, e.g. a bot playing the game.
+ * A policy is used by one game session only, so it may keep its own states.
+ */
+public interface InputPolicy {
+
+    /**
+     * get the input of the next tick (bit flags of BouncingBallCore.INPUT_*),
+     * from the current states of the game. (the states must not be changed)
+     */
+    int nextInput( Balls balls, PlayerUnit playerUnit, long gameTicks );
+}
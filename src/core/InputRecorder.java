@@ -0,0 +1,115 @@
+package core;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Record the arrow key inputs of a game, tick by tick, into a binary file.
+ * File format (big-endian):
+ * - header: magic "BBIR" (int), version (int), ticks per second (int),
+ *           random seed of the game (long), number of ticks (long)
+ * - inputs: 4 bits per tick (see INPUT_UP, ...), two ticks per byte, the earlier tick in the low bits
+ */
+public class InputRecorder {
+
+    public final static int MAGIC = 0x42424952;        // "BBIR"
+    public final static int VERSION = 1;
+    public final static int HEADER_SIZE = 4 + 4 + 4 + 8 + 8;
+    public final static int NUMBER_OF_TICKS_POSITION = 4 + 4 + 4 + 8;
+
+    private final int BUFFER_SIZE = 65536;              // flush to file every 65536 bytes (131072 ticks)
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private long numberOfTicks;
+    private int pendingInput;           // input of an even tick, waiting for the next tick to fill the byte
+    private boolean started;
+    private boolean closed;
+
+    public InputRecorder( String fileName ) throws IOException {
+        file = new RandomAccessFile( fileName, "rw" );
+        file.setLength( 0 );
+        channel = file.getChannel();
+        buffer = ByteBuffer.allocateDirect( BUFFER_SIZE );
+        numberOfTicks = 0;
+        pendingInput = 0;
+        started = false;
+        closed = false;
+    }
+
+    /**
+     * write the header. (at the beginning of the recorded game)
+     */
+    public void begin( int ticksPerSecond, long gameSeed ) throws IOException {
+        buffer.putInt( MAGIC );
+        buffer.putInt( VERSION );
+        buffer.putInt( ticksPerSecond );
+        buffer.putLong( gameSeed );
+        buffer.putLong( 0 );        // number of ticks, written while closing
+        started = true;
+    }
+
+    /**
+     * record the input of one tick.
+     */
+    public void record( int input ) throws IOException {
+        if( (numberOfTicks & 1) == 0 ) {
+            pendingInput = input & 0x0f;
+        } else {
+            if( !buffer.hasRemaining() ) {
+                flush();
+            }
+            buffer.put( (byte)(pendingInput | ((input & 0x0f) << 4)) );
+        }
+        numberOfTicks++;
+    }
+
+    /**
+     * write the remaining inputs & the number of ticks, and close the file.
+     */
+    public void close() throws IOException {
+        if( closed ) {
+            return;
+        }
+
+        if( (numberOfTicks & 1) == 1 ) {
+            if( !buffer.hasRemaining() ) {
+                flush();
+            }
+            buffer.put( (byte)pendingInput );
+        }
+        flush();
+
+        ByteBuffer numberOfTicksBuffer = ByteBuffer.allocate( 8 );
+        numberOfTicksBuffer.putLong( numberOfTicks );
+        numberOfTicksBuffer.flip();
+        channel.write( numberOfTicksBuffer, NUMBER_OF_TICKS_POSITION );
+
+        channel.close();
+        file.close();
+        closed = true;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public long getNumberOfTicks() {
+        return numberOfTicks;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while( buffer.hasRemaining() ) {
+            channel.write( buffer );
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,74 @@
+package core;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Replay the inputs recorded by InputRecorder, read from the memory-mapped file.
+ * After the recorded ticks, no key is pressed.
+ */
+public class InputReplay {
+
+    private MappedByteBuffer inputs;
+    private int ticksPerSecond;
+    private long gameSeed;
+    private long numberOfTicks;
+    private long currentTick;
+
+    public InputReplay( String fileName ) throws IOException {
+        RandomAccessFile file = new RandomAccessFile( fileName, "r" );
+        try {
+            FileChannel channel = file.getChannel();
+            inputs = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+        } finally {
+            file.close();   // the mapping stays valid after closing
+        }
+
+        if( inputs.capacity() < InputRecorder.HEADER_SIZE || inputs.getInt( 0 ) != InputRecorder.MAGIC ) {
+            throw new IOException( fileName + " is not an input recording" );
+        }
+        if( inputs.getInt( 4 ) != InputRecorder.VERSION ) {
+            throw new IOException( "unsupported input recording version: " + inputs.getInt( 4 ) );
+        }
+        ticksPerSecond = inputs.getInt( 8 );
+        gameSeed = inputs.getLong( 12 );
+        numberOfTicks = inputs.getLong( InputRecorder.NUMBER_OF_TICKS_POSITION );
+        if( InputRecorder.HEADER_SIZE + (numberOfTicks + 1) / 2 > inputs.capacity() ) {
+            throw new IOException( fileName + " is truncated" );
+        }
+        currentTick = 0;
+    }
+
+    /**
+     * get the input of the next tick.
+     */
+    public int nextInput() {
+        int input = 0;
+
+        if( currentTick < numberOfTicks ) {
+            int inputs2Ticks = inputs.get( InputRecorder.HEADER_SIZE + (int)(currentTick >>> 1) );
+            input = ((currentTick & 1) == 0) ? (inputs2Ticks & 0x0f) : ((inputs2Ticks >>> 4) & 0x0f);
+        }
+        currentTick++;
+
+        return input;
+    }
+
+    public boolean isFinished() {
+        return currentTick >= numberOfTicks;
+    }
+
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public long getGameSeed() {
+        return gameSeed;
+    }
+
+    public long getNumberOfTicks() {
+        return numberOfTicks;
+    }
+}
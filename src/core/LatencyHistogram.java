@@ -0,0 +1,97 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies (nano-seconds) in log-linear buckets:
+ * values below 64 have a bucket each, and every power of 2 above is divided into 32 buckets,
+ * so a percentile is reported within about 3%.
+ * Recording neither locks nor allocates. There must be only one recording thread
+ * (the core thread), while any thread may read the percentiles.
+ */
+class LatencyHistogram {
+
+    private final static int SUB_BUCKET_BITS = 5;
+    private final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;     // 32 buckets per power of 2
+    private final static int NUMBER_OF_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray bucketsCount;
+    private final AtomicLongArray totalCountAndMax;     // [ 0 ]: number of recorded values, [ 1 ]: max value
+
+    public LatencyHistogram() {
+        bucketsCount = new AtomicLongArray( NUMBER_OF_BUCKETS );
+        totalCountAndMax = new AtomicLongArray( 2 );
+    }
+
+    /**
+     * record a latency. (only from the recording thread)
+     */
+    public void record( long latency ) {
+        int bucket = bucketOf( Math.max( latency, 0 ) );
+
+        // a single writer: plain read & ordered write instead of compare-and-set
+        bucketsCount.lazySet( bucket, bucketsCount.get( bucket ) + 1 );
+        totalCountAndMax.lazySet( 0, totalCountAndMax.get( 0 ) + 1 );
+        if( latency > totalCountAndMax.get( 1 ) ) {
+            totalCountAndMax.lazySet( 1, latency );
+        }
+    }
+
+    public long getCount() {
+        return totalCountAndMax.get( 0 );
+    }
+
+    public long getMax() {
+        return totalCountAndMax.get( 1 );
+    }
+
+    /**
+     * get the latency which the specified fraction (0.0 ~ 1.0) of the recorded values doesn't exceed.
+     * (the upper bound of its bucket, at most the max value)
+     */
+    public long getPercentile( double fraction ) {
+        long count = 0;
+        long rank;
+        long total = 0;
+
+        for( int bucket = 0; bucket < NUMBER_OF_BUCKETS; bucket++ ) {
+            total += bucketsCount.get( bucket );
+        }
+        if( total == 0 ) {
+            return 0;
+        }
+
+        rank = Math.max( (long)Math.ceil( fraction * total ), 1 );
+        for( int bucket = 0; bucket < NUMBER_OF_BUCKETS; bucket++ ) {
+            count += bucketsCount.get( bucket );
+            if( count >= rank ) {
+                return Math.min( upperBoundOf( bucket ), getMax() );
+            }
+        }
+
+        return getMax();
+    }
+
+    private static int bucketOf( long value ) {
+        int highestBit = 63 - Long.numberOfLeadingZeros( value );
+        int shift;
+
+        if( highestBit <= SUB_BUCKET_BITS ) {
+            return (int)value;
+        }
+        shift = highestBit - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int)(value >>> shift);
+    }
+
+    private static long upperBoundOf( int bucket ) {
+        int shift;
+        long mantissa;
+
+        if( bucket < 2 * SUB_BUCKET_COUNT ) {
+            return bucket;
+        }
+        shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        mantissa = (bucket & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
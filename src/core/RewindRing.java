@@ -0,0 +1,160 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The checkpoints of the current game: snapshots captured by BouncingBallCore every
+ * captureInterval ticks, into a fixed number of slots. When all slots are used, the oldest
+ * checkpoint is overwritten. Rewinding restores a checkpoint and drops the newer ones.
+ * The slots are allocated up front (see reserve()), and capturing never allocates on the tick:
+ * once a state fills GROWING_OCCUPANCY of the slots' capacity, larger buffers are allocated
+ * by a background thread, and each slot takes one when it's captured into next.
+ * A state which doesn't fit its slot yet is not captured. (counted as a skipped checkpoint)
+ */
+public class RewindRing {
+
+    private final double GROWING_OCCUPANCY = 0.75;     // grow the slots when a state fills 3/4 of them
+    private final int GROWTH_FACTOR = 2;                // grown slots hold twice the state which triggered it
+
+    private final GameSnapshot slots[];
+    private final int captureInterval;      // ticks between two checkpoints
+    private int newestSlot;                 // the slot of the latest checkpoint
+    private int numberOfCheckpoints;
+    private long numberOfSkippedCheckpoints;
+
+    private final AtomicBoolean growing;            // true while the background thread allocates
+    private volatile ByteBuffer grownBuffers[];     // allocated by the background thread, for the slots (null: none)
+    private int grownCapacity;                      // the capacity the slots are growing to (0: not growing)
+
+    public RewindRing( int numberOfSlots, int theCaptureInterval ) {
+        if( numberOfSlots <= 0 ) {
+            throw new IllegalArgumentException( "number of slots: " + numberOfSlots );
+        }
+        if( theCaptureInterval <= 0 ) {
+            throw new IllegalArgumentException( "capture interval: " + theCaptureInterval );
+        }
+
+        slots = new GameSnapshot[ numberOfSlots ];
+        for( int s = 0; s < numberOfSlots; s++ ) {
+            slots[ s ] = new GameSnapshot();
+        }
+        captureInterval = theCaptureInterval;
+        newestSlot = numberOfSlots - 1;
+        numberOfCheckpoints = 0;
+        numberOfSkippedCheckpoints = 0;
+
+        growing = new AtomicBoolean( false );
+        grownBuffers = null;
+        grownCapacity = 0;
+    }
+
+    /**
+     * allocate the slots' buffers for states of up to the specified bytes, now.
+     */
+    public void reserve( int slotCapacity ) {
+        for( int s = 0; s < slots.length; s++ ) {
+            slots[ s ].reserve( slotCapacity );
+        }
+    }
+
+    /**
+     * get the slot for the next checkpoint of the specified size, which is then the latest.
+     * (overwriting the oldest if full) Returns null if the state doesn't fit the slot yet; the checkpoint
+     * is skipped then. (package-private for BouncingBallCore)
+     */
+    GameSnapshot nextSlot( int stateSize ) {
+        int slot = (newestSlot + 1) % slots.length;
+        ByteBuffer buffers[] = grownBuffers;
+
+        if( stateSize > GROWING_OCCUPANCY * slots[ slot ].getCapacity() ) {
+            if( buffers != null && buffers[ slot ] != null && buffers[ slot ].capacity() >= stateSize ) {
+                slots[ slot ].replaceBuffer( buffers[ slot ] );
+                buffers[ slot ] = null;
+            } else {
+                startGrowing( stateSize );
+            }
+        }
+        if( stateSize > slots[ slot ].getCapacity() ) {
+            numberOfSkippedCheckpoints++;
+            return null;
+        }
+
+        newestSlot = slot;
+        numberOfCheckpoints = Math.min( numberOfCheckpoints + 1, slots.length );
+        return slots[ newestSlot ];
+    }
+
+    /**
+     * let the background thread allocate larger buffers for the slots, unless it's already
+     * allocating (or has allocated) buffers large enough for the state.
+     */
+    private void startGrowing( int stateSize ) {
+        final int capacity;
+
+        if( stateSize <= GROWING_OCCUPANCY * grownCapacity || !growing.compareAndSet( false, true ) ) {
+            return;
+        }
+
+        capacity = (int)Math.min( (long)stateSize * GROWTH_FACTOR, Integer.MAX_VALUE );
+        grownCapacity = capacity;
+        Thread allocating = new Thread( "rewind ring growing" ) {
+            @Override
+            public void run() {
+                ByteBuffer buffers[] = new ByteBuffer[ slots.length ];
+                for( int s = 0; s < buffers.length; s++ ) {
+                    buffers[ s ] = GameSnapshot.allocate( capacity );
+                }
+                grownBuffers = buffers;
+                growing.set( false );
+            }
+        };
+        allocating.setDaemon( true );
+        allocating.start();
+    }
+
+    /**
+     * get a checkpoint, counted back from the latest one. (0: the latest)
+     */
+    public GameSnapshot getCheckpoint( int checkpointsBack ) {
+        if( checkpointsBack < 0 || checkpointsBack >= numberOfCheckpoints ) {
+            throw new IllegalArgumentException( "no checkpoint " + checkpointsBack + " back" );
+        }
+
+        return slots[ (newestSlot - checkpointsBack + slots.length) % slots.length ];
+    }
+
+    /**
+     * drop the checkpoints newer than the one counted back from the latest one, which is then the latest.
+     */
+    void dropNewerThan( int checkpointsBack ) {
+        newestSlot = (newestSlot - checkpointsBack + slots.length) % slots.length;
+        numberOfCheckpoints -= checkpointsBack;
+    }
+
+    /**
+     * drop all checkpoints. (the slots are kept for the next ones)
+     */
+    public void clear() {
+        numberOfCheckpoints = 0;
+    }
+
+    public int getNumberOfCheckpoints() {
+        return numberOfCheckpoints;
+    }
+
+    /**
+     * get the number of checkpoints not captured, because the state didn't fit the slot yet.
+     */
+    public long getNumberOfSkippedCheckpoints() {
+        return numberOfSkippedCheckpoints;
+    }
+
+    public int getNumberOfSlots() {
+        return slots.length;
+    }
+
+    public int getCaptureInterval() {
+        return captureInterval;
+    }
+}
@@ -0,0 +1,83 @@
+package core;
+
+/**
+ * Ball spawn rate (balls per second) over the game time, for driving the game as a load generator.
+ * The curve is given by points "seconds:rate", linear between two points
+ * and constant before the first & after the last point.
+ * e.g. "10000" (10000 balls per second from the start), "0:100,60:10000" (ramp up for a minute)
+ */
+public class SpawnRateCurve {
+
+    private final double pointsTime[];      // seconds, ascending
+    private final double pointsRate[];      // balls per second
+
+    public SpawnRateCurve( double thePointsTime[], double thePointsRate[] ) {
+        if( thePointsTime.length == 0 || thePointsTime.length != thePointsRate.length ) {
+            throw new IllegalArgumentException( "a spawn rate curve needs one rate per point, and a point at least" );
+        }
+        for( int p = 1; p < thePointsTime.length; p++ ) {
+            if( thePointsTime[ p ] <= thePointsTime[ p - 1 ] ) {
+                throw new IllegalArgumentException( "the points of a spawn rate curve must be in ascending time" );
+            }
+        }
+        pointsTime = thePointsTime.clone();
+        pointsRate = thePointsRate.clone();
+    }
+
+    /**
+     * parse a curve: comma separated points "seconds:rate", or a single constant "rate".
+     */
+    public static SpawnRateCurve parse( String curve ) {
+        String points[] = curve.trim().split( "\\s*,\\s*" );
+        double pointsTime[] = new double[ points.length ];
+        double pointsRate[] = new double[ points.length ];
+        int separator;
+
+        for( int p = 0; p < points.length; p++ ) {
+            separator = points[ p ].indexOf( ':' );
+            if( separator < 0 ) {
+                pointsTime[ p ] = 0.0;
+                pointsRate[ p ] = Double.parseDouble( points[ p ] );
+            } else {
+                pointsTime[ p ] = Double.parseDouble( points[ p ].substring( 0, separator ).trim() );
+                pointsRate[ p ] = Double.parseDouble( points[ p ].substring( separator + 1 ).trim() );
+            }
+        }
+
+        return new SpawnRateCurve( pointsTime, pointsRate );
+    }
+
+    /**
+     * get the spawn rate (balls per second) at the specified game time (seconds).
+     */
+    public double getRate( double seconds ) {
+        int p = 0;
+
+        if( seconds <= pointsTime[ 0 ] ) {
+            return pointsRate[ 0 ];
+        }
+        while( p + 1 < pointsTime.length && pointsTime[ p + 1 ] <= seconds ) {
+            p++;
+        }
+        if( p + 1 == pointsTime.length ) {
+            return pointsRate[ p ];
+        }
+
+        return pointsRate[ p ] + (pointsRate[ p + 1 ] - pointsRate[ p ])
+                                 * (seconds - pointsTime[ p ]) / (pointsTime[ p + 1 ] - pointsTime[ p ]);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder curve = new StringBuilder();
+
+        for( int p = 0; p < pointsTime.length; p++ ) {
+            if( p > 0 ) {
+                curve.append( ',' );
+            }
+            curve.append( pointsTime[ p ] ).append( ':' ).append( pointsRate[ p ] );
+        }
+
+        return curve.toString();
+    }
+}
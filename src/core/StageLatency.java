@@ -0,0 +1,52 @@
+package core;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Latency percentiles (nano-seconds) of one stage of the tick, as reported by TickStatisticsMXBean.
+ */
+public class StageLatency {
+
+    private final long count;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    @ConstructorProperties( { "count", "p50", "p99", "p999", "max" } )
+    public StageLatency( long count, long p50, long p99, long p999, long max ) {
+        this.count = count;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "count %d, p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us",
+            count, p50 / 1e3, p99 / 1e3, p999 / 1e3, max / 1e3
+        );
+    }
+}
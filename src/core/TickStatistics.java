@@ -0,0 +1,182 @@
+package core;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Latency histograms of the stages of each tick, and the overrun counts,
+ * recorded by the core thread and readable through the platform MBean server.
+ * All histograms are allocated up front (about 1 MB), so recording never allocates.
+ */
+public class TickStatistics implements TickStatisticsMXBean {
+
+    public final static String OBJECT_NAME = "BouncingBall:type=TickStatistics";
+
+    /**
+     * Define the timed stages:
+     * - HUD:         Updating the game playing time
+     * - BALLS_MOVE:  Moving the balls
+     * - INPUT:       Getting the inputs, and setting player unit's direction
+     * - UNIT_MOVE:   Moving player unit
+     * - VIEW_UPDATE: Passing balls' & player unit's states to the view
+     * - LAUNCH:      Launching a ball, if it's time
+     * - COLLISION:   Checking if player unit was hit by any ball
+     * - SNAPSHOT:    Capturing a checkpoint for rewinding, if it's time
+     * - REFRESH:     Refreshing screen
+     * - TICK:        The whole tick (HUD ~ SNAPSHOT)
+     */
+    public enum Stage{ HUD, BALLS_MOVE, INPUT, UNIT_MOVE, VIEW_UPDATE, LAUNCH, COLLISION, SNAPSHOT, REFRESH, TICK }
+
+    private final int TICKS = 0;            // indices of the counters
+    private final int TICK_OVERRUNS = 1;
+    private final int FRAME_OVERRUNS = 2;
+    private final int DROPPED_TICKS = 3;
+    private final int NUMBER_OF_BALLS_BUCKETS = 64;     // two buckets per power of 2 of the number of balls
+
+    private final LatencyHistogram stagesLatency[];
+    private final AtomicLongArray counters;
+    private final LatencyHistogram ticksLatencyByBalls[];     // by bucket of the number of balls
+    private volatile int numberOfBalls;
+
+    public TickStatistics() {
+        stagesLatency = new LatencyHistogram[ Stage.values().length ];
+        for( int s = 0; s < stagesLatency.length; s++ ) {
+            stagesLatency[ s ] = new LatencyHistogram();
+        }
+        counters = new AtomicLongArray( 4 );
+        ticksLatencyByBalls = new LatencyHistogram[ NUMBER_OF_BALLS_BUCKETS ];
+        for( int bucket = 0; bucket < NUMBER_OF_BALLS_BUCKETS; bucket++ ) {
+            ticksLatencyByBalls[ bucket ] = new LatencyHistogram();
+        }
+        numberOfBalls = 0;
+    }
+
+    /**
+     * register this to the platform MBean server.
+     */
+    public void registerMBean() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean( this, new ObjectName( OBJECT_NAME ) );
+    }
+
+    /**
+     * record the latency (nano-second) of a stage. (only from the core thread, as all the record methods)
+     */
+    public void record( Stage stage, long latency ) {
+        stagesLatency[ stage.ordinal() ].record( latency );
+    }
+
+    /**
+     * record a tick, and whether it took longer than the tick time.
+     */
+    public void recordTick( long latency, long tickTime, int theNumberOfBalls ) {
+        ticksLatencyByBalls[ bucketOfBalls( theNumberOfBalls ) ].record( latency );
+        record( Stage.TICK, latency );
+        increase( TICKS, 1 );
+        if( latency > tickTime ) {
+            increase( TICK_OVERRUNS, 1 );
+        }
+        numberOfBalls = theNumberOfBalls;
+    }
+
+    public void recordFrameOverrun() {
+        increase( FRAME_OVERRUNS, 1 );
+    }
+
+    public void recordDroppedTicks( long droppedTicks ) {
+        increase( DROPPED_TICKS, droppedTicks );
+    }
+
+    public StageLatency getStageLatency( Stage stage ) {
+        return toStageLatency( stagesLatency[ stage.ordinal() ] );
+    }
+
+    private StageLatency toStageLatency( LatencyHistogram histogram ) {
+        return new StageLatency(
+            histogram.getCount(), histogram.getPercentile( 0.5 ), histogram.getPercentile( 0.99 ),
+            histogram.getPercentile( 0.999 ), histogram.getMax()
+        );
+    }
+
+    @Override
+    public Map<String, StageLatency> getStageLatencies() {
+        Map<String, StageLatency> stageLatencies = new LinkedHashMap<String, StageLatency>();
+
+        for( Stage stage : Stage.values() ) {
+            stageLatencies.put( stage.name(), getStageLatency( stage ) );
+        }
+
+        return stageLatencies;
+    }
+
+    @Override
+    public Map<String, StageLatency> getTickLatenciesByBalls() {
+        Map<String, StageLatency> tickLatencies = new LinkedHashMap<String, StageLatency>();
+
+        // only the buckets of the numbers of balls which were recorded
+        for( int bucket = 0; bucket < NUMBER_OF_BALLS_BUCKETS; bucket++ ) {
+            if( ticksLatencyByBalls[ bucket ].getCount() > 0 ) {
+                tickLatencies.put(
+                    lowestBallsOf( bucket ) + "-" + (lowestBallsOf( bucket + 1 ) - 1),
+                    toStageLatency( ticksLatencyByBalls[ bucket ] )
+                );
+            }
+        }
+
+        return tickLatencies;
+    }
+
+    @Override
+    public long getNumberOfTicks() {
+        return counters.get( TICKS );
+    }
+
+    @Override
+    public int getNumberOfBalls() {
+        return numberOfBalls;
+    }
+
+    @Override
+    public long getTickOverruns() {
+        return counters.get( TICK_OVERRUNS );
+    }
+
+    @Override
+    public long getFrameOverruns() {
+        return counters.get( FRAME_OVERRUNS );
+    }
+
+    @Override
+    public long getDroppedTicks() {
+        return counters.get( DROPPED_TICKS );
+    }
+
+    /**
+     * get the bucket of a number of balls: 0, 1, then two buckets per power of 2.
+     * (e.g. 4-5, 6-7, 8-11, 12-15, ...)
+     */
+    private int bucketOfBalls( int balls ) {
+        int highestBit;
+
+        if( balls < 2 ) {
+            return Math.max( balls, 0 );
+        }
+        highestBit = 31 - Integer.numberOfLeadingZeros( balls );
+        return 2 * highestBit + ((balls >>> (highestBit - 1)) & 1);
+    }
+
+    private long lowestBallsOf( int bucket ) {
+        if( bucket < 2 ) {
+            return bucket;
+        }
+        return (1L << (bucket / 2)) + (bucket % 2) * (1L << (bucket / 2 - 1));
+    }
+
+    private void increase( int counter, long value ) {
+        counters.lazySet( counter, counters.get( counter ) + value );
+    }
+}
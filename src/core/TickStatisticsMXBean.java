@@ -0,0 +1,39 @@
+package core;
+
+import java.util.Map;
+
+/**
+ * Management interface of the tick statistics, registered as "BouncingBall:type=TickStatistics".
+ */
+public interface TickStatisticsMXBean {
+
+    /**
+     * latencies of each stage of the tick (see TickStatistics.Stage), keyed by stage name.
+     */
+    public Map<String, StageLatency> getStageLatencies();
+
+    /**
+     * latencies of the whole tick by the number of balls, keyed by the range of the number of balls.
+     * (e.g. "1024-1535"; only the ranges of recorded ticks)
+     */
+    public Map<String, StageLatency> getTickLatenciesByBalls();
+
+    public long getNumberOfTicks();
+
+    public int getNumberOfBalls();
+
+    /**
+     * number of ticks whose simulation took longer than a tick time.
+     */
+    public long getTickOverruns();
+
+    /**
+     * number of loop passes whose simulation & refreshing took longer than a tick time.
+     */
+    public long getFrameOverruns();
+
+    /**
+     * number of ticks dropped since they could not be caught up.
+     */
+    public long getDroppedTicks();
+}
@@ -1,337 +1,547 @@
 package domain;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * balls in this game.
+ * The settings (radius, launching, growth, ...) & the random source are kept here;
+ * the balls themselves are stored by a subclass, which implements every per-ball method:
+ * - HeapBalls:    Java arrays on the heap (with the spatial grid & ball-to-ball collisions)
+ * - OffHeapBalls: one direct buffer outside the heap, for stress runs with millions of balls
+ * The same seed launches the same balls in both.
  */
-public class Balls {
-    
-    private final int DEFAULT_SIZE_OF_BALLS_ARRAY = 50;  // default max ball number is 50
+public abstract class Balls {
+
+    private final double DEFAULT_GROWTH_FACTOR = 2.0;    // balls' arrays are doubled when full
     private final int DEFAULT_BALLS_RADIUS = 8;          // default radius is 8
-    private final double LAUNCH_POSITION_X = 320.0;      // x position of balls launching is 320
-    private final double LAUNCH_POSITION_Y = 30.0;       // y position of balls launching is 30
+    private final int DEFAULT_NUMBER_OF_INITIAL_BALLS = 5;     // 5 balls are launched when a game starts
+    private final double DEFAULT_LAUNCH_POSITION_X = 320.0;   // x position of balls launching is 320
+    private final double DEFAULT_LAUNCH_POSITION_Y = 30.0;    // y position of balls launching is 30
     private final double BALLS_MIN_SPEED_IN_ONE_DIRECT = 1.0;  // minimum speed is 1.0
     private final double BALLS_MAX_SPEED_IN_ONE_DIRECT = 3.0;  // max speed is 3.0
     private final double BALLS_SPEED_RANGE = BALLS_MAX_SPEED_IN_ONE_DIRECT - BALLS_MIN_SPEED_IN_ONE_DIRECT;
-   
-    private int numberOfBalls;          // current balls number in this game
-    private int sizeOfBallsArray;       // current max balls number
+    private final int DEFAULT_PARALLEL_MOVING_THRESHOLD = 65536;  // move balls in parallel from 65536 balls on
+    private final int STATE_HEADER_SIZE = 64;                     // bytes of the state before the balls
+    private final int STATE_BYTES_PER_BALL = 6 * 8 + 4 + 4 + 1;   // bytes of the state per ball
+    private final static Color BORDER_COLOR_PALETTE[] = { Color.BLACK, Color.RED, Color.GREEN, Color.BLUE };
+    private final static int BORDER_COLOR_PALETTE_RGB[] = {
+        Color.BLACK.getRGB(), Color.RED.getRGB(), Color.GREEN.getRGB(), Color.BLUE.getRGB()
+    };
+
     private int radius;
     private int diameter;
-    private double ballsCenterX[];     // x position of each balls' center
-    private double ballsCenterY[];     // y position of each balls' center
-    private double ballsSpeedX[];      // the x-axis speed of each balls
-    private double ballsSpeedY[];      // the y-axis speed of each balls
-    private Color ballsColor[];         // color of each balls
-    private Color ballsBorderColor[];   // color of each balls' border
-   
-    public Balls() {
-        initialize();
-    }
-   
-    public Balls(
-        int theNumberOfBalls, int theSizeOfBallsArray, int theRadius, int theDiameter,
-        double[] ballsCenterX, double[] ballsCenterY,
-        double[] ballsSpeedX, double[] ballsSpeedY,
-        Color[] theBallsColor, Color[] theBallsBorderColor
-    ) {
-        initialize();
-       
-        numberOfBalls = theNumberOfBalls;
-        sizeOfBallsArray = theSizeOfBallsArray;
-        radius = theRadius;
-        diameter = theDiameter;
-   
-        for( int i = 0; i < theNumberOfBalls; i++ ) {
-            this.ballsCenterX[ i ] = ballsCenterX[ i ];
-            this.ballsCenterY[ i ] = ballsCenterY[ i ];
-            this.ballsSpeedX[ i ] = ballsSpeedX[ i ];
-            this.ballsSpeedY[ i ] = ballsSpeedY[ i ];
-            ballsColor[ i ] = theBallsColor[ i ];
-            ballsBorderColor[ i ] = theBallsBorderColor[ i ];
-        }
-    }
-   
-    public Object clone() {
-        Balls copy = new Balls(
-            numberOfBalls, sizeOfBallsArray, radius, diameter,
-            ballsCenterX, ballsCenterY, ballsSpeedX, ballsSpeedY,
-            ballsColor, ballsBorderColor
-        );
-       
-        return copy;
+
+    private int ballsTimeToLive;            // number of moves a ball lives. 0: balls never despawn
+    private int numberOfInitialBalls;       // number of balls launched when a game starts
+    private double launchPositionX;         // where balls are launched
+    private double launchPositionY;
+    private double growthFactor;            // the factor by which balls' arrays grow when full
+    private boolean shrinkingEnabled;       // true if balls' arrays shrink when mostly empty
+
+    private SplitMix64 random;              // random source of this balls only (same seed, same balls)
+
+    private int parallelMovingThreshold;    // the number of balls from which balls are moved in parallel
+    private boolean ballsCollisionEnabled;  // true if balls bounce off each other
+
+    Balls() {
+        this( ThreadLocalRandom.current().nextLong() );
     }
 
     /**
-     * initialize balls in this game.
+     * balls whose speeds, directions & colors are generated from the specified random seed.
      */
-    private void initialize() {
-        numberOfBalls = 0;
-        sizeOfBallsArray = DEFAULT_SIZE_OF_BALLS_ARRAY;
+    Balls( long randomSeed ) {
         radius = DEFAULT_BALLS_RADIUS;
         diameter = radius * 2;
-        ballsCenterX = new double[ sizeOfBallsArray ];
-        ballsCenterY = new double[ sizeOfBallsArray ];
-        ballsSpeedX = new double[ sizeOfBallsArray ];
-        ballsSpeedY = new double[ sizeOfBallsArray ];
-        ballsColor = new Color[ sizeOfBallsArray ];
-        ballsBorderColor = new Color[ sizeOfBallsArray ];
+
+        ballsTimeToLive = 0;
+        numberOfInitialBalls = DEFAULT_NUMBER_OF_INITIAL_BALLS;
+        launchPositionX = DEFAULT_LAUNCH_POSITION_X;
+        launchPositionY = DEFAULT_LAUNCH_POSITION_Y;
+        growthFactor = DEFAULT_GROWTH_FACTOR;
+        shrinkingEnabled = false;
+
+        random = new SplitMix64( randomSeed );
+
+        parallelMovingThreshold = DEFAULT_PARALLEL_MOVING_THRESHOLD;
+        ballsCollisionEnabled = false;
     }
-   
+
     /**
-     * set balls configuration while first launching.
+     * a copy of the balls & settings, continuing the same random stream.
+     */
+    public abstract Object clone();
+
+    /**
+     * copy the settings & the random source's position into the specified balls. (for clone())
+     */
+    void copySettingsTo( Balls copy ) {
+        copy.radius = radius;
+        copy.diameter = diameter;
+        copy.ballsTimeToLive = ballsTimeToLive;
+        copy.numberOfInitialBalls = numberOfInitialBalls;
+        copy.launchPositionX = launchPositionX;
+        copy.launchPositionY = launchPositionY;
+        copy.growthFactor = growthFactor;
+        copy.shrinkingEnabled = shrinkingEnabled;
+        copy.ballsCollisionEnabled = ballsCollisionEnabled;
+        copy.parallelMovingThreshold = parallelMovingThreshold;
+        copy.random = new SplitMix64( random.getSeed() );      // the same random stream, from where this is
+    }
+
+    /**
+     * get the number of bytes writeState() writes for the current balls.
+     */
+    public int getStateSize() {
+        return getStateSize( getNumberOfBalls() );
+    }
+
+    /**
+     * get the number of bytes writeState() writes for the specified number of balls.
      */
-    public void ballsInitialLaunch() {
-        numberOfBalls = 5;
-        for( int i = 0; i < numberOfBalls; i++ ) {
-            ballsCenterX[ i ] = LAUNCH_POSITION_X;
-            ballsCenterY[ i ] = LAUNCH_POSITION_Y;
-            ballsSpeedX[ i ] = Math.random() * BALLS_SPEED_RANGE + BALLS_MIN_SPEED_IN_ONE_DIRECT;
-            ballsSpeedY[ i ] = Math.random() * BALLS_SPEED_RANGE + BALLS_MIN_SPEED_IN_ONE_DIRECT;
-            ballsColor[ i ] = randomBallsColor();
-            ballsBorderColor[ i ] = randomBallsBorderColor();
-            randomBallsDirectionAndSpeed( i );
+    public int getStateSize( int theNumberOfBalls ) {
+        return STATE_HEADER_SIZE + theNumberOfBalls * STATE_BYTES_PER_BALL;
+    }
+
+    /**
+     * write the state of the balls (including the random source) at the buffer's position,
+     * in the buffer's byte order. The settings (growth, ...) are not written.
+     * State format:
+     * - header: radius, diameter, time to live, number of initial balls (int),
+     *           launch position x, y (double), random source's seed (long), number of balls (int),
+     *           (reserved int), largest speed, last time scale (double)
+     * - balls:  center x, center y, previous center x, previous center y, speed x, speed y (double[]),
+     *           color (int[]), remaining lifetime (int[]), border color index (byte[])
+     */
+    public abstract void writeState( ByteBuffer buffer );
+
+    /**
+     * read the state written by writeState() from the buffer's position, replacing the current balls.
+     */
+    public abstract void readState( ByteBuffer buffer );
+
+    /**
+     * write the header of the state. (the subclass writes its own balls after it)
+     */
+    void writeStateHeader( ByteBuffer buffer, int theNumberOfBalls, double theLargestBallsSpeed,
+                           double theLastTimeScale ) {
+        buffer.putInt( radius );
+        buffer.putInt( diameter );
+        buffer.putInt( ballsTimeToLive );
+        buffer.putInt( numberOfInitialBalls );
+        buffer.putDouble( launchPositionX );
+        buffer.putDouble( launchPositionY );
+        buffer.putLong( random.getSeed() );
+        buffer.putInt( theNumberOfBalls );
+        buffer.putInt( 0 );
+        buffer.putDouble( theLargestBallsSpeed );
+        buffer.putDouble( theLastTimeScale );
+    }
+
+    /**
+     * read the header of the state, up to the number of balls, which is returned.
+     * (the largest speed & last time scale are left to be read by the caller)
+     */
+    int readStateHeader( ByteBuffer buffer ) {
+        int theNumberOfBalls;
+
+        radius = buffer.getInt();
+        diameter = buffer.getInt();
+        ballsTimeToLive = buffer.getInt();
+        numberOfInitialBalls = buffer.getInt();
+        launchPositionX = buffer.getDouble();
+        launchPositionY = buffer.getDouble();
+        random.setSeed( buffer.getLong() );
+        theNumberOfBalls = buffer.getInt();
+        buffer.getInt();
+        if( theNumberOfBalls < 0 ) {
+            throw new IllegalArgumentException( "number of balls: " + theNumberOfBalls );
         }
+
+        return theNumberOfBalls;
     }
-   
+
+    /**
+     * set balls configuration while first launching.
+     */
+    public abstract void ballsInitialLaunch();
+
     /**
      * move each balls.
      */
     public void ballsMove( int boundaryX, int boundaryY ) {
-        for( int i = 0; i < numberOfBalls; i++ ) {
-            ballsCenterX[ i ] = ballsCenterX[ i ] + ballsSpeedX[ i ];
-            ballsCenterY[ i ] = ballsCenterY[ i ] + ballsSpeedY[ i ];
-        }
-       
-        checkIfTheballsHitTheWallAndAdjust( boundaryX, boundaryY );
-    }
-   
-    /**
-     *   Check if there's any ball hit the wall (the boundary of game window),
-     *   and adjust the direction of the ball.
-     *   For example:
-     *   +----------+       +----------+             +----------+
-     *   |          |       |          |             |        o |
-     *   |          |  -->  |         o|      -->    |          |
-     *   |        o |       |          |             |          |
-     *   +----------+       +----------+             +----------+
-     *   speed: x = 2.0     speed: x = 2.0           speed: x = -2.0
-     *          y = -2.0           y = -2.0                 y = -2.0
-     *                     (Hit the right boundary)
-     */
-    private void checkIfTheballsHitTheWallAndAdjust( int boundaryX, int boundaryY ) {
-        double reboundDistance;
-        double ballsPositionX1;
-        double ballsPositionY1;
-        double ballsPositionX2;
-        double ballsPositionY2;
-       
-        for( int i = 0; i < numberOfBalls; i++ ) {
-            /* check x vector */
-            ballsPositionX1 = ballsCenterX[ i ] - (double)radius;
-            ballsPositionX2 = ballsCenterX[ i ] + (double)radius;
-            if( ballsPositionX1 < 0 ) {
-                reboundDistance = 0 - ballsPositionX1;
-                ballsCenterX[ i ] = (double)radius + reboundDistance;
-                ballsSpeedX[ i ] = ballsSpeedX[ i ] * (-1.0);
-            } else if( ballsPositionX2 > boundaryX ) {
-                reboundDistance = ballsPositionX2 - boundaryX;
-                ballsCenterX[ i ] = boundaryX - (double)radius - reboundDistance;
-                ballsSpeedX[ i ] = ballsSpeedX[ i ] * (-1.0);
-            }
-           
-            /* check y vector */
-            ballsPositionY1 = ballsCenterY[ i ] - (double)radius;
-            ballsPositionY2 = ballsCenterY[ i ] + (double)radius;
-            if( ballsPositionY1 < 0 ) {
-                reboundDistance = 0 - ballsPositionY1;
-                ballsCenterY[ i ] = (double)radius + reboundDistance;
-                ballsSpeedY[ i ] = ballsSpeedY[ i ] * (-1.0);
-            } else if( ballsPositionY2 > boundaryY ) {
-                reboundDistance = ballsPositionY2 - boundaryY;
-                ballsCenterY[ i ] = boundaryY - (double)radius - reboundDistance;
-                ballsSpeedY[ i ] = ballsSpeedY[ i ] * (-1.0);
-            }
-        }
+        ballsMove( boundaryX, boundaryY, 1.0 );
     }
-    
+
+    /**
+     * move each balls by their speed multiplied by the specified time scale.
+     * (the speeds are defined per 1/60 second)
+     */
+    public abstract void ballsMove( int boundaryX, int boundaryY, double timeScale );
+
+    /**
+     * remove a ball, by moving the last ball into its index.
+     * (so the order of balls changes)
+     */
+    public abstract void removeBall( int index );
+
     /**
      * launch a new ball in this game.
      */
-    public void launchABall() {
-        if( numberOfBalls >= sizeOfBallsArray ) {
-            increaseSizeOfBallsArray();
-        }
-       
-        ballsCenterX[ numberOfBalls ] = LAUNCH_POSITION_X;
-        ballsCenterY[ numberOfBalls ] = LAUNCH_POSITION_Y;
-        ballsSpeedX[ numberOfBalls ] = Math.random() * BALLS_SPEED_RANGE + BALLS_MIN_SPEED_IN_ONE_DIRECT;
-        ballsSpeedY[ numberOfBalls ] = Math.random() * BALLS_SPEED_RANGE + BALLS_MIN_SPEED_IN_ONE_DIRECT;
-        ballsColor[ numberOfBalls ] = randomBallsColor();
-        ballsBorderColor[ numberOfBalls ] = randomBallsBorderColor();
-        randomBallsDirectionAndSpeed( numberOfBalls );
-       
-        numberOfBalls++;
-    }
-   
+    public abstract void launchABall();
+
     /**
-     * Randomly generate a ball's border color.
+     * Check if any ball overlaps the circle of the specified center and radius.
      */
-    private Color randomBallsBorderColor() {
-        int colorSwitch = (int)(Math.random() * 4.0); // values: 0, 1, 2, 3
-        Color colorToReturn;
-       
-        switch( colorSwitch ) {
-            case 0:
-                colorToReturn = Color.BLACK;
-                break;
-            case 1:
-                colorToReturn = Color.RED;
-                break;
-            case 2:
-                colorToReturn = Color.GREEN;
-                break;
-            case 3:
-                colorToReturn = Color.BLUE;
-                break;
-            default:
-                colorToReturn = Color.BLACK;
-                break;
+    public abstract boolean isAnyBallCollidedWith( double centerX, double centerY, int theRadius );
+
+    /**
+     * Check if any ball hit the circle of the specified radius, moving from (previousCenterX, previousCenterY)
+     * to (centerX, centerY) during the last move, at any time of the move (not only at its end).
+     */
+    public abstract boolean isAnyBallSweptCollidedWith(
+        double previousCenterX, double previousCenterY, double centerX, double centerY, int theRadius
+    );
+
+    /**
+     * The same as isAnyBallSweptCollidedWith(), by checking every ball.
+     */
+    public abstract boolean isAnyBallSweptOverlapping(
+        double previousCenterX, double previousCenterY, double centerX, double centerY, int theRadius
+    );
+
+    /**
+     * Check if any ball overlaps the circle of the specified center and radius, by checking every ball.
+     */
+    public abstract boolean isAnyBallOverlapping( double centerX, double centerY, int theRadius );
+
+    /**
+     * Check if a ball moved from (ballsX0, ballsY0) to (ballsX1, ballsY1) with the speed after the move,
+     * in a window of the specified boundary, came closer than the specified distance (squared) to a point
+     * moving from (x0, y0) to (x1, y1) during the same move. (time-of-impact of two moving circles)
+     * A ball which rebounded from a wall moves straight beyond the wall in "unfolded" space,
+     * where the point is mirrored by the wall after the rebound time instead.
+     * So the move is split at the rebound times into pieces of straight relative motion,
+     * and the closest approach of each piece is checked.
+     * (only the first rebound on each axis is unfolded)
+     */
+    static boolean isSweptHit(
+        double r, int boundaryX, int boundaryY, double timeScale,
+        double ballsX0, double ballsY0, double ballsX1, double ballsY1, double speedX, double speedY,
+        double x0, double y0, double x1, double y1, double distanceSquare
+    ) {
+        double wallX = 0.0;
+        double wallY = 0.0;
+        double reboundTimeX = 1.0;      // 1.0: not rebounded during the move
+        double reboundTimeY = 1.0;
+        double time1;
+        double time2;
+
+        // the same arithmetic as the move: if the ball didn't end where its speed leads, it rebounded
+        if( ballsX1 != ballsX0 && ballsX0 + speedX * timeScale != ballsX1 ) {
+            ballsX1 = ballsX0 - speedX * timeScale;
+            wallX = (ballsX1 < ballsX0) ? r : (double)boundaryX - r;
+            reboundTimeX = Math.min( Math.max( (wallX - ballsX0) / (ballsX1 - ballsX0), 0.0 ), 1.0 );
         }
-       
-        return colorToReturn;
-    }
-   
-    /**
-     * Randomly generate a ball's color.
-     */
-    private Color randomBallsColor() {
-        int red = (int)(Math.random() * 256.0); // 0 <= color < 256
-        int green = (int)(Math.random() * 256.0); // 0 <= color < 256
-        int blue = (int)(Math.random() * 256.0); // 0 <= color < 256
-       
-        return new Color( red, green, blue );
-    }
-   
-    /**
-     * randomly generate ball's x-axis and y-axis speed.
-     */
-    private void randomBallsDirectionAndSpeed( int ballIndex ) {
-        int quadrant = (int)(Math.random() * 2.0 + 1.0);    // values: 1, 2
-       
-        if( ballsSpeedY[ ballIndex ] < 0.0 )
-            ballsSpeedY[ ballIndex ] = ballsSpeedY[ ballIndex ] * (-1.0); // make y vector speed positive
-       
-        switch( quadrant ) {
-            case 1:
-                if( ballsSpeedX[ ballIndex ] < 0.0 )
-                    ballsSpeedX[ ballIndex ] = ballsSpeedX[ ballIndex ] * (-1.0); // make x vector speed positive
-                break;
-            case 2:
-                if( ballsSpeedX[ ballIndex ] > 0.0 )
-                    ballsSpeedX[ ballIndex ] = ballsSpeedX[ ballIndex ] * (-1.0); // make x vector speed negative
-                break;
-            default:
-                break;
+        if( ballsY1 != ballsY0 && ballsY0 + speedY * timeScale != ballsY1 ) {
+            ballsY1 = ballsY0 - speedY * timeScale;
+            wallY = (ballsY1 < ballsY0) ? r : (double)boundaryY - r;
+            reboundTimeY = Math.min( Math.max( (wallY - ballsY0) / (ballsY1 - ballsY0), 0.0 ), 1.0 );
         }
+
+        time1 = Math.min( reboundTimeX, reboundTimeY );
+        time2 = Math.max( reboundTimeX, reboundTimeY );
+
+        return isPieceWithin( ballsX0, ballsY0, ballsX1, ballsY1, x0, y0, x1, y1,
+                    wallX, wallY, reboundTimeX, reboundTimeY, 0.0, time1, distanceSquare )
+            || isPieceWithin( ballsX0, ballsY0, ballsX1, ballsY1, x0, y0, x1, y1,
+                    wallX, wallY, reboundTimeX, reboundTimeY, time1, time2, distanceSquare )
+            || isPieceWithin( ballsX0, ballsY0, ballsX1, ballsY1, x0, y0, x1, y1,
+                    wallX, wallY, reboundTimeX, reboundTimeY, time2, 1.0, distanceSquare );
     }
-    
-    /**
-     * double the size of ball's array
-     */
-    private void increaseSizeOfBallsArray() {
-        double oldsizeOfBallsArray = sizeOfBallsArray;
-        double oldBallsCenterX[] = new double[ sizeOfBallsArray ];
-        double oldBallsCenterY[] = new double[ sizeOfBallsArray ];
-        double oldBallsSpeedX[] = new double[ sizeOfBallsArray ];
-        double oldBallsSpeedY[] = new double[ sizeOfBallsArray ];
-        Color oldBallsColor[] = new Color[ sizeOfBallsArray ];
-        Color oldBallsBorderColor[] = new Color[ sizeOfBallsArray ];
-        
-        for( int i = 0; i < sizeOfBallsArray; i++ ) {
-            oldBallsCenterX[ i ] = ballsCenterX[ i ];
-            oldBallsCenterY[ i ] = ballsCenterY[ i ];
-            oldBallsSpeedX[ i ] = ballsSpeedX[ i ];
-            oldBallsSpeedY[ i ] = ballsSpeedY[ i ];
-            oldBallsColor[ i ] = ballsColor[ i ];
-            oldBallsBorderColor[ i ] = ballsBorderColor[ i ];
-        }
-        
-        sizeOfBallsArray *= 2;
-        ballsCenterX = new double[ sizeOfBallsArray ];
-        ballsCenterY = new double[ sizeOfBallsArray ];
-        ballsSpeedX = new double[ sizeOfBallsArray ];
-        ballsSpeedY = new double[ sizeOfBallsArray ];
-        ballsColor = new Color[ sizeOfBallsArray ];
-        ballsBorderColor = new Color[ sizeOfBallsArray ];
-        
-        for( int i = 0; i < oldsizeOfBallsArray; i++ ) {
-            ballsCenterX[ i ] = oldBallsCenterX[ i ];
-            ballsCenterY[ i ] = oldBallsCenterY[ i ];
-            ballsSpeedX[ i ] = oldBallsSpeedX[ i ];
-            ballsSpeedY[ i ] = oldBallsSpeedY[ i ];
-            ballsColor[ i ] = oldBallsColor[ i ];
-            ballsBorderColor[ i ] = oldBallsBorderColor[ i ];
+
+    /**
+     * check the closest approach between the time beginTime and endTime, of a piece of the move.
+     * The relative position is (a + b * time), linear in the piece.
+     */
+    private static boolean isPieceWithin(
+        double ballsX0, double ballsY0, double ballsX1, double ballsY1,
+        double x0, double y0, double x1, double y1,
+        double wallX, double wallY, double reboundTimeX, double reboundTimeY,
+        double beginTime, double endTime, double distanceSquare
+    ) {
+        double ax;
+        double bx;
+        double ay;
+        double by;
+        double bb;
+        double time;
+        double distanceX;
+        double distanceY;
+
+        if( endTime < beginTime || (endTime == beginTime && beginTime > 0.0) ) {
+            return false;   // empty piece
         }
-    }
-   
-    public Color getBallsBorderColor( int index ) {
-        if( index < 0 || index >= numberOfBalls ) {
-            return Color.BLACK;
+
+        // after the rebound, compare with the point mirrored by the wall
+        if( beginTime < reboundTimeX ) {
+            ax = ballsX0 - x0;
+            bx = (ballsX1 - ballsX0) - (x1 - x0);
         } else {
-            return ballsBorderColor[ index ];
+            ax = ballsX0 + x0 - 2.0 * wallX;
+            bx = (ballsX1 - ballsX0) + (x1 - x0);
         }
-    }
-   
-    public Color getBallsColor( int index ) {
-        if( index < 0 || index >= numberOfBalls ) {
-            return Color.BLACK;
+        if( beginTime < reboundTimeY ) {
+            ay = ballsY0 - y0;
+            by = (ballsY1 - ballsY0) - (y1 - y0);
         } else {
-            return ballsColor[ index ];
+            ay = ballsY0 + y0 - 2.0 * wallY;
+            by = (ballsY1 - ballsY0) + (y1 - y0);
         }
+
+        bb = bx * bx + by * by;
+        time = (bb > 0.0) ? -(ax * bx + ay * by) / bb : beginTime;
+        time = Math.min( Math.max( time, beginTime ), endTime );
+        distanceX = ax + bx * time;
+        distanceY = ay + by * time;
+
+        return (distanceX * distanceX + distanceY * distanceY) < distanceSquare;
     }
-   
-    public double getBallsCenterX( int index ) {
-        if( index < 0 || index >= numberOfBalls ) {
-            return 0.0;
-        } else {
-            return ballsCenterX[ index ];
-        }
+
+    /**
+     * Randomly generate a ball's speed in one direction. (positive)
+     * The random methods draw from the random source of this balls, so the same seed launches the same balls.
+     */
+    double randomBallsSpeed() {
+        return random.nextDouble() * BALLS_SPEED_RANGE + BALLS_MIN_SPEED_IN_ONE_DIRECT;
     }
-   
-    public double getballsCenterY( int index ) {
-        if( index < 0 || index >= numberOfBalls ) {
-            return 0.0;
-        } else {
-            return ballsCenterY[ index ];
-        }
+
+    /**
+     * Randomly generate the quadrant of a ball's direction.
+     * (1: x-axis speed positive, 2: negative; y-axis speed is always positive)
+     */
+    int randomBallsQuadrant() {
+        return (int)(random.nextDouble() * 2.0 + 1.0);    // values: 1, 2
     }
 
-    public int getBallsPositionX1( int index ) {
-        if( index < 0 || index >= numberOfBalls ) {
-            return 0;
-        }
-       
-        return (int)(ballsCenterX[ index ] - (double)radius);
+    /**
+     * Randomly generate a ball's border color.
+     * (index of BORDER_COLOR_PALETTE: black, red, green or blue)
+     */
+    byte randomBallsBorderColor() {
+        int colorSwitch = (int)(random.nextDouble() * 4.0); // values: 0, 1, 2, 3
+
+        return (byte)colorSwitch;
     }
-   
-    public int getBallsPositionY1( int index ) {
-        if( index < 0 || index >= numberOfBalls )
-            return 0;
-       
-        return (int)(ballsCenterY[ index ] - (double)radius);
+
+    /**
+     * Randomly generate a ball's color. (packed ARGB)
+     */
+    int randomBallsColor() {
+        int red = (int)(random.nextDouble() * 256.0); // 0 <= color < 256
+        int green = (int)(random.nextDouble() * 256.0); // 0 <= color < 256
+        int blue = (int)(random.nextDouble() * 256.0); // 0 <= color < 256
+
+        return 0xff000000 | (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * copy the previous & current centers of all balls into the specified arrays,
+     * which have to be able to hold getNumberOfBalls() balls.
+     */
+    public abstract void copyPositionsTo(
+        double[] previousCenterX, double[] previousCenterY, double[] centerX, double[] centerY
+    );
+
+    /**
+     * copy the colors (packed ARGB) & border color indices of all balls into the specified arrays,
+     * which have to be able to hold getNumberOfBalls() balls.
+     */
+    public abstract void copyColorsTo( int[] colorRGB, byte[] borderColorIndex );
+
+    /**
+     * get the border color of the specified index of the border color palette. (packed ARGB)
+     */
+    public static int getBorderColorRGB( int borderColorIndex ) {
+        return BORDER_COLOR_PALETTE_RGB[ borderColorIndex ];
     }
-   
+
+    /**
+     * get the border color of the specified index of the border color palette.
+     */
+    static Color getBorderColor( int borderColorIndex ) {
+        return BORDER_COLOR_PALETTE[ borderColorIndex ];
+    }
+
+    /**
+     * get the index of a border color in BORDER_COLOR_PALETTE. (black, if it's not in the palette)
+     */
+    static byte borderColorIndexOf( Color borderColor ) {
+        for( int c = 0; c < BORDER_COLOR_PALETTE.length; c++ ) {
+            if( BORDER_COLOR_PALETTE[ c ].equals( borderColor ) ) {
+                return (byte)c;
+            }
+        }
+
+        return 0;
+    }
+
+    public abstract Color getBallsBorderColor( int index );
+
+    public abstract int getBallsBorderColorIndex( int index );
+
+    /**
+     * get the color of a ball. (a new Color object; use getBallsColorRGB() while drawing)
+     */
+    public abstract Color getBallsColor( int index );
+
+    /**
+     * get the color of a ball. (packed ARGB)
+     */
+    public abstract int getBallsColorRGB( int index );
+
+    public abstract double getBallsCenterX( int index );
+
+    public abstract double getballsCenterY( int index );
+
+    public abstract int getBallsPositionX1( int index );
+
+    public abstract int getBallsPositionY1( int index );
+
+    /**
+     * get the x position of a ball, interpolated between its previous and current position.
+     * (alpha: 0.0 is the previous position, 1.0 is the current position)
+     */
+    public abstract int getBallsPositionX1( int index, double alpha );
+
+    /**
+     * get the y position of a ball, interpolated between its previous and current position.
+     * (alpha: 0.0 is the previous position, 1.0 is the current position)
+     */
+    public abstract int getBallsPositionY1( int index, double alpha );
+
     public int getDiameter() {
         return diameter;
     }
-   
-    public int getNumberOfBalls() {
-        return numberOfBalls;
-    }
-   
+
     public int getRadius() {
         return radius;
     }
+
+    /**
+     * set the radius & diameter of the balls. (for HeapBalls' constructor of given balls)
+     */
+    void setRadiusAndDiameter( int theRadius, int theDiameter ) {
+        radius = theRadius;
+        diameter = theDiameter;
+    }
+
+    public boolean isBallsCollisionEnabled() {
+        return ballsCollisionEnabled;
+    }
+
+    /**
+     * set if balls bounce off each other (elastic collisions), instead of passing through.
+     * (ignored by OffHeapBalls)
+     */
+    public void setBallsCollisionEnabled( boolean ballsCollisionEnabled ) {
+        this.ballsCollisionEnabled = ballsCollisionEnabled;
+    }
+
+    public int getParallelMovingThreshold() {
+        return parallelMovingThreshold;
+    }
+
+    /**
+     * set the number of balls from which balls are moved in parallel.
+     * (Integer.MAX_VALUE: never move in parallel)
+     */
+    public void setParallelMovingThreshold( int parallelMovingThreshold ) {
+        this.parallelMovingThreshold = parallelMovingThreshold;
+    }
+
+    /**
+     * restart the random source from the specified seed.
+     */
+    public void setRandomSeed( long randomSeed ) {
+        random.setSeed( randomSeed );
+    }
+
+    public int getBallsTimeToLive() {
+        return ballsTimeToLive;
+    }
+
+    /**
+     * set the number of moves a newly launched ball lives. (0: balls never despawn)
+     * Balls launched before keep their lifetime.
+     */
+    public void setBallsTimeToLive( int ballsTimeToLive ) {
+        this.ballsTimeToLive = ballsTimeToLive;
+    }
+
+    public int getNumberOfInitialBalls() {
+        return numberOfInitialBalls;
+    }
+
+    /**
+     * set the number of balls launched when a game starts. (5 by default)
+     */
+    public void setNumberOfInitialBalls( int numberOfInitialBalls ) {
+        this.numberOfInitialBalls = numberOfInitialBalls;
+    }
+
+    public double getLaunchPositionX() {
+        return launchPositionX;
+    }
+
+    public double getLaunchPositionY() {
+        return launchPositionY;
+    }
+
+    /**
+     * set where balls are launched. ((320, 30) by default: the top center of a 640 x 480 window)
+     */
+    public void setLaunchPosition( double launchPositionX, double launchPositionY ) {
+        this.launchPositionX = launchPositionX;
+        this.launchPositionY = launchPositionY;
+    }
+
+    /**
+     * grow the balls' arrays to hold at least the specified number of balls,
+     * so launching up to that many balls doesn't grow them again.
+     */
+    public abstract void reserveBalls( int size );
+
+    public double getGrowthFactor() {
+        return growthFactor;
+    }
+
+    /**
+     * set the factor by which balls' arrays grow when full. (e.g. 1.5, 2.0; greater than 1.0,
+     * otherwise the arrays would grow by one ball at a time, copying all balls at every launch)
+     */
+    public void setGrowthFactor( double growthFactor ) {
+        if( Double.isNaN( growthFactor ) || growthFactor <= 1.0 ) {
+            throw new IllegalArgumentException( "growth factor: " + growthFactor );
+        }
+
+        this.growthFactor = growthFactor;
+    }
+
+    public boolean isShrinkingEnabled() {
+        return shrinkingEnabled;
+    }
+
+    /**
+     * set if balls' arrays are halved when less than a quarter of them is used.
+     */
+    public void setShrinkingEnabled( boolean shrinkingEnabled ) {
+        this.shrinkingEnabled = shrinkingEnabled;
+    }
+
+    public abstract int getSizeOfBallsArray();
+
+    public abstract int getNumberOfBalls();
 }
@@ -0,0 +1,186 @@
+package domain;
+
+/**
+ * Uniform spatial hash grid over the balls' centers.
+ * The game window is divided into square cells, and the ball indices are
+ * bucketed by cell (counting sort), so a collision query only has to look
+ * at the balls in the cells around the query point.
+ * The number of cells is bounded by the number of balls: in a large game window,
+ * the cells are enlarged (doubled) until there are at most MAX_CELLS_PER_BALL per ball.
+ */
+class BallsSpatialGrid {
+
+    private final int MAX_CELLS_PER_BALL = 4;
+    private final int MIN_MAX_CELLS = 64;       // the bound of the number of cells for few balls
+
+    private int cellSize;           // width & height of a cell
+    private int columns;            // number of cells in x-axis
+    private int rows;               // number of cells in y-axis
+    private int cellStart[];        // index into cellBalls where each cell begins (size: cells + 1)
+    private int cellBalls[];        // ball indices, ordered by cell
+    private int ballsCell[];        // the cell of each ball
+
+    public BallsSpatialGrid() {
+        cellSize = 1;
+        columns = 1;
+        rows = 1;
+        cellStart = new int[ 2 ];
+        cellBalls = new int[ 0 ];
+        ballsCell = new int[ 0 ];
+    }
+
+    /**
+     * rebuild the grid from the current balls' centers.
+     */
+    public void rebuild(
+        double[] centerX, double[] centerY, int numberOfBalls,
+        int boundaryX, int boundaryY, int theCellSize
+    ) {
+        long maxNumberOfCells = Math.max( (long)MAX_CELLS_PER_BALL * numberOfBalls, MIN_MAX_CELLS );
+        int numberOfCells;
+        int cell;
+
+        cellSize = Math.max( theCellSize, 1 );
+        while( numberOfCellsAlong( boundaryX ) * numberOfCellsAlong( boundaryY ) > maxNumberOfCells ) {
+            cellSize = (int)Math.min( 2L * cellSize, Integer.MAX_VALUE );
+        }
+        columns = (int)numberOfCellsAlong( boundaryX );
+        rows = (int)numberOfCellsAlong( boundaryY );
+        numberOfCells = columns * rows;
+
+        if( cellStart.length < numberOfCells + 1 ) {
+            // room for the cells of as many balls as the arrays hold (like cellBalls),
+            // so a growing number of balls doesn't reallocate it tick by tick
+            cellStart = new int[ (int)Math.max(
+                numberOfCells, maxNumberOfCells( centerX.length, boundaryX, boundaryY, theCellSize )
+            ) + 1 ];
+        }
+        if( cellBalls.length < numberOfBalls ) {
+            cellBalls = new int[ centerX.length ];
+            ballsCell = new int[ centerX.length ];
+        }
+
+        // count the balls of each cell
+        for( int c = 0; c <= numberOfCells; c++ ) {
+            cellStart[ c ] = 0;
+        }
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            cell = cellOf( centerX[ i ], centerY[ i ] );
+            ballsCell[ i ] = cell;
+            cellStart[ cell ]++;
+        }
+
+        // prefix sum (end of each cell), then scatter the ball indices backward,
+        // which leaves cellStart[ c ] pointing at the beginning of cell c
+        for( int c = 1; c < numberOfCells; c++ ) {
+            cellStart[ c ] += cellStart[ c - 1 ];
+        }
+        cellStart[ numberOfCells ] = numberOfBalls;
+        for( int i = numberOfBalls - 1; i >= 0; i-- ) {
+            cellBalls[ --cellStart[ ballsCell[ i ] ] ] = i;
+        }
+    }
+
+    /**
+     * get the number of cells covering the boundary in one direction. (at least 1)
+     */
+    private long numberOfCellsAlong( int boundary ) {
+        return Math.max( ((long)boundary + cellSize - 1) / cellSize, 1 );
+    }
+
+    /**
+     * the largest number of cells for the specified number of balls:
+     * bounded by the number of balls, and by the cells of the specified size in the game window.
+     */
+    private long maxNumberOfCells( int numberOfBalls, int boundaryX, int boundaryY, int theCellSize ) {
+        long smallestCellSize = Math.max( theCellSize, 1 );
+        long cellsAlongX = Math.max( ((long)boundaryX + smallestCellSize - 1) / smallestCellSize, 1 );
+        long cellsAlongY = Math.max( ((long)boundaryY + smallestCellSize - 1) / smallestCellSize, 1 );
+
+        return Math.min(
+            Math.max( (long)MAX_CELLS_PER_BALL * numberOfBalls, MIN_MAX_CELLS ), cellsAlongX * cellsAlongY
+        );
+    }
+
+    /**
+     * check if there's any ball whose center is closer than the specified distance
+     * to the specified point.
+     */
+    public boolean isAnyBallWithin(
+        double[] centerX, double[] centerY, double x, double y, double distance
+    ) {
+        int column1 = clamp( (int)Math.floor( (x - distance) / cellSize ), columns );
+        int column2 = clamp( (int)Math.floor( (x + distance) / cellSize ), columns );
+        int row1 = clamp( (int)Math.floor( (y - distance) / cellSize ), rows );
+        int row2 = clamp( (int)Math.floor( (y + distance) / cellSize ), rows );
+        double distanceSquare = distance * distance;
+        double distanceX;
+        double distanceY;
+        int ballIndex;
+
+        for( int row = row1; row <= row2; row++ ) {
+            for( int c = row * columns + column1; c <= row * columns + column2; c++ ) {
+                for( int k = cellStart[ c ]; k < cellStart[ c + 1 ]; k++ ) {
+                    ballIndex = cellBalls[ k ];
+                    distanceX = centerX[ ballIndex ] - x;
+                    distanceY = centerY[ ballIndex ] - y;
+                    if( (distanceX * distanceX + distanceY * distanceY) < distanceSquare ) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * check if there's any ball which came closer than the specified distance to a point
+     * moving from (x0, y0) to (x1, y1) during the last move. (see HeapBalls.isBallSweptHit())
+     * The balls moved at most maxBallsMovingDistance in each direction, so only the cells
+     * around the swept area, widened by it, are checked.
+     */
+    public boolean isAnyBallSweptWithin(
+        HeapBalls balls, double x0, double y0, double x1, double y1,
+        double distance, double maxBallsMovingDistance
+    ) {
+        double range = distance + maxBallsMovingDistance;
+        int column1 = clamp( (int)Math.floor( (Math.min( x0, x1 ) - range) / cellSize ), columns );
+        int column2 = clamp( (int)Math.floor( (Math.max( x0, x1 ) + range) / cellSize ), columns );
+        int row1 = clamp( (int)Math.floor( (Math.min( y0, y1 ) - range) / cellSize ), rows );
+        int row2 = clamp( (int)Math.floor( (Math.max( y0, y1 ) + range) / cellSize ), rows );
+        double distanceSquare = distance * distance;
+
+        for( int row = row1; row <= row2; row++ ) {
+            for( int c = row * columns + column1; c <= row * columns + column2; c++ ) {
+                for( int k = cellStart[ c ]; k < cellStart[ c + 1 ]; k++ ) {
+                    if( balls.isBallSweptHit( cellBalls[ k ], x0, y0, x1, y1, distanceSquare ) ) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * get the cell of a point. Points outside the game window belong to the border cells.
+     */
+    private int cellOf( double x, double y ) {
+        int column = clamp( (int)Math.floor( x / cellSize ), columns );
+        int row = clamp( (int)Math.floor( y / cellSize ), rows );
+
+        return row * columns + column;
+    }
+
+    private int clamp( int value, int size ) {
+        if( value < 0 ) {
+            return 0;
+        } else if( value >= size ) {
+            return size - 1;
+        } else {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package domain;
+
+import java.util.Arrays;
+
+/**
+ * Sweep and prune over the balls' x-axis extents, the broad phase of the ball-to-ball collisions.
+ * The ball indices are kept sorted by center x (all balls have the same radius,
+ * so this is also the order of the extents' left edges), and only the balls whose
+ * extents overlap on x are checked against each other.
+ * The balls move only a little between two ticks, so the order of the previous tick
+ * is nearly sorted, and an insertion sort restores it in about linear time.
+ * The centers are also copied in the sorted order, so the sweep reads them sequentially.
+ */
+class BallsSweepAndPrune {
+
+    private int order[];                // ball indices, by center x
+    private double sortedCenterX[];     // center of the ball at each position of the order
+    private double sortedCenterY[];
+    private long sortingKeys[];         // center x (as float) & ball index, for sorting from scratch
+    private int numberOfOrderedBalls;
+    private boolean orderOutdated;      // true if the indices changed (balls removed or relaunched)
+
+    public BallsSweepAndPrune() {
+        order = new int[ 0 ];
+        sortedCenterX = new double[ 0 ];
+        sortedCenterY = new double[ 0 ];
+        sortingKeys = new long[ 0 ];
+        numberOfOrderedBalls = 0;
+        orderOutdated = true;
+    }
+
+    /**
+     * sort from scratch at the next sort(). (the ball indices changed)
+     * Balls launched since the last sort() keep the order valid: they are appended.
+     */
+    public void invalidate() {
+        orderOutdated = true;
+    }
+
+    /**
+     * sort the balls by center x, starting from the order of the previous call,
+     * and copy the centers in that order.
+     */
+    public void sort( double[] centerX, double[] centerY, int numberOfBalls ) {
+        int ball;
+        double x;
+        int k;
+
+        if( order.length < numberOfBalls ) {
+            order = Arrays.copyOf( order, centerX.length );
+            sortedCenterX = new double[ centerX.length ];
+            sortedCenterY = new double[ centerX.length ];
+        }
+
+        if( orderOutdated || numberOfBalls < numberOfOrderedBalls ) {
+            sortFromScratch( centerX, numberOfBalls );
+            orderOutdated = false;
+        } else {
+            for( int i = numberOfOrderedBalls; i < numberOfBalls; i++ ) {
+                order[ i ] = i;     // launched balls
+            }
+        }
+        numberOfOrderedBalls = numberOfBalls;
+
+        // insertion sort
+        for( int m = 1; m < numberOfBalls; m++ ) {
+            ball = order[ m ];
+            x = centerX[ ball ];
+            for( k = m - 1; k >= 0 && centerX[ order[ k ] ] > x; k-- ) {
+                order[ k + 1 ] = order[ k ];
+            }
+            order[ k + 1 ] = ball;
+        }
+       
+        for( int m = 0; m < numberOfBalls; m++ ) {
+            sortedCenterX[ m ] = centerX[ order[ m ] ];
+            sortedCenterY[ m ] = centerY[ order[ m ] ];
+        }
+    }
+
+    /**
+     * sort by center x in float precision (O(n log n)), so the insertion sort only finishes it.
+     */
+    private void sortFromScratch( double[] centerX, int numberOfBalls ) {
+        int bits;
+
+        if( sortingKeys.length < numberOfBalls ) {
+            sortingKeys = new long[ centerX.length ];
+        }
+
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            bits = Float.floatToIntBits( (float)centerX[ i ] );
+            bits ^= (bits >> 31) & 0x7fffffff;      // negative floats in ascending order, as ints
+            sortingKeys[ i ] = ((long)bits << 32) | i;
+        }
+        Arrays.sort( sortingKeys, 0, numberOfBalls );
+        for( int k = 0; k < numberOfBalls; k++ ) {
+            order[ k ] = (int)sortingKeys[ k ];
+        }
+    }
+
+    /**
+     * get the index of the ball at the specified position of the order.
+     */
+    public int getBall( int position ) {
+        return order[ position ];
+    }
+
+    /**
+     * get the center x of the ball at the specified position of the order. (as of the last sort())
+     */
+    public double getCenterX( int position ) {
+        return sortedCenterX[ position ];
+    }
+
+    public double getCenterY( int position ) {
+        return sortedCenterY[ position ];
+    }
+}
@@ -0,0 +1,792 @@
+package domain;
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * balls stored in Java arrays on the heap. (struct of arrays, a column per state)
+ * Collisions with the player unit are checked on a spatial grid,
+ * and the balls can bounce off each other. (see setBallsCollisionEnabled())
+ */
+public class HeapBalls extends Balls {
+    
+    private final int DEFAULT_SIZE_OF_BALLS_ARRAY = 50;  // default max ball number is 50
+    private final int SHRINKING_OCCUPANCY_DIVISOR = 4;   // balls' arrays are halved when less than 1/4 occupied
+    private final int SPATIAL_GRID_CELL_SIZE_IN_DIAMETERS = 1;  // a cell of the spatial grid is as wide as a ball
+    private final int PARALLEL_MOVING_CHUNK_SIZE = 16384;         // balls moved by one fork/join task
+    private final int OVERLAP_SCANNING_BLOCK_SIZE = 256;          // balls checked between two early exits
+   
+    private int numberOfBalls;          // current balls number in this game
+    private int sizeOfBallsArray;       // current max balls number
+    private double ballsCenterX[];     // x position of each balls' center
+    private double ballsCenterY[];     // y position of each balls' center
+    private double ballsPreviousCenterX[];  // x position of each balls' center before the last move
+    private double ballsPreviousCenterY[];  // y position of each balls' center before the last move
+    private double ballsSpeedX[];      // the x-axis speed of each balls
+    private double ballsSpeedY[];      // the y-axis speed of each balls
+    private int ballsColorRGB[];            // color of each balls (packed ARGB)
+    private byte ballsBorderColorIndex[];   // color of each balls' border (index of the border color palette)
+    private int ballsRemainingLifetime[];   // number of moves before each balls despawn. 0: never despawn
+   
+    private BallsSpatialGrid spatialGrid;   // the balls bucketed by position, for collision checking
+    private boolean spatialGridOutdated;    // true if balls have moved since the grid was built
+    private int spatialGridBoundaryX;       // the boundary which the grid covers
+    private int spatialGridBoundaryY;
+   
+    private double largestBallsSpeed;       // the largest |speed| in one direction of any ball
+    private double lastTimeScale;           // the time scale of the last move
+   
+    private BallsSweepAndPrune sweepAndPrune;   // the balls sorted by x, for ball-to-ball collisions
+   
+    public HeapBalls() {
+        super();
+        initialize();
+    }
+   
+    /**
+     * balls whose speeds, directions & colors are generated from the specified random seed.
+     */
+    public HeapBalls( long randomSeed ) {
+        super( randomSeed );
+        initialize();
+    }
+   
+    public HeapBalls(
+        int theNumberOfBalls, int theSizeOfBallsArray, int theRadius, int theDiameter,
+        double[] ballsCenterX, double[] ballsCenterY,
+        double[] ballsSpeedX, double[] ballsSpeedY,
+        Color[] theBallsColor, Color[] theBallsBorderColor
+    ) {
+        super();
+        initialize();
+        if( theSizeOfBallsArray > sizeOfBallsArray ) {
+            allocateBallsArrays( theSizeOfBallsArray );
+        }
+       
+        numberOfBalls = theNumberOfBalls;
+        setRadiusAndDiameter( theRadius, theDiameter );
+   
+        for( int i = 0; i < theNumberOfBalls; i++ ) {
+            this.ballsCenterX[ i ] = ballsCenterX[ i ];
+            this.ballsCenterY[ i ] = ballsCenterY[ i ];
+            ballsPreviousCenterX[ i ] = ballsCenterX[ i ];
+            ballsPreviousCenterY[ i ] = ballsCenterY[ i ];
+            this.ballsSpeedX[ i ] = ballsSpeedX[ i ];
+            this.ballsSpeedY[ i ] = ballsSpeedY[ i ];
+            ballsColorRGB[ i ] = theBallsColor[ i ].getRGB();
+            ballsBorderColorIndex[ i ] = borderColorIndexOf( theBallsBorderColor[ i ] );
+            updateLargestBallsSpeed( i );
+        }
+    }
+   
+    @Override
+    public Object clone() {
+        HeapBalls copy = new HeapBalls();
+        copy.allocateBallsArrays( sizeOfBallsArray );
+       
+        copySettingsTo( copy );
+        copy.numberOfBalls = numberOfBalls;
+        System.arraycopy( ballsCenterX, 0, copy.ballsCenterX, 0, numberOfBalls );
+        System.arraycopy( ballsCenterY, 0, copy.ballsCenterY, 0, numberOfBalls );
+        System.arraycopy( ballsPreviousCenterX, 0, copy.ballsPreviousCenterX, 0, numberOfBalls );
+        System.arraycopy( ballsPreviousCenterY, 0, copy.ballsPreviousCenterY, 0, numberOfBalls );
+        System.arraycopy( ballsSpeedX, 0, copy.ballsSpeedX, 0, numberOfBalls );
+        System.arraycopy( ballsSpeedY, 0, copy.ballsSpeedY, 0, numberOfBalls );
+        System.arraycopy( ballsColorRGB, 0, copy.ballsColorRGB, 0, numberOfBalls );
+        System.arraycopy( ballsBorderColorIndex, 0, copy.ballsBorderColorIndex, 0, numberOfBalls );
+        System.arraycopy( ballsRemainingLifetime, 0, copy.ballsRemainingLifetime, 0, numberOfBalls );
+        copy.largestBallsSpeed = largestBallsSpeed;
+        copy.lastTimeScale = lastTimeScale;
+        copy.spatialGridBoundaryX = spatialGridBoundaryX;     // the walls of the last move, for the swept checks
+        copy.spatialGridBoundaryY = spatialGridBoundaryY;
+       
+        return copy;
+    }
+   
+    @Override
+    public void writeState( ByteBuffer buffer ) {
+        writeStateHeader( buffer, numberOfBalls, largestBallsSpeed, lastTimeScale );
+        putDoubles( buffer, ballsCenterX, numberOfBalls );
+        putDoubles( buffer, ballsCenterY, numberOfBalls );
+        putDoubles( buffer, ballsPreviousCenterX, numberOfBalls );
+        putDoubles( buffer, ballsPreviousCenterY, numberOfBalls );
+        putDoubles( buffer, ballsSpeedX, numberOfBalls );
+        putDoubles( buffer, ballsSpeedY, numberOfBalls );
+        putInts( buffer, ballsColorRGB, numberOfBalls );
+        putInts( buffer, ballsRemainingLifetime, numberOfBalls );
+        buffer.put( ballsBorderColorIndex, 0, numberOfBalls );
+    }
+   
+    @Override
+    public void readState( ByteBuffer buffer ) {
+        int theNumberOfBalls = readStateHeader( buffer );
+       
+        if( theNumberOfBalls > sizeOfBallsArray ) {
+            resizeBallsArrays( theNumberOfBalls );
+        }
+        numberOfBalls = theNumberOfBalls;
+        largestBallsSpeed = buffer.getDouble();
+        lastTimeScale = buffer.getDouble();
+        getDoubles( buffer, ballsCenterX, numberOfBalls );
+        getDoubles( buffer, ballsCenterY, numberOfBalls );
+        getDoubles( buffer, ballsPreviousCenterX, numberOfBalls );
+        getDoubles( buffer, ballsPreviousCenterY, numberOfBalls );
+        getDoubles( buffer, ballsSpeedX, numberOfBalls );
+        getDoubles( buffer, ballsSpeedY, numberOfBalls );
+        getInts( buffer, ballsColorRGB, numberOfBalls );
+        getInts( buffer, ballsRemainingLifetime, numberOfBalls );
+        buffer.get( ballsBorderColorIndex, 0, numberOfBalls );
+       
+        spatialGridOutdated = true;
+        sweepAndPrune.invalidate();
+    }
+   
+    /**
+     * copy the first length elements of an array into the buffer, in one bulk copy.
+     */
+    private static void putDoubles( ByteBuffer buffer, double[] array, int length ) {
+        buffer.asDoubleBuffer().put( array, 0, length );
+        buffer.position( buffer.position() + length * 8 );
+    }
+   
+    private static void putInts( ByteBuffer buffer, int[] array, int length ) {
+        buffer.asIntBuffer().put( array, 0, length );
+        buffer.position( buffer.position() + length * 4 );
+    }
+   
+    private static void getDoubles( ByteBuffer buffer, double[] array, int length ) {
+        buffer.asDoubleBuffer().get( array, 0, length );
+        buffer.position( buffer.position() + length * 8 );
+    }
+   
+    private static void getInts( ByteBuffer buffer, int[] array, int length ) {
+        buffer.asIntBuffer().get( array, 0, length );
+        buffer.position( buffer.position() + length * 4 );
+    }
+
+    /**
+     * initialize balls in this game.
+     */
+    private void initialize() {
+        numberOfBalls = 0;
+        sizeOfBallsArray = DEFAULT_SIZE_OF_BALLS_ARRAY;
+        allocateBallsArrays( DEFAULT_SIZE_OF_BALLS_ARRAY );
+       
+        spatialGrid = new BallsSpatialGrid();
+        spatialGridOutdated = true;
+        spatialGridBoundaryX = 0;
+        spatialGridBoundaryY = 0;
+       
+        largestBallsSpeed = 0.0;
+        lastTimeScale = 1.0;
+       
+        sweepAndPrune = new BallsSweepAndPrune();
+    }
+   
+    /**
+     * allocate empty balls' arrays of the specified size.
+     */
+    private void allocateBallsArrays( int size ) {
+        sizeOfBallsArray = size;
+        ballsCenterX = new double[ sizeOfBallsArray ];
+        ballsCenterY = new double[ sizeOfBallsArray ];
+        ballsPreviousCenterX = new double[ sizeOfBallsArray ];
+        ballsPreviousCenterY = new double[ sizeOfBallsArray ];
+        ballsSpeedX = new double[ sizeOfBallsArray ];
+        ballsSpeedY = new double[ sizeOfBallsArray ];
+        ballsColorRGB = new int[ sizeOfBallsArray ];
+        ballsBorderColorIndex = new byte[ sizeOfBallsArray ];
+        ballsRemainingLifetime = new int[ sizeOfBallsArray ];
+    }
+   
+    @Override
+    public void ballsInitialLaunch() {
+        if( isShrinkingEnabled() && sizeOfBallsArray > DEFAULT_SIZE_OF_BALLS_ARRAY ) {
+            resizeBallsArrays( DEFAULT_SIZE_OF_BALLS_ARRAY );
+        }
+        if( getNumberOfInitialBalls() > sizeOfBallsArray ) {
+            resizeBallsArrays( getNumberOfInitialBalls() );
+        }
+       
+        numberOfBalls = getNumberOfInitialBalls();
+        largestBallsSpeed = 0.0;
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            ballsCenterX[ i ] = getLaunchPositionX();
+            ballsCenterY[ i ] = getLaunchPositionY();
+            ballsPreviousCenterX[ i ] = getLaunchPositionX();
+            ballsPreviousCenterY[ i ] = getLaunchPositionY();
+            ballsSpeedX[ i ] = randomBallsSpeed();
+            ballsSpeedY[ i ] = randomBallsSpeed();
+            ballsColorRGB[ i ] = randomBallsColor();
+            ballsBorderColorIndex[ i ] = randomBallsBorderColor();
+            ballsRemainingLifetime[ i ] = getBallsTimeToLive();
+            randomBallsDirectionAndSpeed( i );
+            updateLargestBallsSpeed( i );
+        }
+        
+        spatialGridOutdated = true;
+        sweepAndPrune.invalidate();
+    }
+   
+    /**
+     * move each balls by their speed multiplied by the specified time scale.
+     * (the speeds are defined per 1/60 second)
+     * From the parallel moving threshold balls on, the balls are split into chunks
+     * which are moved in parallel on the common fork/join pool.
+     * With ball-to-ball collisions enabled, the balls touching each other bounce off first.
+     * (so each move still goes straight from the previous center by the speed)
+     */
+    @Override
+    public void ballsMove( int boundaryX, int boundaryY, double timeScale ) {
+        if( isBallsCollisionEnabled() ) {
+            collideBalls();
+        }
+       
+        if( numberOfBalls >= getParallelMovingThreshold() ) {
+            ForkJoinPool.commonPool().invoke(
+                new BallsMovingTask( 0, numberOfBalls, boundaryX, boundaryY, timeScale )
+            );
+        } else {
+            moveBallsInRange( 0, numberOfBalls, boundaryX, boundaryY, timeScale );
+        }
+        lastTimeScale = timeScale;
+        
+        if( getBallsTimeToLive() > 0 ) {
+            despawnExpiredBalls();
+        }
+        
+        // the spatial grid is rebuilt on demand, at most once per move
+        spatialGridOutdated = true;
+        spatialGridBoundaryX = boundaryX;
+        spatialGridBoundaryY = boundaryY;
+    }
+   
+    /**
+     * count down the balls' lifetime, and remove the balls whose lifetime ran out.
+     * (backward, so the last ball swapped into a removed one's index was already counted down)
+     */
+    private void despawnExpiredBalls() {
+        for( int i = numberOfBalls - 1; i >= 0; i-- ) {
+            if( ballsRemainingLifetime[ i ] > 0 ) {
+                ballsRemainingLifetime[ i ]--;
+                if( ballsRemainingLifetime[ i ] == 0 ) {
+                    removeBall( i );
+                }
+            }
+        }
+    }
+   
+    @Override
+    public void removeBall( int index ) {
+        int lastIndex = numberOfBalls - 1;
+       
+        if( index < 0 || index > lastIndex ) {
+            return;
+        }
+       
+        ballsCenterX[ index ] = ballsCenterX[ lastIndex ];
+        ballsCenterY[ index ] = ballsCenterY[ lastIndex ];
+        ballsPreviousCenterX[ index ] = ballsPreviousCenterX[ lastIndex ];
+        ballsPreviousCenterY[ index ] = ballsPreviousCenterY[ lastIndex ];
+        ballsSpeedX[ index ] = ballsSpeedX[ lastIndex ];
+        ballsSpeedY[ index ] = ballsSpeedY[ lastIndex ];
+        ballsColorRGB[ index ] = ballsColorRGB[ lastIndex ];
+        ballsBorderColorIndex[ index ] = ballsBorderColorIndex[ lastIndex ];
+        ballsRemainingLifetime[ index ] = ballsRemainingLifetime[ lastIndex ];
+        numberOfBalls--;
+        sweepAndPrune.invalidate();
+       
+        if( isShrinkingEnabled() && sizeOfBallsArray > DEFAULT_SIZE_OF_BALLS_ARRAY
+                && numberOfBalls < sizeOfBallsArray / SHRINKING_OCCUPANCY_DIVISOR ) {
+            resizeBallsArrays( Math.max( sizeOfBallsArray / 2, DEFAULT_SIZE_OF_BALLS_ARRAY ) );
+        }
+       
+        spatialGridOutdated = true;
+    }
+   
+    /**
+     * let the balls which touch & approach each other bounce off. (elastic collision of equal masses:
+     * the speeds along the line through both centers are exchanged)
+     * Broad phase: only the balls whose x extents overlap are checked, walking the balls sorted by x
+     * until the x distance reaches a diameter. Narrow phase: the exact circle-circle test.
+     */
+    private void collideBalls() {
+        double diameter = (double)getDiameter();
+        double minDistanceSquare = diameter * diameter;
+        double distanceX;
+        double distanceY;
+        double distanceSquare;
+        double impulse;
+        int i;
+        int j;
+       
+        sweepAndPrune.sort( ballsCenterX, ballsCenterY, numberOfBalls );
+       
+        for( int k = 0; k < numberOfBalls; k++ ) {
+            for( int m = k + 1; m < numberOfBalls; m++ ) {
+                distanceX = sweepAndPrune.getCenterX( m ) - sweepAndPrune.getCenterX( k );
+                if( distanceX >= diameter ) {
+                    break;      // the later balls' extents don't overlap ball k's
+                }
+                distanceY = sweepAndPrune.getCenterY( m ) - sweepAndPrune.getCenterY( k );
+                distanceSquare = distanceX * distanceX + distanceY * distanceY;
+                if( distanceSquare >= minDistanceSquare || distanceSquare == 0.0 ) {
+                    continue;
+                }
+               
+                i = sweepAndPrune.getBall( k );
+                j = sweepAndPrune.getBall( m );
+                // the relative speed along the normal, over the distance (positive: approaching)
+                impulse = ((ballsSpeedX[ i ] - ballsSpeedX[ j ]) * distanceX
+                           + (ballsSpeedY[ i ] - ballsSpeedY[ j ]) * distanceY) / distanceSquare;
+                if( impulse > 0.0 ) {
+                    ballsSpeedX[ i ] -= impulse * distanceX;
+                    ballsSpeedY[ i ] -= impulse * distanceY;
+                    ballsSpeedX[ j ] += impulse * distanceX;
+                    ballsSpeedY[ j ] += impulse * distanceY;
+                    updateLargestBallsSpeed( i );
+                    updateLargestBallsSpeed( j );
+                }
+            }
+        }
+    }
+   
+    /**
+     * move the balls of index fromIndex (inclusive) to toIndex (exclusive),
+     * and let them rebound from the wall, in one pass.
+     */
+    private void moveBallsInRange(
+        int fromIndex, int toIndex, int boundaryX, int boundaryY, double timeScale
+    ) {
+        for( int i = fromIndex; i < toIndex; i++ ) {
+            ballsPreviousCenterX[ i ] = ballsCenterX[ i ];
+            ballsPreviousCenterY[ i ] = ballsCenterY[ i ];
+            ballsCenterX[ i ] = ballsCenterX[ i ] + ballsSpeedX[ i ] * timeScale;
+            ballsCenterY[ i ] = ballsCenterY[ i ] + ballsSpeedY[ i ] * timeScale;
+           
+            checkIfTheBallHitTheWallAndAdjust( i, boundaryX, boundaryY );
+        }
+       
+        // a ball moving farther than the width of the window in a tick hits the walls more than once
+        if( largestBallsSpeed * timeScale > Math.min( boundaryX, boundaryY ) - getDiameter() ) {
+            reboundRemainingInRange( ballsCenterX, ballsSpeedX, fromIndex, toIndex, boundaryX );
+            reboundRemainingInRange( ballsCenterY, ballsSpeedY, fromIndex, toIndex, boundaryY );
+        }
+    }
+   
+    /**
+     * let the balls which are still beyond a wall after the first rebound
+     * rebound again, until they are inside the window.
+     */
+    private void reboundRemainingInRange(
+        double[] center, double[] speed, int fromIndex, int toIndex, int boundary
+    ) {
+        double r = (double)getRadius();
+        double limit = (double)boundary;
+       
+        if( limit - r <= r ) {
+            return;     // the window is too small for a ball
+        }
+       
+        for( int i = fromIndex; i < toIndex; i++ ) {
+            while( center[ i ] - r < 0 || center[ i ] + r > limit ) {
+                if( center[ i ] - r < 0 ) {
+                    center[ i ] = r + (0 - (center[ i ] - r));
+                } else {
+                    center[ i ] = limit - r - (center[ i ] + r - limit);
+                }
+                speed[ i ] = speed[ i ] * (-1.0);
+            }
+        }
+    }
+   
+    /**
+     *   Check if the ball hit the wall (the boundary of game window),
+     *   and adjust the direction of the ball.
+     *   For example:
+     *   +----------+       +----------+             +----------+
+     *   |          |       |          |             |        o |
+     *   |          |  -->  |         o|      -->    |          |
+     *   |        o |       |          |             |          |
+     *   +----------+       +----------+             +----------+
+     *   speed: x = 2.0     speed: x = 2.0           speed: x = -2.0
+     *          y = -2.0           y = -2.0                 y = -2.0
+     *                     (Hit the right boundary)
+     */
+    private void checkIfTheBallHitTheWallAndAdjust( int i, int boundaryX, int boundaryY ) {
+        int radius = getRadius();
+        double reboundDistance;
+        double ballsPositionX1;
+        double ballsPositionY1;
+        double ballsPositionX2;
+        double ballsPositionY2;
+       
+        /* check x vector */
+        ballsPositionX1 = ballsCenterX[ i ] - (double)radius;
+        ballsPositionX2 = ballsCenterX[ i ] + (double)radius;
+        if( ballsPositionX1 < 0 ) {
+            reboundDistance = 0 - ballsPositionX1;
+            ballsCenterX[ i ] = (double)radius + reboundDistance;
+            ballsSpeedX[ i ] = ballsSpeedX[ i ] * (-1.0);
+        } else if( ballsPositionX2 > boundaryX ) {
+            reboundDistance = ballsPositionX2 - boundaryX;
+            ballsCenterX[ i ] = boundaryX - (double)radius - reboundDistance;
+            ballsSpeedX[ i ] = ballsSpeedX[ i ] * (-1.0);
+        }
+       
+        /* check y vector */
+        ballsPositionY1 = ballsCenterY[ i ] - (double)radius;
+        ballsPositionY2 = ballsCenterY[ i ] + (double)radius;
+        if( ballsPositionY1 < 0 ) {
+            reboundDistance = 0 - ballsPositionY1;
+            ballsCenterY[ i ] = (double)radius + reboundDistance;
+            ballsSpeedY[ i ] = ballsSpeedY[ i ] * (-1.0);
+        } else if( ballsPositionY2 > boundaryY ) {
+            reboundDistance = ballsPositionY2 - boundaryY;
+            ballsCenterY[ i ] = boundaryY - (double)radius - reboundDistance;
+            ballsSpeedY[ i ] = ballsSpeedY[ i ] * (-1.0);
+        }
+    }
+   
+    /**
+     * Move a range of balls, split in halves until a range fits in one chunk.
+     */
+    private class BallsMovingTask extends RecursiveAction {
+       
+        private static final long serialVersionUID = 1L;
+       
+        private final int fromIndex;
+        private final int toIndex;
+        private final int boundaryX;
+        private final int boundaryY;
+        private final double timeScale;
+       
+        public BallsMovingTask(
+            int fromIndex, int toIndex, int boundaryX, int boundaryY, double timeScale
+        ) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.boundaryX = boundaryX;
+            this.boundaryY = boundaryY;
+            this.timeScale = timeScale;
+        }
+       
+        @Override
+        protected void compute() {
+            if( toIndex - fromIndex <= PARALLEL_MOVING_CHUNK_SIZE ) {
+                moveBallsInRange( fromIndex, toIndex, boundaryX, boundaryY, timeScale );
+            } else {
+                int middleIndex = (fromIndex + toIndex) >>> 1;
+                invokeAll(
+                    new BallsMovingTask( fromIndex, middleIndex, boundaryX, boundaryY, timeScale ),
+                    new BallsMovingTask( middleIndex, toIndex, boundaryX, boundaryY, timeScale )
+                );
+            }
+        }
+    }
+    
+    @Override
+    public void launchABall() {
+        if( numberOfBalls >= sizeOfBallsArray ) {
+            increaseSizeOfBallsArray();
+        }
+       
+        ballsCenterX[ numberOfBalls ] = getLaunchPositionX();
+        ballsCenterY[ numberOfBalls ] = getLaunchPositionY();
+        ballsPreviousCenterX[ numberOfBalls ] = getLaunchPositionX();
+        ballsPreviousCenterY[ numberOfBalls ] = getLaunchPositionY();
+        ballsSpeedX[ numberOfBalls ] = randomBallsSpeed();
+        ballsSpeedY[ numberOfBalls ] = randomBallsSpeed();
+        ballsColorRGB[ numberOfBalls ] = randomBallsColor();
+        ballsBorderColorIndex[ numberOfBalls ] = randomBallsBorderColor();
+        ballsRemainingLifetime[ numberOfBalls ] = getBallsTimeToLive();
+        randomBallsDirectionAndSpeed( numberOfBalls );
+        updateLargestBallsSpeed( numberOfBalls );
+       
+        numberOfBalls++;
+        
+        spatialGridOutdated = true;
+    }
+   
+    /**
+     * Check if any ball overlaps the circle of the specified center and radius.
+     * Only the balls in the spatial grid cells around the circle are checked.
+     */
+    @Override
+    public boolean isAnyBallCollidedWith( double centerX, double centerY, int theRadius ) {
+        if( spatialGridOutdated ) {
+            spatialGrid.rebuild(
+                ballsCenterX, ballsCenterY, numberOfBalls,
+                spatialGridBoundaryX, spatialGridBoundaryY,
+                getDiameter() * SPATIAL_GRID_CELL_SIZE_IN_DIAMETERS
+            );
+            spatialGridOutdated = false;
+        }
+       
+        return spatialGrid.isAnyBallWithin(
+            ballsCenterX, ballsCenterY, centerX, centerY, (double)getRadius() + (double)theRadius
+        );
+    }
+   
+    /**
+     * Check if any ball hit the circle of the specified radius, moving from (previousCenterX, previousCenterY)
+     * to (centerX, centerY) during the last move, at any time of the move (not only at its end).
+     * Only the balls in the spatial grid cells around the swept area are checked.
+     */
+    @Override
+    public boolean isAnyBallSweptCollidedWith(
+        double previousCenterX, double previousCenterY, double centerX, double centerY, int theRadius
+    ) {
+        if( spatialGridOutdated ) {
+            spatialGrid.rebuild(
+                ballsCenterX, ballsCenterY, numberOfBalls,
+                spatialGridBoundaryX, spatialGridBoundaryY,
+                getDiameter() * SPATIAL_GRID_CELL_SIZE_IN_DIAMETERS
+            );
+            spatialGridOutdated = false;
+        }
+       
+        return spatialGrid.isAnyBallSweptWithin(
+            this, previousCenterX, previousCenterY, centerX, centerY,
+            (double)getRadius() + (double)theRadius, largestBallsSpeed * lastTimeScale
+        );
+    }
+   
+    /**
+     * The same as isAnyBallSweptCollidedWith(), by checking every ball. (without the spatial grid)
+     */
+    @Override
+    public boolean isAnyBallSweptOverlapping(
+        double previousCenterX, double previousCenterY, double centerX, double centerY, int theRadius
+    ) {
+        double distance = (double)getRadius() + (double)theRadius;
+        double distanceSquare = distance * distance;
+       
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            if( isBallSweptHit( i, previousCenterX, previousCenterY, centerX, centerY, distanceSquare ) ) {
+                return true;
+            }
+        }
+       
+        return false;
+    }
+   
+    /**
+     * Check if a ball came closer than the specified distance (squared) to a point moving
+     * from (x0, y0) to (x1, y1) during the last move. (see Balls.isSweptHit())
+     */
+    boolean isBallSweptHit( int i, double x0, double y0, double x1, double y1, double distanceSquare ) {
+        return isSweptHit(
+            (double)getRadius(), spatialGridBoundaryX, spatialGridBoundaryY, lastTimeScale,
+            ballsPreviousCenterX[ i ], ballsPreviousCenterY[ i ], ballsCenterX[ i ], ballsCenterY[ i ],
+            ballsSpeedX[ i ], ballsSpeedY[ i ], x0, y0, x1, y1, distanceSquare
+        );
+    }
+   
+    /**
+     * randomly generate ball's x-axis and y-axis speed.
+     */
+    private void randomBallsDirectionAndSpeed( int ballIndex ) {
+        int quadrant = randomBallsQuadrant();
+       
+        if( ballsSpeedY[ ballIndex ] < 0.0 )
+            ballsSpeedY[ ballIndex ] = ballsSpeedY[ ballIndex ] * (-1.0); // make y vector speed positive
+       
+        switch( quadrant ) {
+            case 1:
+                if( ballsSpeedX[ ballIndex ] < 0.0 )
+                    ballsSpeedX[ ballIndex ] = ballsSpeedX[ ballIndex ] * (-1.0); // make x vector speed positive
+                break;
+            case 2:
+                if( ballsSpeedX[ ballIndex ] > 0.0 )
+                    ballsSpeedX[ ballIndex ] = ballsSpeedX[ ballIndex ] * (-1.0); // make x vector speed negative
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private void updateLargestBallsSpeed( int ballIndex ) {
+        largestBallsSpeed = Math.max(
+            largestBallsSpeed, Math.max( Math.abs( ballsSpeedX[ ballIndex ] ), Math.abs( ballsSpeedY[ ballIndex ] ) )
+        );
+    }
+   
+    /**
+     * grow the balls' arrays by the growth factor. (at least by one ball)
+     */
+    private void increaseSizeOfBallsArray() {
+        long newSize = Math.max( (long)(sizeOfBallsArray * getGrowthFactor()), (long)sizeOfBallsArray + 1 );
+       
+        resizeBallsArrays( (int)Math.min( newSize, Integer.MAX_VALUE - 8 ) );
+    }
+   
+    /**
+     * resize the balls' arrays, keeping the current balls. (one copy per array)
+     */
+    private void resizeBallsArrays( int newSize ) {
+        sizeOfBallsArray = newSize;
+        ballsCenterX = Arrays.copyOf( ballsCenterX, sizeOfBallsArray );
+        ballsCenterY = Arrays.copyOf( ballsCenterY, sizeOfBallsArray );
+        ballsPreviousCenterX = Arrays.copyOf( ballsPreviousCenterX, sizeOfBallsArray );
+        ballsPreviousCenterY = Arrays.copyOf( ballsPreviousCenterY, sizeOfBallsArray );
+        ballsSpeedX = Arrays.copyOf( ballsSpeedX, sizeOfBallsArray );
+        ballsSpeedY = Arrays.copyOf( ballsSpeedY, sizeOfBallsArray );
+        ballsColorRGB = Arrays.copyOf( ballsColorRGB, sizeOfBallsArray );
+        ballsBorderColorIndex = Arrays.copyOf( ballsBorderColorIndex, sizeOfBallsArray );
+        ballsRemainingLifetime = Arrays.copyOf( ballsRemainingLifetime, sizeOfBallsArray );
+    }
+   
+    /**
+     * Check if any ball overlaps the circle of the specified center and radius, by checking every ball.
+     * The balls are checked in blocks without early exit inside a block,
+     * so the squared distance test of a block runs without branches.
+     */
+    @Override
+    public boolean isAnyBallOverlapping( double centerX, double centerY, int theRadius ) {
+        double minDistance = (double)getRadius() + (double)theRadius;
+        double minDistanceSquare = minDistance * minDistance;
+        double distanceX;
+        double distanceY;
+        boolean overlapping = false;
+        int blockEnd;
+       
+        for( int blockBegin = 0; blockBegin < numberOfBalls && !overlapping; blockBegin = blockEnd ) {
+            blockEnd = Math.min( blockBegin + OVERLAP_SCANNING_BLOCK_SIZE, numberOfBalls );
+            for( int i = blockBegin; i < blockEnd; i++ ) {
+                distanceX = ballsCenterX[ i ] - centerX;
+                distanceY = ballsCenterY[ i ] - centerY;
+                overlapping |= (distanceX * distanceX + distanceY * distanceY) < minDistanceSquare;
+            }
+        }
+       
+        return overlapping;
+    }
+   
+    @Override
+    public void copyPositionsTo(
+        double[] previousCenterX, double[] previousCenterY, double[] centerX, double[] centerY
+    ) {
+        System.arraycopy( ballsPreviousCenterX, 0, previousCenterX, 0, numberOfBalls );
+        System.arraycopy( ballsPreviousCenterY, 0, previousCenterY, 0, numberOfBalls );
+        System.arraycopy( ballsCenterX, 0, centerX, 0, numberOfBalls );
+        System.arraycopy( ballsCenterY, 0, centerY, 0, numberOfBalls );
+    }
+   
+    @Override
+    public void copyColorsTo( int[] colorRGB, byte[] borderColorIndex ) {
+        System.arraycopy( ballsColorRGB, 0, colorRGB, 0, numberOfBalls );
+        System.arraycopy( ballsBorderColorIndex, 0, borderColorIndex, 0, numberOfBalls );
+    }
+   
+    @Override
+    public Color getBallsBorderColor( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return Color.BLACK;
+        } else {
+            return getBorderColor( ballsBorderColorIndex[ index ] );
+        }
+    }
+   
+    @Override
+    public int getBallsBorderColorIndex( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0;
+        } else {
+            return ballsBorderColorIndex[ index ];
+        }
+    }
+   
+    @Override
+    public Color getBallsColor( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return Color.BLACK;
+        } else {
+            return new Color( ballsColorRGB[ index ] );
+        }
+    }
+   
+    @Override
+    public int getBallsColorRGB( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return Color.BLACK.getRGB();
+        } else {
+            return ballsColorRGB[ index ];
+        }
+    }
+   
+    @Override
+    public double getBallsCenterX( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0.0;
+        } else {
+            return ballsCenterX[ index ];
+        }
+    }
+   
+    @Override
+    public double getballsCenterY( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0.0;
+        } else {
+            return ballsCenterY[ index ];
+        }
+    }
+
+    @Override
+    public int getBallsPositionX1( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0;
+        }
+       
+        return (int)(ballsCenterX[ index ] - (double)getRadius());
+    }
+   
+    @Override
+    public int getBallsPositionY1( int index ) {
+        if( index < 0 || index >= numberOfBalls )
+            return 0;
+       
+        return (int)(ballsCenterY[ index ] - (double)getRadius());
+    }
+   
+    @Override
+    public int getBallsPositionX1( int index, double alpha ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0;
+        }
+       
+        return (int)(ballsPreviousCenterX[ index ]
+                     + (ballsCenterX[ index ] - ballsPreviousCenterX[ index ]) * alpha - (double)getRadius());
+    }
+   
+    @Override
+    public int getBallsPositionY1( int index, double alpha ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0;
+        }
+       
+        return (int)(ballsPreviousCenterY[ index ]
+                     + (ballsCenterY[ index ] - ballsPreviousCenterY[ index ]) * alpha - (double)getRadius());
+    }
+   
+    @Override
+    public void reserveBalls( int size ) {
+        if( size > sizeOfBallsArray ) {
+            resizeBallsArrays( size );
+        }
+    }
+   
+    @Override
+    public int getSizeOfBallsArray() {
+        return sizeOfBallsArray;
+    }
+   
+    @Override
+    public int getNumberOfBalls() {
+        return numberOfBalls;
+    }
+}
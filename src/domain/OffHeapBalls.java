@@ -0,0 +1,699 @@
+package domain;
+
+import java.awt.Color;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Balls whose states are stored outside the Java heap, in one direct buffer
+ * (an arena holding a column per state, struct of arrays), for stress runs with millions of balls:
+ * the heap stays small, and growing the buffers allocates no huge arrays on the heap.
+ * Implements the same methods as HeapBalls; the same seed launches the same balls.
+ * Differences from HeapBalls:
+ * - collisions are checked by scanning all balls (at these numbers of balls, rebuilding
+ *   the spatial grid each tick costs as much as scanning)
+ * - balls never collide with each other (the ball-to-ball collision setting is ignored)
+ * Native memory lifecycle: when the balls' buffers are resized, the balls are copied into a new arena,
+ * and the previous arena is kept, to be reused by a later resize which it fits (e.g. growing again
+ * after shrinking) or released before the next allocation. close() releases both arenas.
+ * (released explicitly, not when the garbage collector happens to collect them; if the JVM doesn't
+ * allow releasing explicitly, they are still released by the garbage collector)
+ * So at most two arenas exist at a time, and -XX:MaxDirectMemorySize must hold the arena of the
+ * current size and of the grown size: BYTES_PER_BALL * (size + size * growth factor), e.g. for
+ * 10M balls growing by 2: 57 * 30M bytes, 1.7 GB. An arena holds at most Integer.MAX_VALUE bytes,
+ * so at most MAX_SIZE_OF_BALLS_BUFFER balls.
+ */
+public class OffHeapBalls extends Balls implements AutoCloseable {
+
+    public final static int BYTES_PER_BALL = 6 * 8 + 4 + 4 + 1;
+    public final static int MAX_SIZE_OF_BALLS_BUFFER = Integer.MAX_VALUE / BYTES_PER_BALL;
+    private final static Method INVOKE_CLEANER = findInvokeCleaner();   // null: Java 8, or not accessible
+    private final static Object UNSAFE = findUnsafe();
+
+    private final int DEFAULT_SIZE_OF_BALLS_BUFFER = 50;    // default max ball number is 50
+    private final int SHRINKING_OCCUPANCY_DIVISOR = 4;      // buffers are halved when less than 1/4 occupied
+    private final int PARALLEL_MOVING_CHUNK_SIZE = 16384;   // balls moved by one fork/join task
+
+    private int numberOfBalls;
+    private int sizeOfBallsBuffer;
+    private ByteBuffer arena;                   // holds the columns below (null: closed)
+    private ByteBuffer previousArena;           // the arena before the last resize, for reusing (null: none)
+    private DoubleBuffer ballsCenterX;
+    private DoubleBuffer ballsCenterY;
+    private DoubleBuffer ballsPreviousCenterX;
+    private DoubleBuffer ballsPreviousCenterY;
+    private DoubleBuffer ballsSpeedX;
+    private DoubleBuffer ballsSpeedY;
+    private IntBuffer ballsColorRGB;            // packed ARGB
+    private ByteBuffer ballsBorderColorIndex;   // index of the border color palette
+    private IntBuffer ballsRemainingLifetime;   // number of moves before each balls despawn. 0: never despawn
+
+    private int boundaryX;                      // the boundary of the last move
+    private int boundaryY;
+    private double largestBallsSpeed;
+    private double lastTimeScale;
+
+    public OffHeapBalls() {
+        super();
+        initializeBuffers();
+    }
+
+    /**
+     * balls whose speeds, directions & colors are generated from the specified random seed.
+     */
+    public OffHeapBalls( long randomSeed ) {
+        super( randomSeed );
+        initializeBuffers();
+    }
+
+    private void initializeBuffers() {
+        numberOfBalls = 0;
+        previousArena = null;
+        layOutBallsBuffers( allocateArena( DEFAULT_SIZE_OF_BALLS_BUFFER ), DEFAULT_SIZE_OF_BALLS_BUFFER );
+        boundaryX = 0;
+        boundaryY = 0;
+        largestBallsSpeed = 0.0;
+        lastTimeScale = 1.0;
+    }
+
+    private ByteBuffer allocateArena( int size ) {
+        if( size < 0 || size > MAX_SIZE_OF_BALLS_BUFFER ) {
+            throw new IllegalArgumentException( "size of balls' buffers: " + size );
+        }
+
+        return ByteBuffer.allocateDirect( size * BYTES_PER_BALL ).order( ByteOrder.nativeOrder() );
+    }
+
+    /**
+     * make the balls' buffers the columns of the specified arena, for the specified number of balls.
+     * (the doubles first, then the ints & bytes, so each column is aligned)
+     */
+    private void layOutBallsBuffers( ByteBuffer theArena, int size ) {
+        arena = theArena;
+        sizeOfBallsBuffer = size;
+        ballsCenterX = column( 0, size, 8 ).asDoubleBuffer();
+        ballsCenterY = column( 1 * 8 * size, size, 8 ).asDoubleBuffer();
+        ballsPreviousCenterX = column( 2 * 8 * size, size, 8 ).asDoubleBuffer();
+        ballsPreviousCenterY = column( 3 * 8 * size, size, 8 ).asDoubleBuffer();
+        ballsSpeedX = column( 4 * 8 * size, size, 8 ).asDoubleBuffer();
+        ballsSpeedY = column( 5 * 8 * size, size, 8 ).asDoubleBuffer();
+        ballsColorRGB = column( 6 * 8 * size, size, 4 ).asIntBuffer();
+        ballsRemainingLifetime = column( (6 * 8 + 4) * size, size, 4 ).asIntBuffer();
+        ballsBorderColorIndex = column( (6 * 8 + 4 + 4) * size, size, 1 );
+    }
+
+    private ByteBuffer column( int offset, int size, int bytesPerBall ) {
+        ByteBuffer view = arena.duplicate();
+
+        view.limit( offset + size * bytesPerBall ).position( offset );
+        return view.slice().order( ByteOrder.nativeOrder() );
+    }
+
+    /**
+     * resize the balls' buffers, keeping the current balls: into the previous arena if it fits
+     * (and isn't more than twice too large), otherwise into a new arena, allocated after releasing the previous one.
+     * The replaced arena is kept as the previous one.
+     */
+    private void resizeBallsBuffers( int newSize ) {
+        ByteBuffer oldArena = arena;
+        DoubleBuffer oldCenterX = ballsCenterX;
+        DoubleBuffer oldCenterY = ballsCenterY;
+        DoubleBuffer oldPreviousCenterX = ballsPreviousCenterX;
+        DoubleBuffer oldPreviousCenterY = ballsPreviousCenterY;
+        DoubleBuffer oldSpeedX = ballsSpeedX;
+        DoubleBuffer oldSpeedY = ballsSpeedY;
+        IntBuffer oldColorRGB = ballsColorRGB;
+        ByteBuffer oldBorderColorIndex = ballsBorderColorIndex;
+        IntBuffer oldRemainingLifetime = ballsRemainingLifetime;
+        int numberOfKeptBalls = Math.min( numberOfBalls, newSize );
+
+        if( previousArena != null && previousArena.capacity() >= newSize * BYTES_PER_BALL
+                && previousArena.capacity() <= 2L * newSize * BYTES_PER_BALL ) {
+            layOutBallsBuffers( previousArena, newSize );
+        } else {
+            free( previousArena );
+            previousArena = null;
+            layOutBallsBuffers( allocateArena( newSize ), newSize );
+        }
+        previousArena = oldArena;
+        copyBuffer( oldCenterX, ballsCenterX, numberOfKeptBalls );
+        copyBuffer( oldCenterY, ballsCenterY, numberOfKeptBalls );
+        copyBuffer( oldPreviousCenterX, ballsPreviousCenterX, numberOfKeptBalls );
+        copyBuffer( oldPreviousCenterY, ballsPreviousCenterY, numberOfKeptBalls );
+        copyBuffer( oldSpeedX, ballsSpeedX, numberOfKeptBalls );
+        copyBuffer( oldSpeedY, ballsSpeedY, numberOfKeptBalls );
+        ballsColorRGB.put( (IntBuffer)oldColorRGB.duplicate().position( 0 ).limit( numberOfKeptBalls ) ).clear();
+        ballsBorderColorIndex.put(
+            (ByteBuffer)oldBorderColorIndex.duplicate().position( 0 ).limit( numberOfKeptBalls )
+        ).clear();
+        ballsRemainingLifetime.put(
+            (IntBuffer)oldRemainingLifetime.duplicate().position( 0 ).limit( numberOfKeptBalls )
+        ).clear();
+    }
+
+    private void copyBuffer( DoubleBuffer from, DoubleBuffer to, int length ) {
+        to.put( (DoubleBuffer)from.duplicate().position( 0 ).limit( length ) ).clear();
+    }
+
+    /**
+     * grow the balls' buffers by the growth factor. (at least by one ball, and at most to MAX_SIZE_OF_BALLS_BUFFER)
+     */
+    private void increaseSizeOfBallsBuffer() {
+        long newSize = Math.max( (long)(sizeOfBallsBuffer * getGrowthFactor()), (long)sizeOfBallsBuffer + 1 );
+
+        resizeBallsBuffers( (int)Math.min( newSize, MAX_SIZE_OF_BALLS_BUFFER ) );
+    }
+
+    /**
+     * release the native memory of the balls' buffers now. The balls can't be used any more.
+     */
+    @Override
+    public void close() {
+        free( previousArena );
+        free( arena );
+        previousArena = null;
+        arena = null;
+        numberOfBalls = 0;
+        sizeOfBallsBuffer = 0;
+        ballsCenterX = null;
+        ballsCenterY = null;
+        ballsPreviousCenterX = null;
+        ballsPreviousCenterY = null;
+        ballsSpeedX = null;
+        ballsSpeedY = null;
+        ballsColorRGB = null;
+        ballsBorderColorIndex = null;
+        ballsRemainingLifetime = null;
+    }
+
+    /**
+     * release the native memory of a direct buffer now (by its cleaner), if the JVM allows;
+     * otherwise it's released when the buffer is garbage collected. The buffer must not be used after.
+     */
+    private static void free( ByteBuffer buffer ) {
+        if( buffer == null ) {
+            return;
+        }
+
+        try {
+            if( INVOKE_CLEANER != null ) {
+                INVOKE_CLEANER.invoke( UNSAFE, buffer );            // Java 9+
+            } else {
+                Method cleanerMethod = buffer.getClass().getMethod( "cleaner" );     // Java 8
+                cleanerMethod.setAccessible( true );
+                Object cleaner = cleanerMethod.invoke( buffer );
+                if( cleaner != null ) {
+                    cleaner.getClass().getMethod( "clean" ).invoke( cleaner );
+                }
+            }
+        } catch( ReflectiveOperationException e ) {
+            // not allowed: released by the garbage collector
+        } catch( RuntimeException e ) {
+            // e.g. InaccessibleObjectException: released by the garbage collector
+        }
+    }
+
+    private static Object findUnsafe() {
+        try {
+            Field theUnsafe = Class.forName( "sun.misc.Unsafe" ).getDeclaredField( "theUnsafe" );
+            theUnsafe.setAccessible( true );
+            return theUnsafe.get( null );
+        } catch( ReflectiveOperationException e ) {
+            return null;
+        } catch( RuntimeException e ) {
+            return null;
+        }
+    }
+
+    private static Method findInvokeCleaner() {
+        try {
+            return Class.forName( "sun.misc.Unsafe" ).getMethod( "invokeCleaner", ByteBuffer.class );
+        } catch( ReflectiveOperationException e ) {
+            return null;
+        }
+    }
+
+    @Override
+    public void reserveBalls( int size ) {
+        if( size > sizeOfBallsBuffer ) {
+            resizeBallsBuffers( size );
+        }
+    }
+
+    @Override
+    public Object clone() {
+        OffHeapBalls copy = new OffHeapBalls();
+
+        copySettingsTo( copy );
+        free( copy.arena );
+        copy.layOutBallsBuffers( copy.allocateArena( sizeOfBallsBuffer ), sizeOfBallsBuffer );
+        copy.numberOfBalls = numberOfBalls;
+        copy.copyBallsFrom( this );
+        copy.boundaryX = boundaryX;
+        copy.boundaryY = boundaryY;
+        copy.largestBallsSpeed = largestBallsSpeed;
+        copy.lastTimeScale = lastTimeScale;
+
+        return copy;
+    }
+
+    /**
+     * copy the balls of another OffHeapBalls into the buffers of this. (of the same size)
+     */
+    private void copyBallsFrom( OffHeapBalls balls ) {
+        copyBuffer( balls.ballsCenterX, ballsCenterX, numberOfBalls );
+        copyBuffer( balls.ballsCenterY, ballsCenterY, numberOfBalls );
+        copyBuffer( balls.ballsPreviousCenterX, ballsPreviousCenterX, numberOfBalls );
+        copyBuffer( balls.ballsPreviousCenterY, ballsPreviousCenterY, numberOfBalls );
+        copyBuffer( balls.ballsSpeedX, ballsSpeedX, numberOfBalls );
+        copyBuffer( balls.ballsSpeedY, ballsSpeedY, numberOfBalls );
+        ballsColorRGB.put( (IntBuffer)balls.ballsColorRGB.duplicate().position( 0 ).limit( numberOfBalls ) ).clear();
+        ballsBorderColorIndex.put(
+            (ByteBuffer)balls.ballsBorderColorIndex.duplicate().position( 0 ).limit( numberOfBalls )
+        ).clear();
+        ballsRemainingLifetime.put(
+            (IntBuffer)balls.ballsRemainingLifetime.duplicate().position( 0 ).limit( numberOfBalls )
+        ).clear();
+    }
+
+    /**
+     * write the state in the format of Balls.writeState(), copied from the buffers in bulk.
+     */
+    @Override
+    public void writeState( ByteBuffer buffer ) {
+        writeStateHeader( buffer, numberOfBalls, largestBallsSpeed, lastTimeScale );
+        putBuffer( buffer, ballsCenterX );
+        putBuffer( buffer, ballsCenterY );
+        putBuffer( buffer, ballsPreviousCenterX );
+        putBuffer( buffer, ballsPreviousCenterY );
+        putBuffer( buffer, ballsSpeedX );
+        putBuffer( buffer, ballsSpeedY );
+        buffer.asIntBuffer().put( (IntBuffer)ballsColorRGB.duplicate().position( 0 ).limit( numberOfBalls ) );
+        buffer.position( buffer.position() + numberOfBalls * 4 );
+        buffer.asIntBuffer().put(
+            (IntBuffer)ballsRemainingLifetime.duplicate().position( 0 ).limit( numberOfBalls )
+        );
+        buffer.position( buffer.position() + numberOfBalls * 4 );
+        buffer.put( (ByteBuffer)ballsBorderColorIndex.duplicate().position( 0 ).limit( numberOfBalls ) );
+    }
+
+    @Override
+    public void readState( ByteBuffer buffer ) {
+        int theNumberOfBalls = readStateHeader( buffer );
+
+        reserveBalls( theNumberOfBalls );
+        numberOfBalls = theNumberOfBalls;
+        largestBallsSpeed = buffer.getDouble();
+        lastTimeScale = buffer.getDouble();
+        getBuffer( buffer, ballsCenterX );
+        getBuffer( buffer, ballsCenterY );
+        getBuffer( buffer, ballsPreviousCenterX );
+        getBuffer( buffer, ballsPreviousCenterY );
+        getBuffer( buffer, ballsSpeedX );
+        getBuffer( buffer, ballsSpeedY );
+        ballsColorRGB.put( (IntBuffer)buffer.asIntBuffer().limit( numberOfBalls ) ).clear();
+        buffer.position( buffer.position() + numberOfBalls * 4 );
+        ballsRemainingLifetime.put( (IntBuffer)buffer.asIntBuffer().limit( numberOfBalls ) ).clear();
+        buffer.position( buffer.position() + numberOfBalls * 4 );
+        ballsBorderColorIndex.put( (ByteBuffer)buffer.duplicate().limit( buffer.position() + numberOfBalls ) ).clear();
+        buffer.position( buffer.position() + numberOfBalls );
+    }
+
+    private void putBuffer( ByteBuffer buffer, DoubleBuffer from ) {
+        buffer.asDoubleBuffer().put( (DoubleBuffer)from.duplicate().position( 0 ).limit( numberOfBalls ) );
+        buffer.position( buffer.position() + numberOfBalls * 8 );
+    }
+
+    private void getBuffer( ByteBuffer buffer, DoubleBuffer to ) {
+        to.put( (DoubleBuffer)buffer.asDoubleBuffer().limit( numberOfBalls ) ).clear();
+        buffer.position( buffer.position() + numberOfBalls * 8 );
+    }
+
+    @Override
+    public void ballsInitialLaunch() {
+        if( isShrinkingEnabled() && sizeOfBallsBuffer > DEFAULT_SIZE_OF_BALLS_BUFFER ) {
+            resizeBallsBuffers( DEFAULT_SIZE_OF_BALLS_BUFFER );
+        }
+        reserveBalls( getNumberOfInitialBalls() );
+
+        numberOfBalls = 0;
+        largestBallsSpeed = 0.0;
+        for( int i = 0; i < getNumberOfInitialBalls(); i++ ) {
+            launchABall();
+        }
+    }
+
+    /**
+     * launch a new ball in this game. (the random values are drawn in the same order as HeapBalls)
+     */
+    @Override
+    public void launchABall() {
+        double speedX;
+        double speedY;
+
+        if( numberOfBalls >= sizeOfBallsBuffer ) {
+            increaseSizeOfBallsBuffer();
+        }
+
+        speedX = randomBallsSpeed();
+        speedY = randomBallsSpeed();
+        ballsColorRGB.put( numberOfBalls, randomBallsColor() );
+        ballsBorderColorIndex.put( numberOfBalls, randomBallsBorderColor() );
+        if( randomBallsQuadrant() == 2 ) {
+            speedX = speedX * (-1.0);   // make x vector speed negative
+        }
+
+        ballsCenterX.put( numberOfBalls, getLaunchPositionX() );
+        ballsCenterY.put( numberOfBalls, getLaunchPositionY() );
+        ballsPreviousCenterX.put( numberOfBalls, getLaunchPositionX() );
+        ballsPreviousCenterY.put( numberOfBalls, getLaunchPositionY() );
+        ballsSpeedX.put( numberOfBalls, speedX );
+        ballsSpeedY.put( numberOfBalls, speedY );
+        ballsRemainingLifetime.put( numberOfBalls, getBallsTimeToLive() );
+        largestBallsSpeed = Math.max( largestBallsSpeed, Math.max( Math.abs( speedX ), Math.abs( speedY ) ) );
+
+        numberOfBalls++;
+    }
+
+    @Override
+    public void ballsMove( int theBoundaryX, int theBoundaryY, double timeScale ) {
+        if( numberOfBalls >= getParallelMovingThreshold() ) {
+            ForkJoinPool.commonPool().invoke(
+                new BallsMovingTask( 0, numberOfBalls, theBoundaryX, theBoundaryY, timeScale )
+            );
+        } else {
+            moveBallsInRange( 0, numberOfBalls, theBoundaryX, theBoundaryY, timeScale );
+        }
+        boundaryX = theBoundaryX;
+        boundaryY = theBoundaryY;
+        lastTimeScale = timeScale;
+
+        if( getBallsTimeToLive() > 0 ) {
+            despawnExpiredBalls();
+        }
+    }
+
+    /**
+     * move the balls of index fromIndex (inclusive) to toIndex (exclusive),
+     * and let them rebound from the walls. (as often as they hit a wall during the move)
+     */
+    private void moveBallsInRange(
+        int fromIndex, int toIndex, int theBoundaryX, int theBoundaryY, double timeScale
+    ) {
+        for( int i = fromIndex; i < toIndex; i++ ) {
+            double centerX = ballsCenterX.get( i );
+            double centerY = ballsCenterY.get( i );
+
+            ballsPreviousCenterX.put( i, centerX );
+            ballsPreviousCenterY.put( i, centerY );
+            moveAxis( ballsCenterX, ballsSpeedX, i, centerX, theBoundaryX, timeScale );
+            moveAxis( ballsCenterY, ballsSpeedY, i, centerY, theBoundaryY, timeScale );
+        }
+    }
+
+    /**
+     * move a ball along an axis, with the same arithmetic as HeapBalls.
+     */
+    private void moveAxis(
+        DoubleBuffer center, DoubleBuffer speed, int i, double centerBeforeMove, int boundary, double timeScale
+    ) {
+        double r = (double)getRadius();
+        double limit = (double)boundary;
+        double ballsSpeed = speed.get( i );
+        double position = centerBeforeMove + ballsSpeed * timeScale;
+        boolean rebounded = false;
+
+        while( position - r < 0 || position + r > limit ) {
+            if( position - r < 0 ) {
+                position = r + (0 - (position - r));
+            } else {
+                position = limit - r - (position + r - limit);
+            }
+            ballsSpeed = ballsSpeed * (-1.0);
+            rebounded = true;
+            if( limit - r <= r ) {
+                break;      // the window is too small for a ball
+            }
+        }
+
+        center.put( i, position );
+        if( rebounded ) {
+            speed.put( i, ballsSpeed );
+        }
+    }
+
+    /**
+     * Move a range of balls, split in halves until a range fits in one chunk.
+     * (absolute buffer accesses, so the tasks share the buffers)
+     */
+    private class BallsMovingTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int fromIndex;
+        private final int toIndex;
+        private final int boundaryX;
+        private final int boundaryY;
+        private final double timeScale;
+
+        public BallsMovingTask(
+            int fromIndex, int toIndex, int boundaryX, int boundaryY, double timeScale
+        ) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.boundaryX = boundaryX;
+            this.boundaryY = boundaryY;
+            this.timeScale = timeScale;
+        }
+
+        @Override
+        protected void compute() {
+            if( toIndex - fromIndex <= PARALLEL_MOVING_CHUNK_SIZE ) {
+                moveBallsInRange( fromIndex, toIndex, boundaryX, boundaryY, timeScale );
+            } else {
+                int middleIndex = (fromIndex + toIndex) >>> 1;
+                invokeAll(
+                    new BallsMovingTask( fromIndex, middleIndex, boundaryX, boundaryY, timeScale ),
+                    new BallsMovingTask( middleIndex, toIndex, boundaryX, boundaryY, timeScale )
+                );
+            }
+        }
+    }
+
+    /**
+     * count down the balls' lifetime, and remove the balls whose lifetime ran out.
+     */
+    private void despawnExpiredBalls() {
+        int remainingLifetime;
+
+        for( int i = numberOfBalls - 1; i >= 0; i-- ) {
+            remainingLifetime = ballsRemainingLifetime.get( i );
+            if( remainingLifetime > 0 ) {
+                ballsRemainingLifetime.put( i, remainingLifetime - 1 );
+                if( remainingLifetime == 1 ) {
+                    removeBall( i );
+                }
+            }
+        }
+    }
+
+    @Override
+    public void removeBall( int index ) {
+        int lastIndex = numberOfBalls - 1;
+
+        if( index < 0 || index > lastIndex ) {
+            return;
+        }
+
+        ballsCenterX.put( index, ballsCenterX.get( lastIndex ) );
+        ballsCenterY.put( index, ballsCenterY.get( lastIndex ) );
+        ballsPreviousCenterX.put( index, ballsPreviousCenterX.get( lastIndex ) );
+        ballsPreviousCenterY.put( index, ballsPreviousCenterY.get( lastIndex ) );
+        ballsSpeedX.put( index, ballsSpeedX.get( lastIndex ) );
+        ballsSpeedY.put( index, ballsSpeedY.get( lastIndex ) );
+        ballsColorRGB.put( index, ballsColorRGB.get( lastIndex ) );
+        ballsBorderColorIndex.put( index, ballsBorderColorIndex.get( lastIndex ) );
+        ballsRemainingLifetime.put( index, ballsRemainingLifetime.get( lastIndex ) );
+        numberOfBalls--;
+
+        if( isShrinkingEnabled() && sizeOfBallsBuffer > DEFAULT_SIZE_OF_BALLS_BUFFER
+                && numberOfBalls < sizeOfBallsBuffer / SHRINKING_OCCUPANCY_DIVISOR ) {
+            resizeBallsBuffers( Math.max( sizeOfBallsBuffer / 2, DEFAULT_SIZE_OF_BALLS_BUFFER ) );
+        }
+    }
+
+    @Override
+    public boolean isAnyBallCollidedWith( double centerX, double centerY, int theRadius ) {
+        return isAnyBallOverlapping( centerX, centerY, theRadius );
+    }
+
+    @Override
+    public boolean isAnyBallSweptCollidedWith(
+        double previousCenterX, double previousCenterY, double centerX, double centerY, int theRadius
+    ) {
+        return isAnyBallSweptOverlapping( previousCenterX, previousCenterY, centerX, centerY, theRadius );
+    }
+
+    @Override
+    public boolean isAnyBallSweptOverlapping(
+        double previousCenterX, double previousCenterY, double centerX, double centerY, int theRadius
+    ) {
+        double distance = (double)getRadius() + (double)theRadius;
+        double distanceSquare = distance * distance;
+
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            if( isSweptHit(
+                    (double)getRadius(), boundaryX, boundaryY, lastTimeScale,
+                    ballsPreviousCenterX.get( i ), ballsPreviousCenterY.get( i ),
+                    ballsCenterX.get( i ), ballsCenterY.get( i ), ballsSpeedX.get( i ), ballsSpeedY.get( i ),
+                    previousCenterX, previousCenterY, centerX, centerY, distanceSquare
+                ) ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean isAnyBallOverlapping( double centerX, double centerY, int theRadius ) {
+        double minDistance = (double)getRadius() + (double)theRadius;
+        double minDistanceSquare = minDistance * minDistance;
+        double distanceX;
+        double distanceY;
+
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            distanceX = ballsCenterX.get( i ) - centerX;
+            distanceY = ballsCenterY.get( i ) - centerY;
+            if( (distanceX * distanceX + distanceY * distanceY) < minDistanceSquare ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public void copyPositionsTo(
+        double[] previousCenterX, double[] previousCenterY, double[] centerX, double[] centerY
+    ) {
+        ((DoubleBuffer)ballsPreviousCenterX.duplicate().position( 0 )).get( previousCenterX, 0, numberOfBalls );
+        ((DoubleBuffer)ballsPreviousCenterY.duplicate().position( 0 )).get( previousCenterY, 0, numberOfBalls );
+        ((DoubleBuffer)ballsCenterX.duplicate().position( 0 )).get( centerX, 0, numberOfBalls );
+        ((DoubleBuffer)ballsCenterY.duplicate().position( 0 )).get( centerY, 0, numberOfBalls );
+    }
+
+    @Override
+    public void copyColorsTo( int[] colorRGB, byte[] borderColorIndex ) {
+        ((IntBuffer)ballsColorRGB.duplicate().position( 0 )).get( colorRGB, 0, numberOfBalls );
+        ((ByteBuffer)ballsBorderColorIndex.duplicate().position( 0 )).get( borderColorIndex, 0, numberOfBalls );
+    }
+
+    @Override
+    public Color getBallsBorderColor( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return Color.BLACK;
+        } else {
+            return getBorderColor( ballsBorderColorIndex.get( index ) );
+        }
+    }
+
+    @Override
+    public int getBallsBorderColorIndex( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0;
+        } else {
+            return ballsBorderColorIndex.get( index );
+        }
+    }
+
+    @Override
+    public Color getBallsColor( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return Color.BLACK;
+        } else {
+            return new Color( ballsColorRGB.get( index ) );
+        }
+    }
+
+    @Override
+    public int getBallsColorRGB( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return Color.BLACK.getRGB();
+        } else {
+            return ballsColorRGB.get( index );
+        }
+    }
+
+    @Override
+    public double getBallsCenterX( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0.0;
+        } else {
+            return ballsCenterX.get( index );
+        }
+    }
+
+    @Override
+    public double getballsCenterY( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0.0;
+        } else {
+            return ballsCenterY.get( index );
+        }
+    }
+
+    @Override
+    public int getBallsPositionX1( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0;
+        }
+
+        return (int)(ballsCenterX.get( index ) - (double)getRadius());
+    }
+
+    @Override
+    public int getBallsPositionY1( int index ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0;
+        }
+
+        return (int)(ballsCenterY.get( index ) - (double)getRadius());
+    }
+
+    @Override
+    public int getBallsPositionX1( int index, double alpha ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0;
+        }
+
+        return (int)(ballsPreviousCenterX.get( index )
+                     + (ballsCenterX.get( index ) - ballsPreviousCenterX.get( index )) * alpha - (double)getRadius());
+    }
+
+    @Override
+    public int getBallsPositionY1( int index, double alpha ) {
+        if( index < 0 || index >= numberOfBalls ) {
+            return 0;
+        }
+
+        return (int)(ballsPreviousCenterY.get( index )
+                     + (ballsCenterY.get( index ) - ballsPreviousCenterY.get( index )) * alpha - (double)getRadius());
+    }
+
+    @Override
+    public int getSizeOfBallsArray() {
+        return sizeOfBallsBuffer;
+    }
+
+    @Override
+    public int getNumberOfBalls() {
+        return numberOfBalls;
+    }
+}
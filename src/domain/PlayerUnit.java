@@ -1,6 +1,7 @@
 package domain;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
 
 /**
  * Player controlled unit in this game
@@ -11,17 +12,22 @@ public class PlayerUnit {
     private final double DEFAULT_PLAYER_UNIT_SPEED = 6.0;    // default speed is 6.0
     private final int PLAYER_UNIT_INITIAL_POSITION_X = 320;  // initial x position is 320
     private final int PLAYER_UNIT_INITIAL_POSITION_Y = 460;  //   initial y position is 460
+    private final int STATE_SIZE = 4 * 4 + 8 * 8 + 2 * 4;   // bytes written by writeState()
    
     private int radius;
     private int diameter;
     private double centerX;    // the x position of player unit's center
     private double centerY;    // the y position of player unit's center
+    private double previousCenterX;    // the x position of player unit's center before the last move
+    private double previousCenterY;    // the y position of player unit's center before the last move
     private double speedX;     // the x-axis speed
     private double speedY;     // the y-axis speed
     private int directionX;    // the x-axis direction. -1: left, 0: not move, 1: right
     private int directionY;    // the y-axis direction. -1: up, 0: not move, 1: down
     private Color color1;
     private Color color2;
+    private double initialPositionX;    // where player unit is launched
+    private double initialPositionY;
    
     public PlayerUnit() {
         initialize();
@@ -36,12 +42,16 @@ public class PlayerUnit {
         diameter = theDiameter;
         this.centerX = centerX;
         this.centerY = centerY;
+        this.previousCenterX = centerX;
+        this.previousCenterY = centerY;
         this.speedX = speedX;
         this.speedY = speedY;
         this.directionX = directionX;
         this.directionY = directionY;
         this.color1 = color1;
         this.color2 = color2;
+        initialPositionX = PLAYER_UNIT_INITIAL_POSITION_X;
+        initialPositionY = PLAYER_UNIT_INITIAL_POSITION_Y;
     }
    
     /**
@@ -52,20 +62,26 @@ public class PlayerUnit {
         diameter = radius * 2;
         centerX = PLAYER_UNIT_INITIAL_POSITION_X;
         centerY = PLAYER_UNIT_INITIAL_POSITION_Y;
+        previousCenterX = centerX;
+        previousCenterY = centerY;
         speedX = 0.0;
         speedY = 0.0;
         directionX = 0;
         directionY = 0;
         color1 = Color.BLUE;
         color2 = Color.YELLOW;
+        initialPositionX = PLAYER_UNIT_INITIAL_POSITION_X;
+        initialPositionY = PLAYER_UNIT_INITIAL_POSITION_Y;
     }
    
     /**
      * set player unit configuration while first launching.
      */
     public void initialLaunch() {
-        centerX = (double)PLAYER_UNIT_INITIAL_POSITION_X;
-        centerY = (double)PLAYER_UNIT_INITIAL_POSITION_Y;
+        centerX = initialPositionX;
+        centerY = initialPositionY;
+        previousCenterX = centerX;
+        previousCenterY = centerY;
         speedX = 0.0;
         speedY = 0.0;
         directionX = 0;
@@ -76,6 +92,14 @@ public class PlayerUnit {
      * move player unit
      */
     public void unitMove( int boundaryX, int boundaryY ) {
+        unitMove( boundaryX, boundaryY, 1.0 );
+    }
+   
+    /**
+     * move player unit by its speed multiplied by the specified time scale.
+     * (the speed is defined per 1/60 second)
+     */
+    public void unitMove( int boundaryX, int boundaryY, double timeScale ) {
         // update player unit's speed
         speedX = 0.0;
         speedY = 0.0;
@@ -91,8 +115,10 @@ public class PlayerUnit {
         }
        
         // move player unit
-        centerX += speedX;
-        centerY += speedY;
+        previousCenterX = centerX;
+        previousCenterY = centerY;
+        centerX += speedX * timeScale;
+        centerY += speedY * timeScale;
        
         // check if player unit hit the wall
         if( (centerX - (double)radius) < 0.0 ) {
@@ -107,6 +133,73 @@ public class PlayerUnit {
         }
     }
    
+    /**
+     * get the number of bytes writeState() writes.
+     */
+    public int getStateSize() {
+        return STATE_SIZE;
+    }
+   
+    /**
+     * write the state of player unit at the buffer's position, in the buffer's byte order:
+     * radius, diameter, direction x, y (int), center x, y, previous center x, y, speed x, y,
+     * initial position x, y (double), color 1, 2 (int, packed ARGB)
+     */
+    public void writeState( ByteBuffer buffer ) {
+        buffer.putInt( radius );
+        buffer.putInt( diameter );
+        buffer.putInt( directionX );
+        buffer.putInt( directionY );
+        buffer.putDouble( centerX );
+        buffer.putDouble( centerY );
+        buffer.putDouble( previousCenterX );
+        buffer.putDouble( previousCenterY );
+        buffer.putDouble( speedX );
+        buffer.putDouble( speedY );
+        buffer.putDouble( initialPositionX );
+        buffer.putDouble( initialPositionY );
+        buffer.putInt( color1.getRGB() );
+        buffer.putInt( color2.getRGB() );
+    }
+   
+    /**
+     * read the state written by writeState() from the buffer's position.
+     * (the colors are replaced only if they changed)
+     */
+    public void readState( ByteBuffer buffer ) {
+        int color1RGB;
+        int color2RGB;
+       
+        radius = buffer.getInt();
+        diameter = buffer.getInt();
+        directionX = buffer.getInt();
+        directionY = buffer.getInt();
+        centerX = buffer.getDouble();
+        centerY = buffer.getDouble();
+        previousCenterX = buffer.getDouble();
+        previousCenterY = buffer.getDouble();
+        speedX = buffer.getDouble();
+        speedY = buffer.getDouble();
+        initialPositionX = buffer.getDouble();
+        initialPositionY = buffer.getDouble();
+        color1RGB = buffer.getInt();
+        color2RGB = buffer.getInt();
+        if( color1.getRGB() != color1RGB ) {
+            color1 = new Color( color1RGB, true );
+        }
+        if( color2.getRGB() != color2RGB ) {
+            color2 = new Color( color2RGB, true );
+        }
+    }
+   
+    /**
+     * set where player unit is launched. ((320, 460) by default: the bottom center of a 640 x 480 window)
+     */
+    public void setInitialPosition( double initialPositionX, double initialPositionY ) {
+        this.initialPositionX = initialPositionX;
+        this.initialPositionY = initialPositionY;
+    }
+   
     public Color getColor1() {
         return color1;
     }
@@ -123,6 +216,14 @@ public class PlayerUnit {
         return centerY;
     }
    
+    public double getPreviousCenterX() {
+        return previousCenterX;
+    }
+   
+    public double getPreviousCenterY() {
+        return previousCenterY;
+    }
+   
     public int getDiameter() {
         return diameter;
     }
@@ -135,6 +236,22 @@ public class PlayerUnit {
         return (int)(centerY - (double)radius);
     }
    
+    /**
+     * get the x position, interpolated between the previous and current position.
+     * (alpha: 0.0 is the previous position, 1.0 is the current position)
+     */
+    public int getPositionX1( double alpha ) {
+        return (int)(previousCenterX + (centerX - previousCenterX) * alpha - (double)radius);
+    }
+   
+    /**
+     * get the y position, interpolated between the previous and current position.
+     * (alpha: 0.0 is the previous position, 1.0 is the current position)
+     */
+    public int getPositionY1( double alpha ) {
+        return (int)(previousCenterY + (centerY - previousCenterY) * alpha - (double)radius);
+    }
+   
     public int getRadius() {
         return radius;
     }
@@ -0,0 +1,48 @@
+package domain;
+
+/**
+ * The SplitMix64 random generator, producing the same sequence as a
+ * java.util.SplittableRandom created with the same seed.
+ * Unlike SplittableRandom, it can be reseeded without allocating a new generator,
+ * and its state (the seed) can be read, e.g. for saving it in a snapshot.
+ */
+public class SplitMix64 {
+
+    private final static long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private final static double DOUBLE_UNIT = 0x1.0p-53;       // 1.0 / 2^53
+
+    private long seed;
+
+    public SplitMix64( long theSeed ) {
+        seed = theSeed;
+    }
+
+    public void setSeed( long theSeed ) {
+        seed = theSeed;
+    }
+
+    /**
+     * get the current state: a generator with this seed continues the same sequence.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public long nextLong() {
+        seed += GOLDEN_GAMMA;
+        return mix64( seed );
+    }
+
+    /**
+     * a uniformly distributed value between 0.0 (inclusive) and 1.0 (exclusive).
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    private static long mix64( long z ) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,13 +1,55 @@
 package main;
 
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.management.JMException;
+
 import core.BouncingBallCore;
+import core.InputRecorder;
 import view.MainFrame;
 
+/**
+ * usage: BouncingBall [-record file] [-passive] [-bounce]
+ *        BouncingBall -stress [properties file] [key=value ...]   (see StressMode)
+ * -record:  record the inputs of the first game into the file (see BouncingBallReplay)
+ * -passive: repaint the screen from the event dispatch thread, instead of rendering actively
+ * -bounce:  balls bounce off each other (not stored in the recording, so such games are
+ *           not replayed the same)
+ * The tick statistics are published as the MBean "BouncingBall:type=TickStatistics".
+ */
 public class BouncingBall {
 
-    public static void main( String args[] ) {
-        MainFrame mainFrame = new MainFrame();
+    public static void main( String args[] ) throws IOException {
+        if( args.length > 0 && args[ 0 ].equals( "-stress" ) ) {
+            StressMode.main( Arrays.copyOfRange( args, 1, args.length ) );
+            return;
+        }
+       
+        String recordFileName = null;
+        boolean activeRendering = true;
+        boolean ballsCollisionEnabled = false;
+        for( int i = 0; i < args.length; i++ ) {
+            if( args[ i ].equals( "-record" ) && i + 1 < args.length ) {
+                recordFileName = args[ ++i ];
+            } else if( args[ i ].equals( "-passive" ) ) {
+                activeRendering = false;
+            } else if( args[ i ].equals( "-bounce" ) ) {
+                ballsCollisionEnabled = true;
+            }
+        }
+       
+        MainFrame mainFrame = new MainFrame( activeRendering );
         BouncingBallCore bouncingBallCore = new BouncingBallCore( mainFrame );
+        bouncingBallCore.setBallsCollisionEnabled( ballsCollisionEnabled );
+        if( recordFileName != null ) {
+            bouncingBallCore.setInputRecorder( new InputRecorder( recordFileName ) );
+        }
+        try {
+            bouncingBallCore.getTickStatistics().registerMBean();
+        } catch( JMException e ) {
+            e.printStackTrace();
+        }
        
         mainFrame.setVisible( true );
         bouncingBallCore.execute();
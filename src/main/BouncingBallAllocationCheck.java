@@ -0,0 +1,110 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+
+import core.BouncingBallCore;
+import core.SpawnRateCurve;
+import domain.Balls;
+import domain.HeapBalls;
+import view.HeadlessGameView;
+
+/**
+ * Check that the game loop allocates nothing in the steady state:
+ * after warming up, run ticks without display (restarting whenever the game is over),
+ * and measure the bytes allocated by this thread. Exits with status 1 if it allocates.
+ * The ticks are measured in a few rounds, and the least allocating round counts,
+ * since the JVM itself may allocate once in a while on this thread (e.g. when deoptimizing);
+ * an allocation of the game loop shows up in every round.
+ * Then the same with a growing number of balls: each round, a new core (balls reserved up front,
+ * invincible player unit) spawns balls through many buckets of the tick statistics' numbers of balls.
+ * usage: BouncingBallAllocationCheck [number of ticks per round] [number of warm-up ticks]
+ */
+public class BouncingBallAllocationCheck {
+
+    private final static long DEFAULT_NUMBER_OF_TICKS = 10000;
+    private final static long DEFAULT_NUMBER_OF_WARM_UP_TICKS = 100000;
+    private final static int NUMBER_OF_ROUNDS = 3;
+    private final static long NUMBER_OF_GROWING_TICKS = 360;
+    private final static String GROWING_SPAWN_RATE = "6000";      // balls per second (about 36000 balls at last)
+    private final static int NUMBER_OF_RESERVED_BALLS = 40000;
+
+    public static void main( String args[] ) {
+        long numberOfTicks = DEFAULT_NUMBER_OF_TICKS;
+        if( args.length > 0 ) {
+            numberOfTicks = Long.parseLong( args[ 0 ] );
+        }
+        long numberOfWarmUpTicks = DEFAULT_NUMBER_OF_WARM_UP_TICKS;
+        if( args.length > 1 ) {
+            numberOfWarmUpTicks = Long.parseLong( args[ 1 ] );
+        }
+
+        com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        HeadlessGameView headlessGameView = new HeadlessGameView();
+        BouncingBallCore bouncingBallCore = new BouncingBallCore( headlessGameView );
+        bouncingBallCore.setSessionSeed( 1 );
+        bouncingBallCore.executeTicks( numberOfWarmUpTicks );
+
+        // the bytes allocated by measuring itself, subtracted from the results
+        long measuringBytes = -threadMXBean.getThreadAllocatedBytes( threadId );
+        measuringBytes += threadMXBean.getThreadAllocatedBytes( threadId );
+
+        long leastAllocatedBytes = Long.MAX_VALUE;
+        for( int round = 1; round <= NUMBER_OF_ROUNDS; round++ ) {
+            long numberOfGamesOver = -headlessGameView.getNumberOfGamesOver();
+            long allocatedBytes = -threadMXBean.getThreadAllocatedBytes( threadId );
+            bouncingBallCore.executeTicks( numberOfTicks );
+            allocatedBytes += threadMXBean.getThreadAllocatedBytes( threadId ) - measuringBytes;
+            numberOfGamesOver += headlessGameView.getNumberOfGamesOver();
+
+            System.out.println( String.format(
+                "round %d: %d ticks, %d games over, %d bytes allocated",
+                round, numberOfTicks, numberOfGamesOver, allocatedBytes
+            ) );
+            leastAllocatedBytes = Math.min( leastAllocatedBytes, allocatedBytes );
+        }
+
+        // warm up the growing game once, before measuring it
+        newGrowingCore().executeTicks( NUMBER_OF_GROWING_TICKS );
+
+        long leastGrowingAllocatedBytes = Long.MAX_VALUE;
+        for( int round = 1; round <= NUMBER_OF_ROUNDS; round++ ) {
+            BouncingBallCore growingCore = newGrowingCore();
+            growingCore.executeTicks( 1 );      // start the game
+            long allocatedBytes = -threadMXBean.getThreadAllocatedBytes( threadId );
+            growingCore.executeTicks( NUMBER_OF_GROWING_TICKS );
+            allocatedBytes += threadMXBean.getThreadAllocatedBytes( threadId ) - measuringBytes;
+
+            System.out.println( String.format(
+                "growing round %d: %d ticks, %d balls at last, %d bytes allocated",
+                round, NUMBER_OF_GROWING_TICKS, growingCore.getTickStatistics().getNumberOfBalls(), allocatedBytes
+            ) );
+            leastGrowingAllocatedBytes = Math.min( leastGrowingAllocatedBytes, allocatedBytes );
+        }
+        leastAllocatedBytes = Math.max( leastAllocatedBytes, leastGrowingAllocatedBytes );
+
+        if( leastAllocatedBytes > 0 ) {
+            System.out.println( "FAILED: the game loop allocates" );
+            System.exit( 1 );
+        }
+        System.out.println( "OK" );
+    }
+
+    /**
+     * a core whose number of balls keeps growing: the player unit is invincible,
+     * and the balls are reserved up front, so growing doesn't reallocate them.
+     */
+    private static BouncingBallCore newGrowingCore() {
+        Balls balls = new HeapBalls();
+        balls.reserveBalls( NUMBER_OF_RESERVED_BALLS );
+
+        BouncingBallCore bouncingBallCore = new BouncingBallCore( new HeadlessGameView() );
+        bouncingBallCore.setBalls( balls );
+        bouncingBallCore.setPlayerUnitInvincible( true );
+        bouncingBallCore.setSpawnRateCurve( SpawnRateCurve.parse( GROWING_SPAWN_RATE ) );
+        bouncingBallCore.setSessionSeed( 1 );
+        return bouncingBallCore;
+    }
+}
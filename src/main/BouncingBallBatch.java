@@ -0,0 +1,104 @@
+package main;
+
+import java.util.SplittableRandom;
+
+import core.BatchResult;
+import core.BatchRunner;
+import core.BouncingBallCore;
+import core.InputPolicy;
+import domain.Balls;
+import domain.PlayerUnit;
+
+/**
+ * Run many headless games concurrently, each controlled by an input policy,
+ * and report the survival ticks, the balls at death & the ticks per second.
+ * usage: BouncingBallBatch [number of sessions] [number of threads] [batch seed] [idle|random]
+ */
+public class BouncingBallBatch {
+
+    private final static int DEFAULT_NUMBER_OF_SESSIONS = 1000;
+    private final static int DEFAULT_TICKS_PER_SECOND = 60;
+    private final static long MAX_TICKS_PER_GAME = 60L * 60 * 60;     // a game lasts at most 1 hour
+    private final static int RANDOM_WALK_STEP_TICKS = 30;              // the random walk turns each 1/2 second
+
+    public static void main( String args[] ) throws InterruptedException {
+        int numberOfSessions = DEFAULT_NUMBER_OF_SESSIONS;
+        if( args.length > 0 ) {
+            numberOfSessions = Integer.parseInt( args[ 0 ] );
+        }
+        int numberOfThreads = Runtime.getRuntime().availableProcessors();
+        if( args.length > 1 ) {
+            numberOfThreads = Integer.parseInt( args[ 1 ] );
+        }
+        long batchSeed = 0;
+        if( args.length > 2 ) {
+            batchSeed = Long.parseLong( args[ 2 ] );
+        }
+        final String policy = (args.length > 3) ? args[ 3 ] : "random";
+        if( !policy.equals( "idle" ) && !policy.equals( "random" ) ) {
+            System.err.println( "usage: BouncingBallBatch [number of sessions] [number of threads] [batch seed] [idle|random]" );
+            System.exit( 1 );
+        }
+        final long policySeed = batchSeed;
+
+        BatchRunner batchRunner = new BatchRunner( numberOfThreads, DEFAULT_TICKS_PER_SECOND, MAX_TICKS_PER_GAME );
+        BatchResult batchResult = batchRunner.run( numberOfSessions, batchSeed, new BatchRunner.InputPolicyFactory() {
+            @Override
+            public InputPolicy createInputPolicy( int session ) {
+                if( policy.equals( "idle" ) ) {
+                    return new IdleInputPolicy();
+                }
+                return new RandomWalkInputPolicy( policySeed + session );
+            }
+        } );
+
+        System.out.println( String.format( "sessions:        %d", batchResult.getNumberOfSessions() ) );
+        System.out.println( String.format( "threads:         %d", batchRunner.getNumberOfThreads() ) );
+        System.out.println( String.format( "games over:      %d", batchResult.getNumberOfGamesOver() ) );
+        System.out.println( String.format( "ticks:           %d", batchResult.getTotalTicks() ) );
+        System.out.println( String.format( "elapsed time:    %.3f s", batchResult.getElapsedTime() / 1e9 ) );
+        System.out.println( String.format( "ticks/second:    %.1f", batchResult.getTicksPerSecond() ) );
+        System.out.println( String.format( "survival ticks:  mean %.1f, p50 %d, p99 %d, max %d",
+            batchResult.getMeanSurvivalTicks(),
+            batchResult.getSurvivalTicksPercentile( 0.5 ),
+            batchResult.getSurvivalTicksPercentile( 0.99 ),
+            batchResult.getSurvivalTicksPercentile( 1.0 )
+        ) );
+        System.out.println( String.format( "balls at death:  mean %.2f, max %d",
+            batchResult.getMeanBallsAtDeath(), batchResult.getMaxBallsAtDeath()
+        ) );
+    }
+
+    /**
+     * never presses any key.
+     */
+    private static class IdleInputPolicy implements InputPolicy {
+        @Override
+        public int nextInput( Balls balls, PlayerUnit playerUnit, long gameTicks ) {
+            return 0;
+        }
+    }
+
+    /**
+     * presses random arrow keys, changed every RANDOM_WALK_STEP_TICKS ticks.
+     */
+    private static class RandomWalkInputPolicy implements InputPolicy {
+
+        private SplittableRandom random;
+        private int input;
+
+        public RandomWalkInputPolicy( long seed ) {
+            random = new SplittableRandom( seed );
+            input = 0;
+        }
+
+        @Override
+        public int nextInput( Balls balls, PlayerUnit playerUnit, long gameTicks ) {
+            if( gameTicks % RANDOM_WALK_STEP_TICKS == 1 ) {
+                input = random.nextInt( (BouncingBallCore.INPUT_UP | BouncingBallCore.INPUT_DOWN
+                                         | BouncingBallCore.INPUT_LEFT | BouncingBallCore.INPUT_RIGHT) + 1 );
+            }
+            return input;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package main;
+
+import java.util.SplittableRandom;
+
+import core.BouncingBallCore;
+import core.SpawnRateCurve;
+import domain.Balls;
+import domain.HeapBalls;
+import domain.PlayerUnit;
+import view.HeadlessGameView;
+
+/**
+ * Check that the collision detection modes of BouncingBallCore agree: run seeded games (the player unit
+ * invincible, steered by seeded random arrow keys) in game worlds of several sizes, down to worlds
+ * smaller than a ball, and at every tick compare
+ * - BRUTE_FORCE, SPATIAL_GRID (Balls.isAnyBallCollidedWith()) and BRANCHLESS_SCAN (Balls.isAnyBallOverlapping()):
+ *   the same result
+ * - CONTINUOUS (Balls.isAnyBallSweptCollidedWith(), on the spatial grid): the same result as the swept check
+ *   of every ball (Balls.isAnyBallSweptOverlapping()), and a hit whenever BRUTE_FORCE has a hit
+ * Exits with status 1 at the first disagreement.
+ * usage: BouncingBallCollisionCheck [number of ticks per game]
+ */
+public class BouncingBallCollisionCheck {
+
+    private final static long DEFAULT_NUMBER_OF_TICKS = 2000;
+    private final static long SESSION_SEEDS[] = { 1, 2, 3 };
+
+    // world width, world height, number of initial balls, spawn rate (balls per second; 0: a ball each 5 s)
+    private final static int CASES[][] = {
+        { 640, 480, 5, 0 },
+        { 640, 480, 50, 600 },
+        { 640, 480, 2000, 0 },
+        { 100, 80, 30, 60 },            // small
+        { 21, 21, 10, 0 },              // a ball just fits
+        { 20, 300, 10, 0 },             // exactly as wide as a ball
+        { 5, 5, 10, 0 },                // smaller than a ball
+        { 1, 1000, 10, 0 },
+        { 1000000, 1000000, 5, 0 },     // more cells than balls
+        { 100000, 40, 200, 0 }
+    };
+
+    public static void main( String args[] ) {
+        long numberOfTicks = DEFAULT_NUMBER_OF_TICKS;
+        if( args.length > 0 ) {
+            numberOfTicks = Long.parseLong( args[ 0 ] );
+        }
+
+        for( int c = 0; c < CASES.length; c++ ) {
+            for( int s = 0; s < SESSION_SEEDS.length; s++ ) {
+                if( !checkGame( CASES[ c ], SESSION_SEEDS[ s ], numberOfTicks ) ) {
+                    System.out.println( "FAILED: the collision detection modes disagree" );
+                    System.exit( 1 );
+                }
+            }
+        }
+        System.out.println( "OK" );
+    }
+
+    /**
+     * run a game, and compare the modes at every tick. Returns false at the first disagreement.
+     */
+    private static boolean checkGame( int gameCase[], long sessionSeed, long numberOfTicks ) {
+        RandomKeysGameView gameView = new RandomKeysGameView( sessionSeed );
+        BouncingBallCore bouncingBallCore = newGame( gameView, gameCase, sessionSeed );
+        long numberOfHits = 0;
+        long numberOfSweptOnlyHits = 0;
+
+        for( long tick = 1; tick <= numberOfTicks; tick++ ) {
+            bouncingBallCore.executeTicks( 1 );
+
+            Balls balls = gameView.getBalls();
+            PlayerUnit playerUnit = gameView.getPlayerUnit();
+            boolean bruteForce = isAnyBallCollidedBruteForce( balls, playerUnit );
+            boolean spatialGrid = balls.isAnyBallCollidedWith(
+                playerUnit.getCenterX(), playerUnit.getCenterY(), playerUnit.getRadius()
+            );
+            boolean branchlessScan = balls.isAnyBallOverlapping(
+                playerUnit.getCenterX(), playerUnit.getCenterY(), playerUnit.getRadius()
+            );
+            boolean continuous = balls.isAnyBallSweptCollidedWith(
+                playerUnit.getPreviousCenterX(), playerUnit.getPreviousCenterY(),
+                playerUnit.getCenterX(), playerUnit.getCenterY(), playerUnit.getRadius()
+            );
+            boolean sweptBruteForce = balls.isAnyBallSweptOverlapping(
+                playerUnit.getPreviousCenterX(), playerUnit.getPreviousCenterY(),
+                playerUnit.getCenterX(), playerUnit.getCenterY(), playerUnit.getRadius()
+            );
+
+            if( spatialGrid != bruteForce || branchlessScan != bruteForce ) {
+                report( gameCase, sessionSeed, tick, String.format(
+                    "BRUTE_FORCE %b, SPATIAL_GRID %b, BRANCHLESS_SCAN %b", bruteForce, spatialGrid, branchlessScan
+                ) );
+                return false;
+            }
+            if( continuous != sweptBruteForce || (bruteForce && !continuous) ) {
+                report( gameCase, sessionSeed, tick, String.format(
+                    "CONTINUOUS %b, swept check of every ball %b, BRUTE_FORCE %b",
+                    continuous, sweptBruteForce, bruteForce
+                ) );
+                return false;
+            }
+
+            if( bruteForce ) {
+                numberOfHits++;
+            } else if( continuous ) {
+                numberOfSweptOnlyHits++;
+            }
+        }
+
+        System.out.println( String.format(
+            "world %7d x %7d, %4d balls, seed %d: %d ticks, %d hits, %d more hits by CONTINUOUS, %d balls at the end",
+            gameCase[ 0 ], gameCase[ 1 ], gameCase[ 2 ], sessionSeed,
+            numberOfTicks, numberOfHits, numberOfSweptOnlyHits, gameView.getBalls().getNumberOfBalls()
+        ) );
+        return true;
+    }
+
+    private static BouncingBallCore newGame( HeadlessGameView gameView, int gameCase[], long sessionSeed ) {
+        BouncingBallCore bouncingBallCore = new BouncingBallCore( gameView );
+        Balls balls = new HeapBalls();
+
+        balls.setNumberOfInitialBalls( gameCase[ 2 ] );
+        bouncingBallCore.setBalls( balls );
+        bouncingBallCore.setWorldSize( gameCase[ 0 ], gameCase[ 1 ] );
+        if( gameCase[ 3 ] > 0 ) {
+            bouncingBallCore.setSpawnRateCurve( SpawnRateCurve.parse( Integer.toString( gameCase[ 3 ] ) ) );
+        }
+        bouncingBallCore.setSessionSeed( sessionSeed );
+        bouncingBallCore.setPlayerUnitInvincible( true );
+
+        return bouncingBallCore;
+    }
+
+    /**
+     * the same as BouncingBallCore's BRUTE_FORCE mode.
+     */
+    private static boolean isAnyBallCollidedBruteForce( Balls balls, PlayerUnit playerUnit ) {
+        double centerDistence_x;
+        double centerDistence_y;
+        double centerDistence_min = (double)balls.getRadius() + (double)playerUnit.getRadius();
+
+        for( int i = 0; i < balls.getNumberOfBalls(); i++ ) {
+            centerDistence_x = balls.getBallsCenterX( i ) - playerUnit.getCenterX();
+            centerDistence_y = balls.getballsCenterY( i ) - playerUnit.getCenterY();
+
+            if( (centerDistence_x * centerDistence_x + centerDistence_y * centerDistence_y) <
+                    (centerDistence_min * centerDistence_min) ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void report( int gameCase[], long sessionSeed, long tick, String message ) {
+        System.out.println( String.format(
+            "world %d x %d, %d balls, seed %d, tick %d: %s",
+            gameCase[ 0 ], gameCase[ 1 ], gameCase[ 2 ], sessionSeed, tick, message
+        ) );
+    }
+
+    /**
+     * A headless view whose arrow keys are pressed at random, changing every few ticks.
+     * (the same keys for the same seed)
+     */
+    private static class RandomKeysGameView extends HeadlessGameView {
+
+        private final int KEYS_CHANGING_INTERVAL = 8;
+
+        private SplittableRandom random;
+        private long numberOfRefreshes;
+        private int pressedKeys;            // bits: up, down, left, right
+
+        public RandomKeysGameView( long seed ) {
+            random = new SplittableRandom( seed );
+            numberOfRefreshes = 0;
+            pressedKeys = 0;
+        }
+
+        @Override
+        public void refreshScreen( double interpolationAlpha ) {
+            super.refreshScreen( interpolationAlpha );
+            if( numberOfRefreshes++ % KEYS_CHANGING_INTERVAL == 0 ) {
+                pressedKeys = random.nextInt( 16 );
+            }
+        }
+
+        @Override
+        public boolean isUpArrowKeyPressed() {
+            return (pressedKeys & 1) != 0;
+        }
+
+        @Override
+        public boolean isDownArrowKeyPressed() {
+            return (pressedKeys & 2) != 0;
+        }
+
+        @Override
+        public boolean isLeftArrowKeyPressed() {
+            return (pressedKeys & 4) != 0;
+        }
+
+        @Override
+        public boolean isRightArrowKeyPressed() {
+            return (pressedKeys & 8) != 0;
+        }
+
+        @Override
+        public boolean isBothUpAndDownArrowKeyPressed() {
+            return (pressedKeys & 3) == 3;
+        }
+
+        @Override
+        public boolean isBothLeftAndRightArrowKeyPressed() {
+            return (pressedKeys & 12) == 12;
+        }
+    }
+}
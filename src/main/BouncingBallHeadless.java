@@ -0,0 +1,47 @@
+package main;
+
+import core.BouncingBallCore;
+import domain.OffHeapBalls;
+import view.HeadlessGameView;
+
+/**
+ * Run the game without display, as fast as the CPU allows,
+ * and report the ticks per second.
+ * usage: BouncingBallHeadless [number of ticks] [ticks per second] [session seed] [-offheap]
+ * (-offheap: the balls are stored outside the Java heap)
+ */
+public class BouncingBallHeadless {
+
+    private final static long DEFAULT_NUMBER_OF_TICKS = 1000000;
+    private final static int DEFAULT_TICKS_PER_SECOND = 60;
+
+    public static void main( String args[] ) {
+        long numberOfTicks = DEFAULT_NUMBER_OF_TICKS;
+        if( args.length > 0 ) {
+            numberOfTicks = Long.parseLong( args[ 0 ] );
+        }
+        int ticksPerSecond = DEFAULT_TICKS_PER_SECOND;
+        if( args.length > 1 ) {
+            ticksPerSecond = Integer.parseInt( args[ 1 ] );
+        }
+
+        HeadlessGameView headlessGameView = new HeadlessGameView();
+        BouncingBallCore bouncingBallCore = new BouncingBallCore( headlessGameView, ticksPerSecond );
+        if( args.length > 2 ) {
+            bouncingBallCore.setSessionSeed( Long.parseLong( args[ 2 ] ) );
+        }
+        if( args.length > 3 && args[ 3 ].equals( "-offheap" ) ) {
+            bouncingBallCore.setBalls( new OffHeapBalls() );
+        }
+
+        long beginTime = System.nanoTime();
+        bouncingBallCore.executeTicks( numberOfTicks );
+        long elapsedTime = System.nanoTime() - beginTime;
+
+        System.out.println( String.format( "ticks:           %d", numberOfTicks ) );
+        System.out.println( String.format( "elapsed time:    %.3f s", elapsedTime / 1e9 ) );
+        System.out.println( String.format( "ticks/second:    %.1f", numberOfTicks * 1e9 / elapsedTime ) );
+        System.out.println( String.format( "games over:      %d", headlessGameView.getNumberOfGamesOver() ) );
+        System.out.println( String.format( "number of balls: %d", headlessGameView.getBalls().getNumberOfBalls() ) );
+    }
+}
@@ -0,0 +1,66 @@
+package main;
+
+import java.io.IOException;
+
+import javax.management.JMException;
+
+import core.BouncingBallCore;
+import core.InputReplay;
+import core.TickStatistics;
+import view.HeadlessGameView;
+import view.MainFrame;
+
+/**
+ * Replay a game recorded by "BouncingBall -record file".
+ * usage: BouncingBallReplay file [-fast]
+ * -fast: replay without display, as fast as the CPU allows, and report the ticks per second
+ *        & the latencies of the tick stages.
+ *        Otherwise the game is replayed in real time after the start button is pushed.
+ */
+public class BouncingBallReplay {
+
+    public static void main( String args[] ) throws IOException {
+        if( args.length < 1 ) {
+            System.err.println( "usage: BouncingBallReplay file [-fast]" );
+            return;
+        }
+
+        InputReplay inputReplay = new InputReplay( args[ 0 ] );
+
+        if( args.length > 1 && args[ 1 ].equals( "-fast" ) ) {
+            HeadlessGameView headlessGameView = new HeadlessGameView();
+            BouncingBallCore bouncingBallCore =
+                new BouncingBallCore( headlessGameView, inputReplay.getTicksPerSecond() );
+            bouncingBallCore.setInputReplay( inputReplay );
+
+            long beginTime = System.nanoTime();
+            bouncingBallCore.executeTicks( inputReplay.getNumberOfTicks() );
+            long elapsedTime = System.nanoTime() - beginTime;
+
+            System.out.println( String.format( "game seed:       %d", inputReplay.getGameSeed() ) );
+            System.out.println( String.format( "ticks:           %d", bouncingBallCore.getGameTicks() ) );
+            System.out.println( String.format( "elapsed time:    %.3f s", elapsedTime / 1e9 ) );
+            System.out.println( String.format( "ticks/second:    %.1f", inputReplay.getNumberOfTicks() * 1e9 / elapsedTime ) );
+            System.out.println( String.format( "game over:       %b",
+                bouncingBallCore.getGamePhase() == BouncingBallCore.GamePhase.GAME_OVER ) );
+            System.out.println( String.format( "number of balls: %d", headlessGameView.getBalls().getNumberOfBalls() ) );
+            for( TickStatistics.Stage stage : TickStatistics.Stage.values() ) {
+                System.out.println( String.format( "%-16s %s",
+                    stage.name().toLowerCase() + ":", bouncingBallCore.getTickStatistics().getStageLatency( stage ) ) );
+            }
+        } else {
+            MainFrame mainFrame = new MainFrame();
+            BouncingBallCore bouncingBallCore =
+                new BouncingBallCore( mainFrame, inputReplay.getTicksPerSecond() );
+            bouncingBallCore.setInputReplay( inputReplay );
+            try {
+                bouncingBallCore.getTickStatistics().registerMBean();
+            } catch( JMException e ) {
+                e.printStackTrace();
+            }
+
+            mainFrame.setVisible( true );
+            bouncingBallCore.execute();
+        }
+    }
+}
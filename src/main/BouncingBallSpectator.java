@@ -0,0 +1,170 @@
+package main;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import view.SpectatorFrameDecoder;
+import view.SpectatorServer;
+
+/**
+ * A spectator without display: connect to a spectator server (see StressMode's spectator.port),
+ * decode & validate the stream, acknowledge the keyframes, and report the received frames & bytes each second.
+ * An invalid stream is reported, and exits with status 1.
+ * usage: BouncingBallSpectator [host (localhost)] [port (7460)] [seconds]
+ * (seconds 0, the default: until the server closes the stream)
+ */
+public class BouncingBallSpectator {
+
+    private final static String DEFAULT_HOST = "localhost";
+    private final static int DEFAULT_PORT = 7460;
+
+    private SocketChannel channel;
+    private ByteBuffer header;
+    private ByteBuffer payload;
+    private ByteBuffer ack;
+    private SpectatorFrameDecoder decoder;
+
+    private long numberOfFrames;
+    private long numberOfKeyframes;
+    private long numberOfBytes;
+    private long numberOfSkippedFrames;     // gaps in the frame numbers
+
+    public static void main( String args[] ) throws IOException {
+        String host = args.length > 0 ? args[ 0 ] : DEFAULT_HOST;
+        int port = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : DEFAULT_PORT;
+        long seconds = args.length > 2 ? Long.parseLong( args[ 2 ] ) : 0;
+        BouncingBallSpectator spectator = new BouncingBallSpectator( new InetSocketAddress( host, port ) );
+
+        try {
+            spectator.watch( seconds );
+        } catch( EOFException e ) {
+            System.out.println( "the server closed the stream" );
+        } catch( IOException e ) {
+            System.err.println( "invalid stream: " + e.getMessage() );
+            System.exit( 1 );
+        } finally {
+            spectator.close();
+        }
+    }
+
+    public BouncingBallSpectator( InetSocketAddress address ) throws IOException {
+        channel = SocketChannel.open( address );
+        channel.socket().setTcpNoDelay( true );
+        header = ByteBuffer.allocate( SpectatorServer.MESSAGE_HEADER_SIZE );
+        payload = ByteBuffer.allocate( 65536 );
+        ack = ByteBuffer.allocate( SpectatorServer.ACK_SIZE );
+        decoder = new SpectatorFrameDecoder();
+    }
+
+    /**
+     * receive the stream for the specified seconds (0: until the server closes it), and report each second.
+     */
+    public void watch( long seconds ) throws IOException {
+        long beginTime = System.nanoTime();
+        long reportTime = beginTime + 1000000000L;
+        long previousFrameNumber = 0;
+        long reportedFrames = 0;
+        long reportedBytes = 0;
+        byte type;
+
+        while( seconds == 0 || System.nanoTime() - beginTime < seconds * 1000000000L ) {
+            type = receive();
+            decoder.decode( type, payload );
+            if( type == SpectatorServer.HELLO ) {
+                continue;
+            }
+
+            // (the first frame may be the newest keyframe, older than the frames after it)
+            numberOfFrames++;
+            if( previousFrameNumber > 0 ) {
+                numberOfSkippedFrames += decoder.getFrameNumber() - previousFrameNumber - 1;
+            }
+            if( numberOfFrames > 1 || !decoder.isKeyframe() ) {
+                previousFrameNumber = decoder.getFrameNumber();
+            }
+            if( decoder.isKeyframe() ) {
+                numberOfKeyframes++;
+                acknowledge( decoder.getKeyframeNumber() );
+            }
+
+            if( System.nanoTime() >= reportTime ) {
+                System.out.println( String.format(
+                    "frames %5d/s, keyframes %6d, %9d bytes/s, %7.0f bytes/frame, skipped %6d, balls %6d, time %6.1f s",
+                    numberOfFrames - reportedFrames, numberOfKeyframes, numberOfBytes - reportedBytes,
+                    (double)(numberOfBytes - reportedBytes) / Math.max( numberOfFrames - reportedFrames, 1 ),
+                    numberOfSkippedFrames, decoder.getNumberOfBalls(), decoder.getGameElapsedTime() / 1000.0
+                ) );
+                reportedFrames = numberOfFrames;
+                reportedBytes = numberOfBytes;
+                reportTime += 1000000000L;
+            }
+        }
+    }
+
+    /**
+     * read the next message, and get its type. (the payload is left in the payload buffer)
+     */
+    private byte receive() throws IOException {
+        byte type;
+        int length;
+
+        header.clear();
+        readFully( header );
+        header.flip();
+        type = header.get();
+        length = header.getInt();
+        if( length < 0 ) {
+            throw new IOException( "payload length: " + length );
+        }
+        if( payload.capacity() < length ) {
+            payload = ByteBuffer.allocate( Math.max( length, payload.capacity() * 2 ) );
+        }
+        payload.clear();
+        payload.limit( length );
+        readFully( payload );
+        payload.flip();
+        numberOfBytes += SpectatorServer.MESSAGE_HEADER_SIZE + length;
+
+        return type;
+    }
+
+    private void readFully( ByteBuffer buffer ) throws IOException {
+        while( buffer.hasRemaining() ) {
+            if( channel.read( buffer ) < 0 ) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void acknowledge( int keyframeNumber ) throws IOException {
+        ack.clear();
+        ack.put( SpectatorServer.ACK ).putInt( keyframeNumber );
+        ack.flip();
+        while( ack.hasRemaining() ) {
+            channel.write( ack );
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public long getNumberOfFrames() {
+        return numberOfFrames;
+    }
+
+    public long getNumberOfKeyframes() {
+        return numberOfKeyframes;
+    }
+
+    public long getNumberOfBytes() {
+        return numberOfBytes;
+    }
+
+    public long getNumberOfSkippedFrames() {
+        return numberOfSkippedFrames;
+    }
+}
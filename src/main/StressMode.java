@@ -0,0 +1,241 @@
+package main;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Properties;
+
+import core.BouncingBallCore;
+import core.GameSnapshot;
+import core.RewindRing;
+import core.SpawnRateCurve;
+import core.StageLatency;
+import core.TickStatistics;
+import core.TickStatistics.Stage;
+import domain.Balls;
+import domain.HeapBalls;
+import domain.OffHeapBalls;
+import view.GameView;
+import view.HeadlessGameView;
+import view.MainFrame;
+import view.SpectatorGameView;
+import view.SpectatorServer;
+
+/**
+ * Stress mode: drive the game as a load generator, and print the tick time distribution
+ * by the number of balls at exit, to find where the tick time stops scaling.
+ * Configured by a properties file and/or key=value arguments (the arguments override the file).
+ * usage: BouncingBall -stress [properties file] [key=value ...]
+ * keys (default):
+ *   world.width (640), world.height (480)  size of the game world
+ *   ticks.per.second (60)
+ *   balls.initial (5)                      number of balls launched when the game starts
+ *   balls.reserved (0)                     balls' arrays allocated up front (0: grown when full)
+ *   balls.max (0)                          no balls are launched beyond this number (0: no limit)
+ *   balls.offheap (false)                  store the balls outside the Java heap
+ *   balls.bounce (false)                   balls bounce off each other
+ *   spawn.rate ()                          spawn rate curve, e.g. "10000" or "0:100,60:10000"
+ *                                          (balls per second; see SpawnRateCurve. empty: a ball each 5 s)
+ *   player.invincible (false)              being hit by a ball doesn't end the game
+ *   limit.ticks (0), limit.seconds (0)     stop after the ticks, or the (wall-clock) seconds. 0: no limit
+ *   display (false)                        show the game window, in real time (false: headless, as fast as possible)
+ *   realtime (false)                       headless, run in real time instead of as fast as possible
+ *   display.raster.threshold (2000)        above this number of balls, the balls are drawn into an image's pixels
+ *   seed ()                                session seed
+ *   rewind.slots (0), rewind.interval (60) capture a checkpoint every interval ticks, keeping the last slots
+ *                                          (0 slots: no checkpoints. The slots are allocated for balls.reserved
+ *                                          balls up front, and grown in the background beyond)
+ *   snapshot.load ()                       continue the game saved in the snapshot file, instead of a new game
+ *   snapshot.save ()                       save the game into the snapshot file when stopped (not by Ctrl-C)
+ *   spectator.port (0)                     stream the game to spectators (see BouncingBallSpectator) at the port
+ *                                          of the loopback interface (0: no spectator server)
+ *   spectator.keyframe.interval (60)       frames between two keyframes of the spectator stream
+ */
+class StressMode {
+
+    private final static String DEFAULT_WORLD_WIDTH = "640";
+    private final static String DEFAULT_WORLD_HEIGHT = "480";
+    private final static String DEFAULT_TICKS_PER_SECOND = "60";
+    private final static String DEFAULT_INITIAL_BALLS = "5";
+    private final static String DEFAULT_RASTER_THRESHOLD = "2000";
+    private final static String DEFAULT_REWIND_INTERVAL = "60";
+
+    private BouncingBallCore bouncingBallCore;
+    private SpectatorServer spectatorServer;
+    private long beginTime;
+    private boolean reported;
+
+    public static void main( String args[] ) throws IOException {
+        Properties properties = new Properties();
+
+        for( int i = 0; i < args.length; i++ ) {
+            int separator = args[ i ].indexOf( '=' );
+            if( separator < 0 ) {
+                InputStream propertiesFile = new FileInputStream( args[ i ] );
+                try {
+                    properties.load( propertiesFile );
+                } finally {
+                    propertiesFile.close();
+                }
+            } else {
+                properties.setProperty( args[ i ].substring( 0, separator ), args[ i ].substring( separator + 1 ) );
+            }
+        }
+
+        new StressMode().run( properties );
+    }
+
+    private void run( Properties properties ) throws IOException {
+        boolean display = Boolean.parseBoolean( properties.getProperty( "display", "false" ) );
+        boolean realTime = Boolean.parseBoolean( properties.getProperty( "realtime", "false" ) );
+        int ticksPerSecond = Integer.parseInt( properties.getProperty( "ticks.per.second", DEFAULT_TICKS_PER_SECOND ) );
+        long limitSeconds = Long.parseLong( properties.getProperty( "limit.seconds", "0" ) );
+        String spawnRate = properties.getProperty( "spawn.rate", "" ).trim();
+        String seed = properties.getProperty( "seed", "" ).trim();
+        int rewindSlots = Integer.parseInt( properties.getProperty( "rewind.slots", "0" ) );
+        String snapshotLoad = properties.getProperty( "snapshot.load", "" ).trim();
+        String snapshotSave = properties.getProperty( "snapshot.save", "" ).trim();
+        int spectatorPort = Integer.parseInt( properties.getProperty( "spectator.port", "0" ) );
+        GameView gameView = display ? new MainFrame() : new HeadlessGameView();
+        Balls balls = Boolean.parseBoolean( properties.getProperty( "balls.offheap", "false" ) )
+                      ? new OffHeapBalls() : new HeapBalls();
+
+        balls.setNumberOfInitialBalls( Integer.parseInt( properties.getProperty( "balls.initial", DEFAULT_INITIAL_BALLS ) ) );
+        balls.reserveBalls( Integer.parseInt( properties.getProperty( "balls.reserved", "0" ) ) );
+        balls.setBallsCollisionEnabled( Boolean.parseBoolean( properties.getProperty( "balls.bounce", "false" ) ) );
+
+        if( spectatorPort > 0 ) {
+            spectatorServer = new SpectatorServer(
+                new InetSocketAddress( InetAddress.getLoopbackAddress(), spectatorPort ),
+                Integer.parseInt( properties.getProperty(
+                    "spectator.keyframe.interval", Integer.toString( SpectatorServer.DEFAULT_KEYFRAME_INTERVAL )
+                ) )
+            );
+            spectatorServer.start();
+        }
+
+        bouncingBallCore = new BouncingBallCore(
+            spectatorServer != null ? new SpectatorGameView( gameView, spectatorServer ) : gameView, ticksPerSecond
+        );
+        bouncingBallCore.setBalls( balls );
+        bouncingBallCore.setWorldSize(
+            Integer.parseInt( properties.getProperty( "world.width", DEFAULT_WORLD_WIDTH ) ),
+            Integer.parseInt( properties.getProperty( "world.height", DEFAULT_WORLD_HEIGHT ) )
+        );
+        if( !spawnRate.isEmpty() ) {
+            bouncingBallCore.setSpawnRateCurve( SpawnRateCurve.parse( spawnRate ) );
+        }
+        if( !seed.isEmpty() ) {
+            bouncingBallCore.setSessionSeed( Long.parseLong( seed ) );
+        }
+        bouncingBallCore.setPlayerUnitInvincible(
+            Boolean.parseBoolean( properties.getProperty( "player.invincible", "false" ) )
+        );
+        bouncingBallCore.setMaxNumberOfBalls( Integer.parseInt( properties.getProperty( "balls.max", "0" ) ) );
+        bouncingBallCore.setTickLimit( Long.parseLong( properties.getProperty( "limit.ticks", "0" ) ) );
+        if( rewindSlots > 0 ) {
+            bouncingBallCore.setRewindRing( new RewindRing(
+                rewindSlots, Integer.parseInt( properties.getProperty( "rewind.interval", DEFAULT_REWIND_INTERVAL ) )
+            ) );
+        }
+        if( !snapshotLoad.isEmpty() ) {
+            bouncingBallCore.restoreSnapshot( GameSnapshot.load( snapshotLoad ) );
+        }
+
+        // report at exit, also when stopped by Ctrl-C or by closing the window
+        Runtime.getRuntime().addShutdownHook( new Thread() {
+            @Override
+            public void run() {
+                report();
+            }
+        } );
+        if( limitSeconds > 0 ) {
+            startTimeLimit( Thread.currentThread(), limitSeconds );
+        }
+
+        beginTime = System.nanoTime();
+        if( display ) {
+            ((MainFrame)gameView).setRasterRenderingThreshold( Integer.parseInt(
+                properties.getProperty( "display.raster.threshold", DEFAULT_RASTER_THRESHOLD )
+            ) );
+            ((MainFrame)gameView).setVisible( true );
+            bouncingBallCore.execute();
+        } else if( realTime ) {
+            bouncingBallCore.execute();
+        } else {
+            bouncingBallCore.executeTicks( Long.MAX_VALUE );
+        }
+
+        if( !snapshotSave.isEmpty() ) {
+            GameSnapshot snapshot = new GameSnapshot();
+            bouncingBallCore.captureSnapshot( snapshot );
+            snapshot.save( snapshotSave );
+        }
+        System.exit( 0 );
+    }
+
+    /**
+     * interrupt the core thread after the specified seconds, which stops executing.
+     */
+    private void startTimeLimit( final Thread coreThread, final long limitSeconds ) {
+        Thread timeLimit = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep( limitSeconds * 1000 );
+                } catch( InterruptedException e ) {
+                    return;
+                }
+                coreThread.interrupt();
+            }
+        };
+        timeLimit.setDaemon( true );
+        timeLimit.start();
+    }
+
+    private synchronized void report() {
+        TickStatistics tickStatistics = bouncingBallCore.getTickStatistics();
+        long elapsedTime = System.nanoTime() - beginTime;
+
+        if( reported ) {
+            return;
+        }
+        reported = true;
+
+        System.out.println( String.format( "world:           %d x %d",
+            bouncingBallCore.getWorldWidth(), bouncingBallCore.getWorldHeight() ) );
+        System.out.println( String.format( "ticks:           %d", bouncingBallCore.getTotalTicks() ) );
+        System.out.println( String.format( "elapsed time:    %.3f s", elapsedTime / 1e9 ) );
+        System.out.println( String.format( "ticks/second:    %.1f", bouncingBallCore.getTotalTicks() * 1e9 / elapsedTime ) );
+        System.out.println( String.format( "number of balls: %d", tickStatistics.getNumberOfBalls() ) );
+        System.out.println( String.format( "tick overruns:   %d", tickStatistics.getTickOverruns() ) );
+        if( bouncingBallCore.getRewindRing() != null ) {
+            StageLatency snapshotLatency = tickStatistics.getStageLatency( Stage.SNAPSHOT );
+            System.out.println( String.format(
+                "checkpoints:     %d, every %d ticks, %d skipped (slots growing), capture p50 %.1f us, max %.1f us",
+                snapshotLatency.getCount(), bouncingBallCore.getRewindRing().getCaptureInterval(),
+                bouncingBallCore.getRewindRing().getNumberOfSkippedCheckpoints(),
+                snapshotLatency.getP50() / 1e3, snapshotLatency.getMax() / 1e3
+            ) );
+        }
+        if( spectatorServer != null ) {
+            System.out.println( String.format( "spectators:      %d, frames encoded %d, queued %d, skipped %d, sent %d bytes",
+                spectatorServer.getNumberOfSpectators(), spectatorServer.getFramesEncoded(),
+                spectatorServer.getFramesQueued(), spectatorServer.getFramesSkipped(), spectatorServer.getBytesSent()
+            ) );
+        }
+        System.out.println( "tick time by number of balls (micro-seconds):" );
+        System.out.println( String.format( "%-24s %10s %10s %10s %10s %10s", "balls", "ticks", "p50", "p99", "p99.9", "max" ) );
+        for( Map.Entry<String, StageLatency> entry : tickStatistics.getTickLatenciesByBalls().entrySet() ) {
+            StageLatency tickLatency = entry.getValue();
+            System.out.println( String.format( "%-24s %10d %10.1f %10.1f %10.1f %10.1f",
+                entry.getKey(), tickLatency.getCount(),
+                tickLatency.getP50() / 1e3, tickLatency.getP99() / 1e3,
+                tickLatency.getP999() / 1e3, tickLatency.getMax() / 1e3
+            ) );
+        }
+    }
+}
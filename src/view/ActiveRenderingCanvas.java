@@ -0,0 +1,169 @@
+package view;
+
+import domain.Balls;
+import domain.PlayerUnit;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import javax.swing.UIManager;
+
+/**
+ * Game screen rendered actively by the game core thread: each refresh draws the balls,
+ * player unit & the game information into the back buffer, and shows it at once,
+ * instead of requesting a repaint from the event dispatch thread.
+ * So the fps is the number of frames actually shown.
+ */
+class ActiveRenderingCanvas extends Canvas {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int NUMBER_OF_BUFFERS = 2;
+    private final long DEFAULT_FPS_CALCULATING_TIMER_VALUE = 1000;   // milisecond
+
+    private RenderSnapshot snapshot;            // balls' & player unit's states (core thread only)
+    private SceneRenderer sceneRenderer;
+
+    private Font font;
+    private Color foregroundColor;
+    private int textBaseline;                   // baseline of the game information texts
+    private TextCache textCache;                // texts of the displayed values
+    private long gameElapsedTime;
+    private int numberOfBalls;
+
+    // parameters of fps calculating
+    private long fpsCalculatingTimer;
+    private long currentSystemTime;
+    private long previousSystemTime;
+    private int frameCounter;
+    private int currentFPS;
+
+    public ActiveRenderingCanvas() {
+        setPreferredSize( new Dimension( 640, 480 ) );
+        setIgnoreRepaint( true );
+        setFocusable( false );      // the key inputs go to the frame
+        setBackground( UIManager.getColor( "Panel.background" ) );
+
+        snapshot = new RenderSnapshot();
+        sceneRenderer = new SceneRenderer();
+
+        font = UIManager.getFont( "Label.font" );
+        foregroundColor = UIManager.getColor( "Label.foreground" );
+        FontMetrics fontMetrics = getFontMetrics( font );
+        textBaseline = 5 + (20 - fontMetrics.getHeight()) / 2 + fontMetrics.getAscent();   // as a label at y 5, height 20
+        textCache = new TextCache();
+        gameElapsedTime = 0;
+        numberOfBalls = 0;
+
+        resetFPS();
+    }
+
+    /**
+     * capture the states of balls & player unit for the next rendering.
+     */
+    public void updateBallsAndPlayerUnit( Balls balls, PlayerUnit playerUnit ) {
+        snapshot.capture( balls, playerUnit );
+        numberOfBalls = balls.getNumberOfBalls();
+    }
+
+    public void updateGamePlayingTime( long theGameElapsedTime ) {
+        gameElapsedTime = theGameElapsedTime;
+    }
+
+    public void setRasterRenderingThreshold( int rasterRenderingThreshold ) {
+        sceneRenderer.setRasterThreshold( rasterRenderingThreshold );
+    }
+
+    /**
+     * start counting fps again. (at the beginning of a game)
+     */
+    public void resetFPS() {
+        fpsCalculatingTimer = DEFAULT_FPS_CALCULATING_TIMER_VALUE;
+        currentSystemTime = System.currentTimeMillis();
+        previousSystemTime = 0;
+        frameCounter = 0;
+        currentFPS = 0;
+    }
+
+    /**
+     * create the buffers to render into, if not yet. (by the event dispatch thread, once shown)
+     */
+    public void createBuffers() {
+        if( getBufferStrategy() == null && isDisplayable() ) {
+            createBufferStrategy( NUMBER_OF_BUFFERS );
+        }
+    }
+
+    /**
+     * render a frame, with the positions interpolated by the specified alpha, and show it.
+     * Returns false if the canvas can not be rendered actively. (no buffers: not displayable)
+     */
+    public boolean render( double interpolationAlpha ) {
+        BufferStrategy bufferStrategy = getBufferStrategy();
+        Graphics2D g2d;
+
+        if( bufferStrategy == null ) {
+            return false;
+        }
+
+        // render again if the buffers' contents were lost or restored meanwhile
+        do {
+            do {
+                g2d = (Graphics2D)bufferStrategy.getDrawGraphics();
+                try {
+                    g2d.setColor( getBackground() );
+                    g2d.fillRect( 0, 0, getWidth(), getHeight() );
+                    sceneRenderer.drawScene(
+                        g2d, snapshot, interpolationAlpha, getWidth(), getHeight(), getBackground()
+                    );
+                    drawGameInformation( g2d );
+                } finally {
+                    g2d.dispose();
+                }
+            } while( bufferStrategy.contentsRestored() );
+
+            bufferStrategy.show();
+        } while( bufferStrategy.contentsLost() );
+
+        // flush the window system's queue, so the frame is displayed now
+        Toolkit.getDefaultToolkit().sync();
+        calculateFPS();
+
+        return true;
+    }
+
+    /**
+     * draw the number of balls, game playing time & fps, where MainPanel's labels are.
+     */
+    private void drawGameInformation( Graphics2D g2d ) {
+        g2d.setFont( font );
+        g2d.setColor( foregroundColor );
+        g2d.drawString( "number of balls:", 10, textBaseline );
+        g2d.drawString( textCache.getNumberText( numberOfBalls ), 108, textBaseline );
+        g2d.drawString( "time", 286, textBaseline );
+        g2d.drawString( textCache.getTimeText( gameElapsedTime ), 321, textBaseline );
+        g2d.drawString( textCache.getNumberText( currentFPS ), 590, textBaseline );
+        g2d.drawString( "fps", 611, textBaseline );
+    }
+
+    /**
+     * Calculate FPS(frames per second) of the frames shown.
+     * Update fps value every 1000 milisecond.
+     */
+    private void calculateFPS() {
+        frameCounter++;
+        previousSystemTime = currentSystemTime;
+        currentSystemTime = System.currentTimeMillis();
+        fpsCalculatingTimer = fpsCalculatingTimer - (currentSystemTime - previousSystemTime);
+        if( fpsCalculatingTimer <= 0 ) {
+            fpsCalculatingTimer = fpsCalculatingTimer + DEFAULT_FPS_CALCULATING_TIMER_VALUE;
+            currentFPS = (frameCounter * 1000) / (int)DEFAULT_FPS_CALCULATING_TIMER_VALUE;
+            frameCounter = 0;
+        }
+    }
+}
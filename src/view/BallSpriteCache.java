@@ -0,0 +1,209 @@
+package view;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Pre-rendered images of balls, keyed by fill & border color, and of the player unit.
+ * A ball is then drawn with one drawImage() instead of rasterizing two ovals.
+ * The images are compatible with the screen, so Java2D can keep them in video memory.
+ * At most maxSprites ball images are kept; the least recently used one is replaced.
+ * (hash chains & the LRU list are kept in int arrays, so looking up a sprite allocates nothing)
+ */
+class BallSpriteCache {
+
+    private final static int NONE = -1;
+
+    private final int maxSprites;
+    private int diameter;                   // diameter of the cached ball sprites
+
+    private long spritesKey[];              // fill color (high 32 bits) & border color (low 32 bits)
+    private Image spritesImage[];
+    private int hashTable[];                // first sprite of each hash chain
+    private int hashNext[];                 // next sprite in the same hash chain
+    private int lruPrevious[];              // more recently used sprite
+    private int lruNext[];                  // less recently used sprite
+    private int lruHead;                    // most recently used sprite
+    private int lruTail;                    // least recently used sprite
+    private int numberOfSprites;
+
+    private Image playerUnitSprite;
+    private int playerUnitSpriteDiameter;
+    private Color playerUnitSpriteColor1;
+    private Color playerUnitSpriteColor2;
+
+    public BallSpriteCache( int theMaxSprites ) {
+        maxSprites = theMaxSprites;
+        diameter = 0;
+
+        spritesKey = new long[ maxSprites ];
+        spritesImage = new Image[ maxSprites ];
+        hashTable = new int[ Integer.highestOneBit( Math.max( maxSprites, 1 ) ) * 2 ];
+        hashNext = new int[ maxSprites ];
+        lruPrevious = new int[ maxSprites ];
+        lruNext = new int[ maxSprites ];
+        clear();
+    }
+
+    /**
+     * remove all ball sprites.
+     */
+    public void clear() {
+        for( int h = 0; h < hashTable.length; h++ ) {
+            hashTable[ h ] = NONE;
+        }
+        for( int i = 0; i < numberOfSprites; i++ ) {
+            spritesImage[ i ] = null;
+        }
+        lruHead = NONE;
+        lruTail = NONE;
+        numberOfSprites = 0;
+    }
+
+    /**
+     * get the image of a ball with the specified colors (rgb) & diameter.
+     * The image is (diameter + 1) pixels wide, as the border drawn by drawOval().
+     */
+    public Image getBallSprite(
+        int colorRGB, int borderColorRGB, int theDiameter, GraphicsConfiguration graphicsConfiguration
+    ) {
+        long key = ((long)colorRGB << 32) | (borderColorRGB & 0xffffffffL);
+        int hash;
+        int sprite;
+
+        if( theDiameter != diameter ) {
+            clear();
+            diameter = theDiameter;
+        }
+
+        hash = hashOf( key );
+        for( sprite = hashTable[ hash ]; sprite != NONE; sprite = hashNext[ sprite ] ) {
+            if( spritesKey[ sprite ] == key ) {
+                moveToLruHead( sprite );
+                return spritesImage[ sprite ];
+            }
+        }
+
+        // not cached: use a free slot, or replace the least recently used sprite
+        if( numberOfSprites < maxSprites ) {
+            sprite = numberOfSprites++;
+        } else {
+            sprite = lruTail;
+            removeFromHashChain( sprite );
+            removeFromLru( sprite );
+        }
+        spritesKey[ sprite ] = key;
+        spritesImage[ sprite ] = renderBallSprite( colorRGB, borderColorRGB, graphicsConfiguration );
+        hashNext[ sprite ] = hashTable[ hash ];
+        hashTable[ hash ] = sprite;
+        addToLruHead( sprite );
+
+        return spritesImage[ sprite ];
+    }
+
+    /**
+     * get the image of the player unit, with its gradient paint.
+     */
+    public Image getPlayerUnitSprite(
+        Color color1, Color color2, int theDiameter, GraphicsConfiguration graphicsConfiguration
+    ) {
+        if( playerUnitSprite == null || playerUnitSpriteDiameter != theDiameter
+                || !color1.equals( playerUnitSpriteColor1 ) || !color2.equals( playerUnitSpriteColor2 ) ) {
+            playerUnitSprite = createImage( theDiameter + 1, graphicsConfiguration );
+            playerUnitSpriteDiameter = theDiameter;
+            playerUnitSpriteColor1 = color1;
+            playerUnitSpriteColor2 = color2;
+
+            Graphics2D g2d = (Graphics2D)playerUnitSprite.getGraphics();
+            g2d.setPaint( new GradientPaint( 0, 0, color1, 8, 12, color2 ) );
+            g2d.fillOval( 0, 0, theDiameter, theDiameter );
+            g2d.dispose();
+        }
+
+        return playerUnitSprite;
+    }
+
+    public int getNumberOfSprites() {
+        return numberOfSprites;
+    }
+
+    private Image renderBallSprite(
+        int colorRGB, int borderColorRGB, GraphicsConfiguration graphicsConfiguration
+    ) {
+        Image image = createImage( diameter + 1, graphicsConfiguration );
+        Graphics2D g2d = (Graphics2D)image.getGraphics();
+
+        g2d.setColor( new Color( colorRGB ) );
+        g2d.fillOval( 0, 0, diameter, diameter );
+        g2d.setColor( new Color( borderColorRGB ) );
+        g2d.drawOval( 0, 0, diameter, diameter );
+        g2d.dispose();
+
+        return image;
+    }
+
+    private Image createImage( int size, GraphicsConfiguration graphicsConfiguration ) {
+        if( graphicsConfiguration == null ) {
+            return new BufferedImage( size, size, BufferedImage.TYPE_INT_ARGB );
+        }
+
+        return graphicsConfiguration.createCompatibleImage( size, size, Transparency.BITMASK );
+    }
+
+    private int hashOf( long key ) {
+        long hash = key * 0x9e3779b97f4a7c15L;
+        return (int)(hash >>> 32) & (hashTable.length - 1);
+    }
+
+    private void removeFromHashChain( int sprite ) {
+        int hash = hashOf( spritesKey[ sprite ] );
+
+        if( hashTable[ hash ] == sprite ) {
+            hashTable[ hash ] = hashNext[ sprite ];
+        } else {
+            for( int s = hashTable[ hash ]; s != NONE; s = hashNext[ s ] ) {
+                if( hashNext[ s ] == sprite ) {
+                    hashNext[ s ] = hashNext[ sprite ];
+                    break;
+                }
+            }
+        }
+    }
+
+    private void moveToLruHead( int sprite ) {
+        if( lruHead != sprite ) {
+            removeFromLru( sprite );
+            addToLruHead( sprite );
+        }
+    }
+
+    private void addToLruHead( int sprite ) {
+        lruPrevious[ sprite ] = NONE;
+        lruNext[ sprite ] = lruHead;
+        if( lruHead != NONE ) {
+            lruPrevious[ lruHead ] = sprite;
+        }
+        lruHead = sprite;
+        if( lruTail == NONE ) {
+            lruTail = sprite;
+        }
+    }
+
+    private void removeFromLru( int sprite ) {
+        if( lruPrevious[ sprite ] != NONE ) {
+            lruNext[ lruPrevious[ sprite ] ] = lruNext[ sprite ];
+        } else {
+            lruHead = lruNext[ sprite ];
+        }
+        if( lruNext[ sprite ] != NONE ) {
+            lruPrevious[ lruNext[ sprite ] ] = lruPrevious[ sprite ];
+        } else {
+            lruTail = lruPrevious[ sprite ];
+        }
+    }
+}
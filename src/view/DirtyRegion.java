@@ -0,0 +1,233 @@
+package view;
+
+/**
+ * Track which parts of the screen changed between two frames, in square tiles:
+ * the tiles covered by the balls & player unit drawn in the previous frame,
+ * and by those to be drawn in the current frame.
+ * The dirty tiles are merged into a few rectangles (runs of tiles in a row,
+ * joined with the identical runs of the next rows), so only those need repainting.
+ * (used by the drawing thread only)
+ */
+class DirtyRegion {
+
+    private final int tileSize;
+    private final int columns;
+    private final int rows;
+    private final int width;
+    private final int height;
+    private final int maxMarkedBalls;       // with more balls, the whole screen is dirty anyway
+
+    private boolean previousTiles[];        // tiles covered in the previous frame
+    private boolean currentTiles[];         // tiles covered in the current frame
+    private int numberOfRectangles;
+    private int rectanglesColumn1[];        // merged rectangles, in tiles (column2 & row2 exclusive)
+    private int rectanglesColumn2[];
+    private int rectanglesRow1[];
+    private int rectanglesRow2[];
+
+    public DirtyRegion( int theWidth, int theHeight, int theTileSize ) {
+        width = theWidth;
+        height = theHeight;
+        tileSize = theTileSize;
+        columns = (width + tileSize - 1) / tileSize;
+        rows = (height + tileSize - 1) / tileSize;
+        maxMarkedBalls = columns * rows * 4;
+
+        previousTiles = new boolean[ columns * rows ];
+        currentTiles = new boolean[ columns * rows ];
+        rectanglesColumn1 = new int[ columns * rows ];
+        rectanglesColumn2 = new int[ columns * rows ];
+        rectanglesRow1 = new int[ columns * rows ];
+        rectanglesRow2 = new int[ columns * rows ];
+        numberOfRectangles = 0;
+
+        // nothing is known about the screen yet (the whole screen is dirty in the first frame)
+        markAll( currentTiles );
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * begin a new frame: the tiles of the current frame become the previous ones.
+     */
+    public void nextFrame() {
+        boolean tiles[] = previousTiles;
+
+        previousTiles = currentTiles;
+        currentTiles = tiles;
+        for( int t = 0; t < currentTiles.length; t++ ) {
+            currentTiles[ t ] = false;
+        }
+    }
+
+    /**
+     * mark the tiles covered by the balls & player unit of the snapshot, drawn with the specified alpha.
+     */
+    public void markScene( RenderSnapshot snapshot, double alpha ) {
+        int ballsSize = snapshot.getBallsDiameter() + 1;     // sprites are (diameter + 1) pixels wide
+
+        if( snapshot.getNumberOfBalls() > maxMarkedBalls ) {
+            markAll( currentTiles );
+            return;
+        }
+
+        for( int i = 0; i < snapshot.getNumberOfBalls(); i++ ) {
+            markBox( snapshot.getBallsPositionX1( i, alpha ), snapshot.getBallsPositionY1( i, alpha ), ballsSize );
+        }
+        markBox(
+            snapshot.getPlayerUnitPositionX1( alpha ), snapshot.getPlayerUnitPositionY1( alpha ),
+            snapshot.getPlayerUnitDiameter() + 1
+        );
+    }
+
+    /**
+     * mark the whole screen dirty in the current frame.
+     */
+    public void markAll() {
+        markAll( currentTiles );
+    }
+
+    /**
+     * merge the tiles dirty in the previous or the current frame into rectangles.
+     * Returns false if more than the specified fraction of the tiles are dirty.
+     * (then repainting the whole screen is cheaper)
+     */
+    public boolean mergeDirtyTiles( double maxDirtyFraction ) {
+        int dirtyTiles = 0;
+        int firstRectangleOfPreviousRow = 0;
+        int firstRectangleOfThisRow;
+        int column1;
+        int k;
+
+        for( int t = 0; t < currentTiles.length; t++ ) {
+            if( previousTiles[ t ] | currentTiles[ t ] ) {
+                dirtyTiles++;
+            }
+        }
+        numberOfRectangles = 0;
+        if( dirtyTiles > maxDirtyFraction * currentTiles.length ) {
+            return false;
+        }
+
+        for( int row = 0; row < rows; row++ ) {
+            firstRectangleOfThisRow = numberOfRectangles;
+            for( int column = 0; column < columns; ) {
+                if( !isDirty( row, column ) ) {
+                    column++;
+                    continue;
+                }
+
+                // a run of dirty tiles: extend the rectangle above with the same columns, or add one
+                column1 = column;
+                while( column < columns && isDirty( row, column ) ) {
+                    column++;
+                }
+                for( k = firstRectangleOfPreviousRow; k < firstRectangleOfThisRow; k++ ) {
+                    if( rectanglesRow2[ k ] == row
+                            && rectanglesColumn1[ k ] == column1 && rectanglesColumn2[ k ] == column ) {
+                        break;
+                    }
+                }
+                if( k < firstRectangleOfThisRow ) {
+                    rectanglesRow2[ k ] = row + 1;
+                } else {
+                    rectanglesColumn1[ numberOfRectangles ] = column1;
+                    rectanglesColumn2[ numberOfRectangles ] = column;
+                    rectanglesRow1[ numberOfRectangles ] = row;
+                    rectanglesRow2[ numberOfRectangles ] = row + 1;
+                    numberOfRectangles++;
+                }
+            }
+
+            // rectangles not extended to this row are finished, and stay behind the search range
+            firstRectangleOfPreviousRow = compactRectanglesEndingAt( row + 1, firstRectangleOfPreviousRow );
+        }
+
+        return true;
+    }
+
+    public int getNumberOfRectangles() {
+        return numberOfRectangles;
+    }
+
+    public int getRectangleX( int index ) {
+        return rectanglesColumn1[ index ] * tileSize;
+    }
+
+    public int getRectangleY( int index ) {
+        return rectanglesRow1[ index ] * tileSize;
+    }
+
+    public int getRectangleWidth( int index ) {
+        return Math.min( rectanglesColumn2[ index ] * tileSize, width ) - getRectangleX( index );
+    }
+
+    public int getRectangleHeight( int index ) {
+        return Math.min( rectanglesRow2[ index ] * tileSize, height ) - getRectangleY( index );
+    }
+
+    private boolean isDirty( int row, int column ) {
+        return previousTiles[ row * columns + column ] | currentTiles[ row * columns + column ];
+    }
+
+    /**
+     * move the rectangles (from the specified index on) which don't reach the specified row
+     * before those which do, and return the index of the first one which does.
+     */
+    private int compactRectanglesEndingAt( int row, int fromIndex ) {
+        int finished = fromIndex;
+
+        for( int k = fromIndex; k < numberOfRectangles; k++ ) {
+            if( rectanglesRow2[ k ] != row ) {
+                swapRectangles( k, finished );
+                finished++;
+            }
+        }
+
+        return finished;
+    }
+
+    private void swapRectangles( int a, int b ) {
+        int swap;
+
+        swap = rectanglesColumn1[ a ]; rectanglesColumn1[ a ] = rectanglesColumn1[ b ]; rectanglesColumn1[ b ] = swap;
+        swap = rectanglesColumn2[ a ]; rectanglesColumn2[ a ] = rectanglesColumn2[ b ]; rectanglesColumn2[ b ] = swap;
+        swap = rectanglesRow1[ a ]; rectanglesRow1[ a ] = rectanglesRow1[ b ]; rectanglesRow1[ b ] = swap;
+        swap = rectanglesRow2[ a ]; rectanglesRow2[ a ] = rectanglesRow2[ b ]; rectanglesRow2[ b ] = swap;
+    }
+
+    private void markBox( int x, int y, int size ) {
+        int column1 = clamp( Math.floorDiv( x, tileSize ), columns );
+        int column2 = clamp( Math.floorDiv( x + size - 1, tileSize ), columns );
+        int row1 = clamp( Math.floorDiv( y, tileSize ), rows );
+        int row2 = clamp( Math.floorDiv( y + size - 1, tileSize ), rows );
+
+        for( int row = row1; row <= row2; row++ ) {
+            for( int column = column1; column <= column2; column++ ) {
+                currentTiles[ row * columns + column ] = true;
+            }
+        }
+    }
+
+    private void markAll( boolean[] tiles ) {
+        for( int t = 0; t < tiles.length; t++ ) {
+            tiles[ t ] = true;
+        }
+    }
+
+    private int clamp( int value, int size ) {
+        if( value < 0 ) {
+            return 0;
+        } else if( value >= size ) {
+            return size - 1;
+        } else {
+            return value;
+        }
+    }
+}
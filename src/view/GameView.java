@@ -0,0 +1,60 @@
+package view;
+
+import domain.Balls;
+import domain.PlayerUnit;
+
+/**
+ * Everything the game core needs from its view:
+ * the user inputs, the displaying updates and the game phase switching.
+ */
+public interface GameView {
+
+    public boolean isStartButtonPushed();
+
+    public boolean isRestartButtonPushed();
+
+    /**
+     * block until the start button is pushed. (returns at once if it was already pushed)
+     */
+    public void waitForStartButtonPushed() throws InterruptedException;
+
+    /**
+     * block until the restart button is pushed. (returns at once if it was already pushed)
+     */
+    public void waitForRestartButtonPushed() throws InterruptedException;
+
+    public boolean isUpArrowKeyPressed();
+
+    public boolean isDownArrowKeyPressed();
+
+    public boolean isLeftArrowKeyPressed();
+
+    public boolean isRightArrowKeyPressed();
+
+    public boolean isBothUpAndDownArrowKeyPressed();
+
+    public boolean isBothLeftAndRightArrowKeyPressed();
+
+    public void resetKeyPressedFlag();
+
+    /**
+     * transfer the focus to this view. (getting key input)
+     */
+    public void requestFocus();
+
+    /**
+     * refresh the screen. The displayed positions are interpolated between the previous
+     * and the current tick by the specified alpha. (0.0: previous tick, 1.0: current tick)
+     */
+    public void refreshScreen( double interpolationAlpha );
+
+    public void updateBallsAndPlayerUnit( Balls balls, PlayerUnit playerUnit );
+
+    public void updateGamePlayingTime( long gameElapsedTime );
+
+    public void switchInitialPhaseToDuringGame();
+
+    public void switchDuringGamePhaseToGameOver();
+
+    public void switchGameOverPhaseToDuringGame();
+}
@@ -0,0 +1,127 @@
+package view;
+
+import domain.Balls;
+import domain.HeapBalls;
+import domain.PlayerUnit;
+
+/**
+ * A view without any display, for running the game on machines without a screen.
+ * The start & restart buttons are always pushed, so a new game is started
+ * as soon as the previous one ended, and no arrow key is ever pressed.
+ */
+public class HeadlessGameView implements GameView {
+
+    private Balls balls;
+    private PlayerUnit playerUnit;
+
+    private long numberOfFrames;        // number of screen refreshing
+    private long numberOfGamesOver;     // number of ended games
+
+    public HeadlessGameView() {
+        balls = new HeapBalls();
+        playerUnit = new PlayerUnit();
+
+        numberOfFrames = 0;
+        numberOfGamesOver = 0;
+    }
+
+    @Override
+    public boolean isStartButtonPushed() {
+        return true;
+    }
+
+    @Override
+    public boolean isRestartButtonPushed() {
+        return true;
+    }
+
+    @Override
+    public void waitForStartButtonPushed() {
+    }
+
+    @Override
+    public void waitForRestartButtonPushed() {
+    }
+
+    @Override
+    public boolean isUpArrowKeyPressed() {
+        return false;
+    }
+
+    @Override
+    public boolean isDownArrowKeyPressed() {
+        return false;
+    }
+
+    @Override
+    public boolean isLeftArrowKeyPressed() {
+        return false;
+    }
+
+    @Override
+    public boolean isRightArrowKeyPressed() {
+        return false;
+    }
+
+    @Override
+    public boolean isBothUpAndDownArrowKeyPressed() {
+        return false;
+    }
+
+    @Override
+    public boolean isBothLeftAndRightArrowKeyPressed() {
+        return false;
+    }
+
+    @Override
+    public void resetKeyPressedFlag() {
+    }
+
+    @Override
+    public void requestFocus() {
+    }
+
+    @Override
+    public void refreshScreen( double interpolationAlpha ) {
+        numberOfFrames++;
+    }
+
+    @Override
+    public void updateBallsAndPlayerUnit( Balls balls, PlayerUnit playerUnit ) {
+        this.balls = balls;
+        this.playerUnit = playerUnit;
+    }
+
+    @Override
+    public void updateGamePlayingTime( long gameElapsedTime ) {
+    }
+
+    @Override
+    public void switchInitialPhaseToDuringGame() {
+    }
+
+    @Override
+    public void switchDuringGamePhaseToGameOver() {
+        numberOfGamesOver++;
+    }
+
+    @Override
+    public void switchGameOverPhaseToDuringGame() {
+    }
+
+    public Balls getBalls() {
+        return balls;
+    }
+
+    public PlayerUnit getPlayerUnit() {
+        return playerUnit;
+    }
+
+    public long getNumberOfFrames() {
+        return numberOfFrames;
+    }
+
+    public long getNumberOfGamesOver() {
+        return numberOfGamesOver;
+    }
+}
@@ -5,27 +5,57 @@ import domain.PlayerUnit;
 
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.lang.reflect.InvocationTargetException;
 import javax.swing.JFrame;
+import javax.swing.JLayeredPane;
+import javax.swing.SwingUtilities;
 
-public class MainFrame extends JFrame {
+/**
+ * Main frame of this game.
+ * With active rendering, a canvas covering the main panel is shown during the game,
+ * and the core thread renders into it directly; otherwise (passive rendering)
+ * the main panel is repainted by the event dispatch thread.
+ * Showing & hiding the canvas (called by the core thread), and creating its buffer strategy,
+ * is done by the event dispatch thread; only rendering into the buffer strategy is done by the core thread.
+ */
+public class MainFrame extends JFrame implements GameView {
     
     private static final long serialVersionUID = 1L;
 
     private final static String FRAME_TITLE = new String( "Bouncing Ball" );
    
     private MainPanel mainPanel;
+    private ActiveRenderingCanvas activeRenderingCanvas;    // null: passive rendering
+    private boolean activeRenderingShown;       // true while the canvas is shown (during the game)
+    private Balls lastBalls;                    // the latest states, handed to main panel when the game is over
+    private PlayerUnit lastPlayerUnit;
+    private long lastGameElapsedTime;
    
-    private boolean upArrowKeyPressedFlag;
-    private boolean downArrowKeyPressedFlag;
-    private boolean leftArrowKeyPressedFlag;
-    private boolean rightArrowKeyPressedFlag;
+    private volatile boolean upArrowKeyPressedFlag;      // set by the event dispatch thread, read by the core
+    private volatile boolean downArrowKeyPressedFlag;
+    private volatile boolean leftArrowKeyPressedFlag;
+    private volatile boolean rightArrowKeyPressedFlag;
     
     public MainFrame() {
+        this( true );
+    }
+   
+    public MainFrame( boolean activeRendering ) {
         super( FRAME_TITLE );
        
         mainPanel = new MainPanel();
         add( mainPanel );
        
+        // the canvas for active rendering, above the main panel, hidden until the game starts
+        activeRenderingShown = false;
+        activeRenderingCanvas = null;
+        if( activeRendering ) {
+            activeRenderingCanvas = new ActiveRenderingCanvas();
+            activeRenderingCanvas.setBounds( 0, 0, 640, 480 );
+            activeRenderingCanvas.setVisible( false );
+            getLayeredPane().add( activeRenderingCanvas, JLayeredPane.PALETTE_LAYER );
+        }
+       
         // initialize key event flags
         upArrowKeyPressedFlag = false;
         downArrowKeyPressedFlag = false;
@@ -40,38 +70,68 @@ public class MainFrame extends JFrame {
         setDefaultCloseOperation( EXIT_ON_CLOSE );
     }
    
+    @Override
     public boolean isStartButtonPushed() {
         return mainPanel.isStartButtonPushed();
     }
    
+    @Override
     public boolean isRestartButtonPushed() {
         return mainPanel.isRestartButtonPushed();
     }
    
+    @Override
+    public void waitForStartButtonPushed() throws InterruptedException {
+        mainPanel.waitForStartButtonPushed();
+    }
+   
+    @Override
+    public void waitForRestartButtonPushed() throws InterruptedException {
+        mainPanel.waitForRestartButtonPushed();
+    }
+   
+    @Override
     public boolean isUpArrowKeyPressed() {
         return upArrowKeyPressedFlag;
     }
    
+    @Override
     public boolean isDownArrowKeyPressed() {
         return downArrowKeyPressedFlag;
     }
    
+    @Override
     public boolean isLeftArrowKeyPressed() {
         return leftArrowKeyPressedFlag;
     }
    
+    @Override
     public boolean isRightArrowKeyPressed() {
         return rightArrowKeyPressedFlag;
     }
    
+    @Override
     public boolean isBothUpAndDownArrowKeyPressed() {
         return (upArrowKeyPressedFlag && downArrowKeyPressedFlag);
     }
    
+    @Override
     public boolean isBothLeftAndRightArrowKeyPressed() {
         return (leftArrowKeyPressedFlag && rightArrowKeyPressedFlag);
     }
    
+    /**
+     * set the number of balls above which the balls are drawn into an image's pixels,
+     * instead of a sprite per ball. (Integer.MAX_VALUE: never)
+     */
+    public void setRasterRenderingThreshold( int rasterRenderingThreshold ) {
+        mainPanel.setRasterRenderingThreshold( rasterRenderingThreshold );
+        if( activeRenderingCanvas != null ) {
+            activeRenderingCanvas.setRasterRenderingThreshold( rasterRenderingThreshold );
+        }
+    }
+   
+    @Override
     public void resetKeyPressedFlag() {
         upArrowKeyPressedFlag = false;
         downArrowKeyPressedFlag = false;
@@ -79,28 +139,126 @@ public class MainFrame extends JFrame {
         rightArrowKeyPressedFlag = false;
     }
    
-    public void refreshScreen() {
-        mainPanel.refreshScreen();
+    /**
+     * With active rendering, render & show a frame now. (falls back to passive rendering
+     * if the canvas can not be rendered)
+     */
+    @Override
+    public void refreshScreen( double interpolationAlpha ) {
+        if( activeRenderingShown ) {
+            if( activeRenderingCanvas.render( interpolationAlpha ) ) {
+                return;
+            }
+            hideActiveRendering();
+        }
+       
+        mainPanel.refreshScreen( interpolationAlpha );
     }
    
+    @Override
     public void updateBallsAndPlayerUnit( Balls balls, PlayerUnit playerUnit ) {
-        mainPanel.updateBallsAndPlayerUnit( balls, playerUnit );
+        if( activeRenderingShown ) {
+            activeRenderingCanvas.updateBallsAndPlayerUnit( balls, playerUnit );
+            lastBalls = balls;
+            lastPlayerUnit = playerUnit;
+        } else {
+            mainPanel.updateBallsAndPlayerUnit( balls, playerUnit );
+        }
     }
    
+    @Override
     public void updateGamePlayingTime( long gameElapsedTime ) {
-        mainPanel.updateGamePlayingTime( gameElapsedTime );
+        if( activeRenderingShown ) {
+            activeRenderingCanvas.updateGamePlayingTime( gameElapsedTime );
+            lastGameElapsedTime = gameElapsedTime;
+        } else {
+            mainPanel.updateGamePlayingTime( gameElapsedTime );
+        }
     }
    
+    @Override
     public void switchInitialPhaseToDuringGame() {
         mainPanel.switchInitialPhaseToDuringGame();
+        showActiveRendering();
     }
    
+    @Override
     public void switchDuringGamePhaseToGameOver() {
+        hideActiveRendering();
         mainPanel.switchDuringGamePhaseToGameOver();
     }
    
+    @Override
     public void switchGameOverPhaseToDuringGame() {
         mainPanel.switchGameOverPhaseToDuringGame();
+        showActiveRendering();
+    }
+   
+    /**
+     * show the canvas for active rendering over the main panel. (if rendering actively)
+     * The core renders into it once it's shown.
+     */
+    private void showActiveRendering() {
+        if( activeRenderingCanvas == null ) {
+            return;
+        }
+       
+        lastBalls = null;
+        lastPlayerUnit = null;
+        lastGameElapsedTime = 0;
+        activeRenderingCanvas.resetFPS();
+        invokeAndWait( new Runnable() {
+            @Override
+            public void run() {
+                activeRenderingCanvas.setVisible( true );
+                activeRenderingCanvas.createBuffers();
+            }
+        } );
+        activeRenderingShown = true;
+    }
+   
+    /**
+     * hide the canvas for active rendering, and let main panel display the latest states.
+     * The latest states are published by the calling (core) thread, before the hand-off;
+     * the event dispatch thread only changes & repaints the components.
+     */
+    private void hideActiveRendering() {
+        if( !activeRenderingShown ) {
+            return;
+        }
+       
+        activeRenderingShown = false;
+        if( lastBalls != null ) {
+            mainPanel.updateBallsAndPlayerUnit( lastBalls, lastPlayerUnit );
+        }
+        mainPanel.updateGamePlayingTime( lastGameElapsedTime );
+        invokeAndWait( new Runnable() {
+            @Override
+            public void run() {
+                activeRenderingCanvas.setVisible( false );
+                mainPanel.refreshScreen( 1.0 );
+                mainPanel.repaint();    // the whole panel was covered by the canvas
+            }
+        } );
+    }
+   
+    /**
+     * run the specified changes of the components by the event dispatch thread, and wait until they are done.
+     * If the waiting thread is interrupted, it stops waiting and keeps the interrupt.
+     */
+    private void invokeAndWait( Runnable componentsChanging ) {
+        if( SwingUtilities.isEventDispatchThread() ) {
+            componentsChanging.run();
+            return;
+        }
+       
+        try {
+            SwingUtilities.invokeAndWait( componentsChanging );
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();     // stop executing
+        } catch( InvocationTargetException e ) {
+            throw new IllegalStateException( "changing the components failed", e.getCause() );
+        }
     }
    
     /**
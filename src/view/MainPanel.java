@@ -1,24 +1,41 @@
 package view;
 
 import domain.Balls;
+import domain.HeapBalls;
 import domain.PlayerUnit;
 
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.GradientPaint;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 public class MainPanel extends JPanel {
     
     private static final long serialVersionUID = 1L;
     
-    private Balls balls;
-    private PlayerUnit playerUnit;
+    private SnapshotExchange snapshotExchange;  // balls' & player unit's states handed over from core thread
+    private volatile double interpolationAlpha;  // 0.0: draw previous tick's positions, 1.0: current tick's
+    private SceneRenderer sceneRenderer;        // draws balls & player unit (used by drawing thread only)
+   
+    private final int DIRTY_REGION_TILE_SIZE = 32;             // the screen is tracked in 32x32 pixel tiles
+    private final double FULL_REPAINT_DIRTY_FRACTION = 0.5;    // repaint all if over half of the tiles changed
+    private DirtyRegion dirtyRegion;            // tiles changed since the previous frame (drawing thread only)
+    private RenderSnapshot displayedSnapshot;   // the snapshot & alpha of the displayed frame (drawing thread only)
+    private double displayedAlpha;
+    private AtomicBoolean frameUpdatePending;   // true while a frame update is queued on the drawing thread
+    private Runnable frameUpdater;
+   
+    private TextCache textCache;                // texts of the displayed values
+    private int displayedNumberOfBalls;         // the values displayed in the labels, updated only when changed
+    private long displayedGameTime;             // in seconds
+    private int displayedFPS;
 
     /**
      * Define the phases of this game:
@@ -27,7 +44,7 @@ public class MainPanel extends JPanel {
      * - GAME_OVER:   After this game ended
      */
     public enum GamePhase{ INITIAL, DURING_GAME, GAME_OVER }
-    private GamePhase gamePhase;           // phase of this game
+    private volatile GamePhase gamePhase;  // phase of this game (read by the drawing thread)
 
     private JButton startButton;
     private JButton restartButton;
@@ -38,8 +55,10 @@ public class MainPanel extends JPanel {
     private JLabel fpsLabel;
     private JLabel fpsValueLabel;
    
-    private boolean startButtonPushedFlag;
-    private boolean restartButtonPushedFlag;
+    private volatile boolean startButtonPushedFlag;     // set by the event dispatch thread, read by the core
+    private volatile boolean restartButtonPushedFlag;
+    private Semaphore startButtonPushedSignal;          // released once when the start button is pushed
+    private Semaphore restartButtonPushedSignal;        // released once when the restart button is pushed
    
     // parameters of fps calculating
     private final long DEFAULT_FPS_CALCULATING_TIMER_VALUE = 1000;   // milisecond
@@ -89,8 +108,25 @@ public class MainPanel extends JPanel {
         fpsLabel.setBounds( 611, 5, 20, 20 );
         add( fpsLabel );
        
-        balls = new Balls();
-        playerUnit = new PlayerUnit();
+        snapshotExchange = new SnapshotExchange();
+        snapshotExchange.publish( new HeapBalls(), new PlayerUnit() );
+        interpolationAlpha = 1.0;
+        sceneRenderer = new SceneRenderer();
+        dirtyRegion = new DirtyRegion( 640, 480, DIRTY_REGION_TILE_SIZE );
+        displayedSnapshot = null;
+        displayedAlpha = 1.0;
+        frameUpdatePending = new AtomicBoolean( false );
+       
+        textCache = new TextCache();
+        displayedNumberOfBalls = -1;
+        displayedGameTime = -1;
+        displayedFPS = -1;
+        frameUpdater = new Runnable() {
+            @Override
+            public void run() {
+                updateFrame();
+            }
+        };
        
         fpsCalculatingTimer = DEFAULT_FPS_CALCULATING_TIMER_VALUE;
         currentSystemTime = 0;
@@ -100,49 +136,60 @@ public class MainPanel extends JPanel {
        
         startButtonPushedFlag = false;
         restartButtonPushedFlag = false;
+        startButtonPushedSignal = new Semaphore( 0 );
+        restartButtonPushedSignal = new Semaphore( 0 );
        
         gamePhase = GamePhase.INITIAL;
     }
    
+    /**
+     * paint the displayed frame. (only the balls in the clip)
+     */
     @Override
     public void paintComponent( Graphics g ) {
         super.paintComponent( g );
        
-        Graphics2D g2d = (Graphics2D)g;
+        if( displayedSnapshot == null ) {
+            displayedSnapshot = snapshotExchange.acquireLatest();
+        }
+        sceneRenderer.drawScene(
+            (Graphics2D)g, displayedSnapshot, displayedAlpha, getWidth(), getHeight(), getBackground()
+        );
+    }
+   
+    /**
+     * display the latest snapshot: repaint where the balls & player unit were drawn
+     * in the previous frame, and where they are drawn now. (on the drawing thread)
+     * If most of the screen changed, it is repainted entirely.
+     */
+    private void updateFrame() {
+        frameUpdatePending.set( false );
+        displayedSnapshot = snapshotExchange.acquireLatest();
+        displayedAlpha = interpolationAlpha;
+       
+        // count the frames actually painted, not the refresh requests
+        if( gamePhase == GamePhase.DURING_GAME ) {
+            calculateFPS();
+        }
        
-        // drawing balls
-        for( int i = 0; i < balls.getNumberOfBalls(); i++ ) {
-            // drawing the balls' body
-            g.setColor( balls.getBallsColor( i ) );
-            g.fillOval(
-                balls.getBallsPositionX1( i ), balls.getBallsPositionY1( i ),
-                balls.getDiameter(), balls.getDiameter()
-            );
-            // drawing the balls' border
-            g.setColor( balls.getBallsBorderColor( i ) );
-            g.drawOval(
-                balls.getBallsPositionX1( i ), balls.getBallsPositionY1( i ),
-                balls.getDiameter(), balls.getDiameter()
-            );
+        dirtyRegion.nextFrame();
+        if( !isShowing() ) {
+            dirtyRegion.markAll();      // not painted: unknown next time
+            return;
         }
+        dirtyRegion.markScene( displayedSnapshot, displayedAlpha );
        
-        // drawing the controlled unit
-        g2d.setPaint(
-            new GradientPaint(
-                playerUnit.getPositionX1(),
-                playerUnit.getPositionY1(),
-                playerUnit.getColor1(),
-                playerUnit.getPositionX1() + 8,
-                playerUnit.getPositionY1() + 12,
-                playerUnit.getColor2()
-            )
-        );
-        g2d.fillOval(
-            playerUnit.getPositionX1(),
-            playerUnit.getPositionY1(),
-            playerUnit.getDiameter(),
-            playerUnit.getDiameter()
-        );
+        if( getWidth() != dirtyRegion.getWidth() || getHeight() != dirtyRegion.getHeight()
+                || !dirtyRegion.mergeDirtyTiles( FULL_REPAINT_DIRTY_FRACTION ) ) {
+            paintImmediately( 0, 0, getWidth(), getHeight() );
+            return;
+        }
+        for( int r = 0; r < dirtyRegion.getNumberOfRectangles(); r++ ) {
+            paintImmediately(
+                dirtyRegion.getRectangleX( r ), dirtyRegion.getRectangleY( r ),
+                dirtyRegion.getRectangleWidth( r ), dirtyRegion.getRectangleHeight( r )
+            );
+        }
     }
    
     /**
@@ -159,7 +206,10 @@ public class MainPanel extends JPanel {
             fpsCalculatingTimer = fpsCalculatingTimer + DEFAULT_FPS_CALCULATING_TIMER_VALUE;
             currentFPS = (frameCounter * 1000) / (int)DEFAULT_FPS_CALCULATING_TIMER_VALUE;
             frameCounter = 0;
-            fpsValueLabel.setText( String.format( "%d", currentFPS ) );
+            if( currentFPS != displayedFPS ) {
+                displayedFPS = currentFPS;
+                fpsValueLabel.setText( textCache.getNumberText( currentFPS ) );
+            }
         }
     }
    
@@ -172,39 +222,65 @@ public class MainPanel extends JPanel {
     }
    
     /**
-     * Refresh screen and update fps.
+     * block until the start button is pushed.
      */
-    public void refreshScreen() {
-        if( gamePhase == GamePhase.DURING_GAME ) {
-            calculateFPS();
+    public void waitForStartButtonPushed() throws InterruptedException {
+        if( !startButtonPushedFlag ) {
+            startButtonPushedSignal.acquire();
+        }
+    }
+   
+    /**
+     * block until the restart button is pushed.
+     */
+    public void waitForRestartButtonPushed() throws InterruptedException {
+        if( !restartButtonPushedFlag ) {
+            restartButtonPushedSignal.acquire();
+        }
+    }
+   
+    /**
+     * set the number of balls above which the balls are drawn into an image's pixels.
+     */
+    public void setRasterRenderingThreshold( int rasterRenderingThreshold ) {
+        sceneRenderer.setRasterThreshold( rasterRenderingThreshold );
     }
+   
+    /**
+     * Request refreshing screen. (the fps is counted when it's painted)
+     * The positions are drawn interpolated by the specified alpha.
+     */
+    public void refreshScreen( double interpolationAlpha ) {
+        this.interpolationAlpha = interpolationAlpha;
        
-        repaint();
+        // at most one frame update queued; it displays the latest snapshot anyway
+        if( frameUpdatePending.compareAndSet( false, true ) ) {
+            SwingUtilities.invokeLater( frameUpdater );
+        }
     }
     
     /**
      * Update balls and player unit displaying.
+     * The states are copied, so the caller can keep changing them while drawing.
+     * (the number of balls label is updated only when the number changes)
      */
     public void updateBallsAndPlayerUnit( Balls balls, PlayerUnit playerUnit ) {
-        this.balls = balls;
-        this.playerUnit = playerUnit;
+        snapshotExchange.publish( balls, playerUnit );
        
-        ballsNumberValueLabel.setText(
-            String.format( "%d", balls.getNumberOfBalls() )
-        );
+        if( balls.getNumberOfBalls() != displayedNumberOfBalls ) {
+            displayedNumberOfBalls = balls.getNumberOfBalls();
+            ballsNumberValueLabel.setText( textCache.getNumberText( displayedNumberOfBalls ) );
+        }
     }
     
     /**
-     * Update game playing time.
+     * Update game playing time. (the label is updated only when the displayed second changes)
      */
     public void updateGamePlayingTime( long gameElapsedTime ) {
-        gameTimeValueLabel.setText(
-            String.format(
-                "%02d:%02d",
-                (int)( (gameElapsedTime / 1000) / 60 ),  // minute
-                (int)( (gameElapsedTime / 1000) % 60 )   // second
-            )
-        );
+        if( gameElapsedTime / 1000 != displayedGameTime ) {
+            displayedGameTime = gameElapsedTime / 1000;
+            gameTimeValueLabel.setText( textCache.getTimeText( gameElapsedTime ) );
+        }
     }
    
     /**
@@ -218,6 +294,7 @@ public class MainPanel extends JPanel {
         currentFPS = 0;
    
         startButtonPushedFlag = false;
+        startButtonPushedSignal.drainPermits();
         startButton.setEnabled( false );
         startButton.setVisible( false );
        
@@ -246,6 +323,7 @@ public class MainPanel extends JPanel {
         currentFPS = 0;
        
         restartButtonPushedFlag = false;
+        restartButtonPushedSignal.drainPermits();
         restartButton.setEnabled( false );
         restartButton.setVisible( false );
        
@@ -258,10 +336,12 @@ public class MainPanel extends JPanel {
     private class ButtonActionListener implements ActionListener {
         @Override
         public void actionPerformed( ActionEvent event ) {
-            if( event.getSource() == startButton ) {
+            if( event.getSource() == startButton && !startButtonPushedFlag ) {
                 startButtonPushedFlag = true;
-            } else if( event.getSource() == restartButton ) {
+                startButtonPushedSignal.release();
+            } else if( event.getSource() == restartButton && !restartButtonPushedFlag ) {
                 restartButtonPushedFlag = true;
+                restartButtonPushedSignal.release();
             }
         }
     }
@@ -0,0 +1,158 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Level-of-detail drawing of many balls: the balls are written directly into the int pixels
+ * of an image, as precomputed row spans of a ball (border, fill, border), and the image is
+ * drawn once per frame, instead of one drawImage() per ball.
+ * The spans are taken from a ball rendered by Java2D (fillOval & drawOval, as the ball sprites),
+ * so the balls look the same as drawn by SceneRenderer's sprites.
+ */
+class RasterSceneRenderer {
+
+    private BufferedImage image;            // background & balls (TYPE_INT_RGB)
+    private int pixels[];                   // the pixels of the image, row by row
+    private int imageWidth;
+
+    private int maskDiameter;               // the diameter the spans are computed for
+    private int rowsBallBegin[];            // in each row of a ball: [ballBegin, fillBegin) is border,
+    private int rowsFillBegin[];            // [fillBegin, fillEnd) is fill,
+    private int rowsFillEnd[];              // [fillEnd, ballEnd) is border again
+    private int rowsBallEnd[];              // (x offsets from the left of the ball)
+
+    public RasterSceneRenderer() {
+        image = null;
+        pixels = null;
+        imageWidth = 0;
+        maskDiameter = -1;
+    }
+
+    /**
+     * draw the background & the balls in the region (x1, y1) ~ (x2, y2) (exclusive) of an area
+     * of the specified size, at the positions interpolated by the specified alpha.
+     */
+    public void drawBalls(
+        Graphics2D g2d, RenderSnapshot snapshot, double alpha, int width, int height, Color background,
+        int regionX1, int regionY1, int regionX2, int regionY2
+    ) {
+        int diameter = snapshot.getBallsDiameter();
+        int size = diameter + 1;            // as the sprites, one pixel wider for the border
+        int backgroundRGB = background.getRGB();
+        int x1;
+        int y1;
+        int rowBegin;
+        int rowEnd;
+        int rowOffset;
+        int colorRGB;
+        int borderColorRGB;
+
+        if( regionX1 >= regionX2 || regionY1 >= regionY2 ) {
+            return;
+        }
+        if( image == null || image.getWidth() != width || image.getHeight() != height ) {
+            image = new BufferedImage( width, height, BufferedImage.TYPE_INT_RGB );
+            pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+            imageWidth = width;
+        }
+        if( diameter != maskDiameter ) {
+            computeMask( diameter );
+        }
+
+        // background
+        for( int y = regionY1; y < regionY2; y++ ) {
+            Arrays.fill( pixels, y * imageWidth + regionX1, y * imageWidth + regionX2, backgroundRGB );
+        }
+
+        // balls, clipped to the region
+        for( int i = 0; i < snapshot.getNumberOfBalls(); i++ ) {
+            x1 = snapshot.getBallsPositionX1( i, alpha );
+            y1 = snapshot.getBallsPositionY1( i, alpha );
+            if( x1 >= regionX2 || x1 + size <= regionX1 || y1 >= regionY2 || y1 + size <= regionY1 ) {
+                continue;
+            }
+
+            colorRGB = snapshot.getBallsColorRGB( i );
+            borderColorRGB = snapshot.getBallsBorderColorRGB( i );
+            rowBegin = Math.max( regionY1 - y1, 0 );
+            rowEnd = Math.min( regionY2 - y1, size );
+            for( int row = rowBegin; row < rowEnd; row++ ) {
+                rowOffset = (y1 + row) * imageWidth;
+                fillSpan( rowOffset, x1 + rowsBallBegin[ row ], x1 + rowsFillBegin[ row ], borderColorRGB,
+                          regionX1, regionX2 );
+                fillSpan( rowOffset, x1 + rowsFillBegin[ row ], x1 + rowsFillEnd[ row ], colorRGB,
+                          regionX1, regionX2 );
+                fillSpan( rowOffset, x1 + rowsFillEnd[ row ], x1 + rowsBallEnd[ row ], borderColorRGB,
+                          regionX1, regionX2 );
+            }
+        }
+
+        g2d.drawImage( image, regionX1, regionY1, regionX2, regionY2, regionX1, regionY1, regionX2, regionY2, null );
+    }
+
+    private void fillSpan( int rowOffset, int xBegin, int xEnd, int rgb, int regionX1, int regionX2 ) {
+        int begin = Math.max( xBegin, regionX1 );
+        int end = Math.min( xEnd, regionX2 );
+
+        for( int x = begin; x < end; x++ ) {
+            pixels[ rowOffset + x ] = rgb;
+        }
+    }
+
+    /**
+     * compute the spans of each row of a ball, from a ball rendered as the sprites are.
+     */
+    private void computeMask( int diameter ) {
+        final int fillRGB = 0xff00ff00;
+        final int borderRGB = 0xffff0000;
+        int size = diameter + 1;
+        BufferedImage ball = new BufferedImage( size, size, BufferedImage.TYPE_INT_ARGB );
+        Graphics2D g2d = ball.createGraphics();
+        int rgb;
+
+        g2d.setColor( new Color( fillRGB ) );
+        g2d.fillOval( 0, 0, diameter, diameter );
+        g2d.setColor( new Color( borderRGB ) );
+        g2d.drawOval( 0, 0, diameter, diameter );
+        g2d.dispose();
+
+        rowsBallBegin = new int[ size ];
+        rowsFillBegin = new int[ size ];
+        rowsFillEnd = new int[ size ];
+        rowsBallEnd = new int[ size ];
+        for( int row = 0; row < size; row++ ) {
+            int ballBegin = size;
+            int ballEnd = 0;
+            int fillBegin = size;
+            int fillEnd = 0;
+            for( int x = 0; x < size; x++ ) {
+                rgb = ball.getRGB( x, row );
+                if( (rgb >>> 24) != 0 ) {
+                    ballBegin = Math.min( ballBegin, x );
+                    ballEnd = x + 1;
+                }
+                if( rgb == fillRGB ) {
+                    fillBegin = Math.min( fillBegin, x );
+                    fillEnd = x + 1;
+                }
+            }
+            if( ballEnd == 0 ) {
+                ballBegin = 0;          // empty row
+            }
+            if( fillEnd == 0 ) {
+                fillBegin = ballEnd;    // border only
+                fillEnd = ballEnd;
+            }
+            rowsBallBegin[ row ] = ballBegin;
+            rowsFillBegin[ row ] = fillBegin;
+            rowsFillEnd[ row ] = fillEnd;
+            rowsBallEnd[ row ] = ballEnd;
+        }
+
+        maskDiameter = diameter;
+    }
+}
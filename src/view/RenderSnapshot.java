@@ -0,0 +1,166 @@
+package view;
+
+import domain.Balls;
+import domain.PlayerUnit;
+
+import java.awt.Color;
+
+/**
+ * A copy of the balls' & player unit's states for drawing one frame.
+ * The arrays are kept & reused between captures, and only grow when there are more balls.
+ */
+class RenderSnapshot {
+
+    private int numberOfBalls;
+    private int ballsRadius;
+    private int ballsDiameter;
+    private double ballsPreviousCenterX[];
+    private double ballsPreviousCenterY[];
+    private double ballsCenterX[];
+    private double ballsCenterY[];
+    private int ballsColorRGB[];            // packed ARGB
+    private byte ballsBorderColorIndex[];   // index of the balls' border color palette
+
+    private int playerUnitRadius;
+    private int playerUnitDiameter;
+    private double playerUnitPreviousCenterX;
+    private double playerUnitPreviousCenterY;
+    private double playerUnitCenterX;
+    private double playerUnitCenterY;
+    private Color playerUnitColor1;
+    private Color playerUnitColor2;
+
+    private boolean fresh;      // true if captured, and not yet taken for drawing
+
+    public RenderSnapshot() {
+        numberOfBalls = 0;
+        ballsPreviousCenterX = new double[ 0 ];
+        ballsPreviousCenterY = new double[ 0 ];
+        ballsCenterX = new double[ 0 ];
+        ballsCenterY = new double[ 0 ];
+        ballsColorRGB = new int[ 0 ];
+        ballsBorderColorIndex = new byte[ 0 ];
+
+        playerUnitColor1 = Color.BLUE;
+        playerUnitColor2 = Color.YELLOW;
+
+        fresh = false;
+    }
+
+    /**
+     * copy the current states of balls & player unit into this snapshot.
+     */
+    public void capture( Balls balls, PlayerUnit playerUnit ) {
+        numberOfBalls = balls.getNumberOfBalls();
+        ballsRadius = balls.getRadius();
+        ballsDiameter = balls.getDiameter();
+        if( ballsCenterX.length < numberOfBalls ) {
+            int newSize = Math.max( numberOfBalls, ballsCenterX.length * 2 );
+            ballsPreviousCenterX = new double[ newSize ];
+            ballsPreviousCenterY = new double[ newSize ];
+            ballsCenterX = new double[ newSize ];
+            ballsCenterY = new double[ newSize ];
+            ballsColorRGB = new int[ newSize ];
+            ballsBorderColorIndex = new byte[ newSize ];
+        }
+        balls.copyPositionsTo( ballsPreviousCenterX, ballsPreviousCenterY, ballsCenterX, ballsCenterY );
+        balls.copyColorsTo( ballsColorRGB, ballsBorderColorIndex );
+
+        playerUnitRadius = playerUnit.getRadius();
+        playerUnitDiameter = playerUnit.getDiameter();
+        playerUnitPreviousCenterX = playerUnit.getPreviousCenterX();
+        playerUnitPreviousCenterY = playerUnit.getPreviousCenterY();
+        playerUnitCenterX = playerUnit.getCenterX();
+        playerUnitCenterY = playerUnit.getCenterY();
+        playerUnitColor1 = playerUnit.getColor1();
+        playerUnitColor2 = playerUnit.getColor2();
+    }
+
+    public int getNumberOfBalls() {
+        return numberOfBalls;
+    }
+
+    public int getBallsDiameter() {
+        return ballsDiameter;
+    }
+
+    public int getBallsColorRGB( int index ) {
+        return ballsColorRGB[ index ];
+    }
+
+    public int getBallsBorderColorIndex( int index ) {
+        return ballsBorderColorIndex[ index ];
+    }
+
+    public double getBallsCenterX( int index ) {
+        return ballsCenterX[ index ];
+    }
+
+    public double getBallsCenterY( int index ) {
+        return ballsCenterY[ index ];
+    }
+
+    public int getBallsBorderColorRGB( int index ) {
+        return Balls.getBorderColorRGB( ballsBorderColorIndex[ index ] );
+    }
+
+    /**
+     * get the x position of a ball, interpolated by alpha. (0.0: previous tick, 1.0: current tick)
+     */
+    public int getBallsPositionX1( int index, double alpha ) {
+        return (int)(ballsPreviousCenterX[ index ]
+                     + (ballsCenterX[ index ] - ballsPreviousCenterX[ index ]) * alpha - (double)ballsRadius);
+    }
+
+    /**
+     * get the y position of a ball, interpolated by alpha. (0.0: previous tick, 1.0: current tick)
+     */
+    public int getBallsPositionY1( int index, double alpha ) {
+        return (int)(ballsPreviousCenterY[ index ]
+                     + (ballsCenterY[ index ] - ballsPreviousCenterY[ index ]) * alpha - (double)ballsRadius);
+    }
+
+    public int getPlayerUnitDiameter() {
+        return playerUnitDiameter;
+    }
+
+    public double getPlayerUnitCenterX() {
+        return playerUnitCenterX;
+    }
+
+    public double getPlayerUnitCenterY() {
+        return playerUnitCenterY;
+    }
+
+    public Color getPlayerUnitColor1() {
+        return playerUnitColor1;
+    }
+
+    public Color getPlayerUnitColor2() {
+        return playerUnitColor2;
+    }
+
+    /**
+     * get the x position of player unit, interpolated by alpha.
+     */
+    public int getPlayerUnitPositionX1( double alpha ) {
+        return (int)(playerUnitPreviousCenterX
+                     + (playerUnitCenterX - playerUnitPreviousCenterX) * alpha - (double)playerUnitRadius);
+    }
+
+    /**
+     * get the y position of player unit, interpolated by alpha.
+     */
+    public int getPlayerUnitPositionY1( double alpha ) {
+        return (int)(playerUnitPreviousCenterY
+                     + (playerUnitCenterY - playerUnitPreviousCenterY) * alpha - (double)playerUnitRadius);
+    }
+
+    boolean isFresh() {
+        return fresh;
+    }
+
+    void setFresh( boolean fresh ) {
+        this.fresh = fresh;
+    }
+}
@@ -0,0 +1,122 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+
+/**
+ * Draw the balls & player unit of a render snapshot, from pre-rendered sprites.
+ * Used by both the passive (MainPanel.paintComponent) and the active (ActiveRenderingCanvas) rendering.
+ * The sprite cache is not thread-safe, so each drawing thread has its own scene renderer.
+ * Above rasterThreshold balls, the balls are written into an image's pixels instead
+ * (RasterSceneRenderer), as a drawImage() per ball costs more than the game then.
+ */
+class SceneRenderer {
+
+    private final int MAX_BALL_SPRITES = 4096;     // at most 4096 ball colors pre-rendered
+    private final int NO_CLIP_BOUND = 1 << 29;      // clip bounds meaning "not clipped"
+    public final static int DEFAULT_RASTER_THRESHOLD = 2000;
+
+    private BallSpriteCache spriteCache;        // pre-rendered balls & player unit
+    private RasterSceneRenderer rasterRenderer; // draws many balls into an image (created when needed)
+    private Rectangle clipBounds;               // reused for getting the clip bounds (without allocating)
+    private volatile int rasterThreshold;       // number of balls above which the balls are rasterized
+
+    public SceneRenderer() {
+        spriteCache = new BallSpriteCache( MAX_BALL_SPRITES );
+        rasterRenderer = null;
+        clipBounds = new Rectangle();
+        rasterThreshold = DEFAULT_RASTER_THRESHOLD;
+    }
+
+    /**
+     * set the number of balls above which the balls are rasterized. (Integer.MAX_VALUE: never)
+     */
+    public void setRasterThreshold( int theRasterThreshold ) {
+        if( theRasterThreshold < 0 ) {
+            throw new IllegalArgumentException( "raster threshold: " + theRasterThreshold );
+        }
+        rasterThreshold = theRasterThreshold;
+    }
+
+    public int getRasterThreshold() {
+        return rasterThreshold;
+    }
+
+    /**
+     * draw the balls & player unit, at the positions interpolated by the specified alpha,
+     * on an area of the specified size & background. The balls outside the clip are skipped.
+     */
+    public void drawScene(
+        Graphics2D g2d, RenderSnapshot snapshot, double alpha, int width, int height, Color background
+    ) {
+        GraphicsConfiguration graphicsConfiguration = g2d.getDeviceConfiguration();
+        int diameter = snapshot.getBallsDiameter();
+        int clipX1;
+        int clipY1;
+        int clipX2;
+        int clipY2;
+
+        // without a clip, the bounds are left as they are set here (getClip() would allocate a copy)
+        clipBounds.setBounds( -NO_CLIP_BOUND, -NO_CLIP_BOUND, 2 * NO_CLIP_BOUND, 2 * NO_CLIP_BOUND );
+        g2d.getClipBounds( clipBounds );
+        clipX1 = clipBounds.x - diameter;   // a ball whose sprite ends before the clip begins is skipped
+        clipY1 = clipBounds.y - diameter;
+        clipX2 = clipBounds.x + clipBounds.width;
+        clipY2 = clipBounds.y + clipBounds.height;
+
+        if( snapshot.getNumberOfBalls() > rasterThreshold ) {
+            // drawing balls into the pixels of an image, blitted once
+            if( rasterRenderer == null ) {
+                rasterRenderer = new RasterSceneRenderer();
+            }
+            rasterRenderer.drawBalls(
+                g2d, snapshot, alpha, width, height, background,
+                Math.max( clipBounds.x, 0 ), Math.max( clipBounds.y, 0 ),
+                Math.min( clipX2, width ), Math.min( clipY2, height )
+            );
+        } else {
+            drawBallSprites( g2d, snapshot, alpha, graphicsConfiguration, clipX1, clipY1, clipX2, clipY2 );
+        }
+
+        // drawing the controlled unit (pre-rendered with its gradient paint)
+        g2d.drawImage(
+            spriteCache.getPlayerUnitSprite(
+                snapshot.getPlayerUnitColor1(), snapshot.getPlayerUnitColor2(),
+                snapshot.getPlayerUnitDiameter(), graphicsConfiguration
+            ),
+            snapshot.getPlayerUnitPositionX1( alpha ), snapshot.getPlayerUnitPositionY1( alpha ),
+            null
+        );
+    }
+
+    /**
+     * draw the balls whose sprites begin in (clipX1, clipY1) ~ (clipX2, clipY2) (body & border, pre-rendered).
+     */
+    private void drawBallSprites(
+        Graphics2D g2d, RenderSnapshot snapshot, double alpha, GraphicsConfiguration graphicsConfiguration,
+        int clipX1, int clipY1, int clipX2, int clipY2
+    ) {
+        int diameter = snapshot.getBallsDiameter();
+        int x1;
+        int y1;
+
+        for( int i = 0; i < snapshot.getNumberOfBalls(); i++ ) {
+            x1 = snapshot.getBallsPositionX1( i, alpha );
+            y1 = snapshot.getBallsPositionY1( i, alpha );
+            if( x1 < clipX1 || x1 >= clipX2 || y1 < clipY1 || y1 >= clipY2 ) {
+                continue;
+            }
+
+            g2d.drawImage(
+                spriteCache.getBallSprite(
+                    snapshot.getBallsColorRGB( i ), snapshot.getBallsBorderColorRGB( i ),
+                    diameter, graphicsConfiguration
+                ),
+                x1, y1,
+                null
+            );
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package view;
+
+import domain.Balls;
+import domain.PlayerUnit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hand over render snapshots from the game core thread to the drawing thread (EDT)
+ * without locks, by triple buffering:
+ * - the core thread captures into the back snapshot, then swaps it with the middle one
+ * - the drawing thread swaps its front snapshot with the middle one, if the middle one is fresh
+ * Each snapshot is owned by one thread at a time, so the front snapshot never changes while drawing.
+ */
+class SnapshotExchange {
+
+    private RenderSnapshot backSnapshot;                        // used by core thread only
+    private final AtomicReference<RenderSnapshot> middleSnapshot;
+    private RenderSnapshot frontSnapshot;                       // used by drawing thread only
+
+    public SnapshotExchange() {
+        backSnapshot = new RenderSnapshot();
+        middleSnapshot = new AtomicReference<RenderSnapshot>( new RenderSnapshot() );
+        frontSnapshot = new RenderSnapshot();
+    }
+
+    /**
+     * capture the states of balls & player unit, and publish them for drawing.
+     * (called by the game core thread)
+     */
+    public void publish( Balls balls, PlayerUnit playerUnit ) {
+        backSnapshot.capture( balls, playerUnit );
+        backSnapshot.setFresh( true );
+        backSnapshot = middleSnapshot.getAndSet( backSnapshot );
+    }
+
+    /**
+     * get the latest published snapshot.
+     * (called by the drawing thread)
+     */
+    public RenderSnapshot acquireLatest() {
+        if( middleSnapshot.get().isFresh() ) {
+            frontSnapshot.setFresh( false );
+            frontSnapshot = middleSnapshot.getAndSet( frontSnapshot );
+        }
+
+        return frontSnapshot;
+    }
+}
@@ -0,0 +1,325 @@
+package view;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decode the spectator stream of SpectatorServer: rebuild the state of each frame from the keyframe
+ * or from the deltas against a kept keyframe (the newest & the previous one are kept), and validate it
+ * against the frame's state hash. An invalid stream is reported by an IOException.
+ */
+public class SpectatorFrameDecoder {
+
+    private final static long HASH_OFFSET = 0xcbf29ce484222325L;  // FNV-1a, per int
+    private final static long HASH_PRIME = 0x100000001b3L;
+
+    private boolean helloReceived;
+    private byte lastType;                  // type of the last decoded frame
+    private long frameNumber;
+    private int keyframeNumber;             // the last decoded frame's keyframe, or base keyframe
+    private long gameElapsedTime;
+    private int ballsDiameter;
+    private int playerUnitDiameter;
+    private int playerUnitX;                // fixed-point center of player unit
+    private int playerUnitY;
+    private int numberOfBalls;
+    private int ballsX[];                   // fixed-point centers of the balls
+    private int ballsY[];
+    private int ballsColorRGB[];
+    private byte ballsBorderColorIndex[];
+
+    private Keyframe newestKeyframe;        // number -1: none yet
+    private Keyframe previousKeyframe;
+
+    public SpectatorFrameDecoder() {
+        helloReceived = false;
+        lastType = 0;
+        frameNumber = 0;
+        keyframeNumber = -1;
+        numberOfBalls = 0;
+        ballsX = new int[ 0 ];
+        ballsY = new int[ 0 ];
+        ballsColorRGB = new int[ 0 ];
+        ballsBorderColorIndex = new byte[ 0 ];
+
+        newestKeyframe = new Keyframe();
+        previousKeyframe = new Keyframe();
+    }
+
+    /**
+     * decode a message of the specified type from the payload.
+     */
+    public void decode( byte type, ByteBuffer payload ) throws IOException {
+        try {
+            if( type == SpectatorServer.HELLO ) {
+                decodeHello( payload );
+            } else if( !helloReceived ) {
+                throw new IOException( "the stream doesn't begin with a hello" );
+            } else if( type == SpectatorServer.KEYFRAME ) {
+                decodeKeyframe( payload );
+            } else if( type == SpectatorServer.DELTA ) {
+                decodeDelta( payload );
+            } else {
+                throw new IOException( "unknown message type: " + type );
+            }
+        } catch( BufferUnderflowException e ) {
+            throw new IOException( "truncated message of type " + type );
+        }
+        if( payload.hasRemaining() ) {
+            throw new IOException( payload.remaining() + " extra bytes in a message of type " + type );
+        }
+        lastType = type;
+    }
+
+    private void decodeHello( ByteBuffer payload ) throws IOException {
+        if( payload.getInt() != SpectatorServer.MAGIC ) {
+            throw new IOException( "not a spectator stream" );
+        }
+        if( payload.getInt() != SpectatorServer.VERSION ) {
+            throw new IOException( "unsupported spectator stream version" );
+        }
+        if( payload.getInt() != SpectatorServer.FIXED_POINT_SHIFT ) {
+            throw new IOException( "unsupported fixed-point format" );
+        }
+        helloReceived = true;
+    }
+
+    private void decodeKeyframe( ByteBuffer payload ) throws IOException {
+        int theKeyframeNumber;
+        Keyframe keyframe;
+
+        beginFrame( payload.getLong() );
+        theKeyframeNumber = payload.getInt();
+        if( theKeyframeNumber <= newestKeyframe.number ) {
+            throw new IOException( "keyframe " + theKeyframeNumber + " after keyframe " + newestKeyframe.number );
+        }
+        gameElapsedTime = payload.getLong();
+        ballsDiameter = payload.getInt();
+        playerUnitDiameter = payload.getInt();
+        playerUnitX = payload.getInt();
+        playerUnitY = payload.getInt();
+        setNumberOfBalls( payload.getInt(), payload );
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            ballsX[ i ] = payload.getInt();
+            ballsY[ i ] = payload.getInt();
+            ballsColorRGB[ i ] = payload.getInt();
+            ballsBorderColorIndex[ i ] = payload.get();
+        }
+        checkStateHash( payload.getLong() );
+
+        // keep it as the newest keyframe, reusing the arrays of the previous one
+        keyframe = previousKeyframe;
+        keyframe.number = theKeyframeNumber;
+        keyframe.copyBallsFrom( numberOfBalls, ballsX, ballsY, ballsColorRGB, ballsBorderColorIndex );
+        previousKeyframe = newestKeyframe;
+        newestKeyframe = keyframe;
+        keyframeNumber = theKeyframeNumber;
+    }
+
+    private void decodeDelta( ByteBuffer payload ) throws IOException {
+        Keyframe base;
+        int numberOfBaseBalls;
+        int numberOfRecoloredBalls;
+        int index;
+
+        beginFrame( payload.getLong() );
+        keyframeNumber = payload.getInt();
+        if( keyframeNumber >= 0 && keyframeNumber == newestKeyframe.number ) {
+            base = newestKeyframe;
+        } else if( keyframeNumber >= 0 && keyframeNumber == previousKeyframe.number ) {
+            base = previousKeyframe;
+        } else {
+            throw new IOException( "frame " + frameNumber + " based on unknown keyframe " + keyframeNumber );
+        }
+        gameElapsedTime = payload.getLong();
+        playerUnitX = payload.getInt();
+        playerUnitY = payload.getInt();
+        setNumberOfBalls( payload.getInt(), payload );
+        numberOfBaseBalls = Math.min( numberOfBalls, base.numberOfBalls );
+        for( int i = 0; i < numberOfBaseBalls; i++ ) {
+            ballsX[ i ] = base.ballsX[ i ] + getVarint( payload );
+            ballsY[ i ] = base.ballsY[ i ] + getVarint( payload );
+            ballsColorRGB[ i ] = base.ballsColorRGB[ i ];
+            ballsBorderColorIndex[ i ] = base.ballsBorderColorIndex[ i ];
+        }
+        for( int i = numberOfBaseBalls; i < numberOfBalls; i++ ) {
+            ballsX[ i ] = getVarint( payload );
+            ballsY[ i ] = getVarint( payload );
+            ballsColorRGB[ i ] = 0;
+            ballsBorderColorIndex[ i ] = 0;
+        }
+
+        numberOfRecoloredBalls = payload.getInt();
+        for( int r = 0; r < numberOfRecoloredBalls; r++ ) {
+            index = payload.getInt();
+            if( index < 0 || index >= numberOfBalls ) {
+                throw new IOException( "recolored ball " + index + " of " + numberOfBalls );
+            }
+            ballsColorRGB[ index ] = payload.getInt();
+            ballsBorderColorIndex[ index ] = payload.get();
+        }
+        checkStateHash( payload.getLong() );
+    }
+
+    private void beginFrame( long theFrameNumber ) throws IOException {
+        if( theFrameNumber <= frameNumber ) {
+            throw new IOException( "frame " + theFrameNumber + " after frame " + frameNumber );
+        }
+        frameNumber = theFrameNumber;
+    }
+
+    private void setNumberOfBalls( int theNumberOfBalls, ByteBuffer payload ) throws IOException {
+        if( theNumberOfBalls < 0 || theNumberOfBalls > payload.remaining() ) {
+            throw new IOException( "number of balls: " + theNumberOfBalls );
+        }
+        numberOfBalls = theNumberOfBalls;
+        if( ballsX.length < numberOfBalls ) {
+            int newSize = Math.max( numberOfBalls, ballsX.length * 2 );
+            ballsX = new int[ newSize ];
+            ballsY = new int[ newSize ];
+            ballsColorRGB = new int[ newSize ];
+            ballsBorderColorIndex = new byte[ newSize ];
+        }
+    }
+
+    private void checkStateHash( long stateHash ) throws IOException {
+        if( hashState( playerUnitX, playerUnitY, numberOfBalls, ballsX, ballsY, ballsColorRGB, ballsBorderColorIndex )
+                != stateHash ) {
+            throw new IOException( "state hash mismatch at frame " + frameNumber );
+        }
+    }
+
+    /**
+     * read a zigzag varint. (see SpectatorFrameEncoder.putVarint())
+     */
+    static int getVarint( ByteBuffer buffer ) throws IOException {
+        int zigzag = 0;
+        int b;
+
+        for( int shift = 0; shift < 35; shift += 7 ) {
+            b = buffer.get();
+            zigzag |= (b & 0x7f) << shift;
+            if( (b & 0x80) == 0 ) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+
+        throw new IOException( "malformed varint" );
+    }
+
+    /**
+     * the hash of a frame's quantized state. (FNV-1a over the ints)
+     */
+    static long hashState(
+        int playerUnitX, int playerUnitY, int numberOfBalls,
+        int[] ballsX, int[] ballsY, int[] ballsColorRGB, byte[] ballsBorderColorIndex
+    ) {
+        long hash = HASH_OFFSET;
+
+        hash = (hash ^ playerUnitX) * HASH_PRIME;
+        hash = (hash ^ playerUnitY) * HASH_PRIME;
+        hash = (hash ^ numberOfBalls) * HASH_PRIME;
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            hash = (hash ^ ballsX[ i ]) * HASH_PRIME;
+            hash = (hash ^ ballsY[ i ]) * HASH_PRIME;
+            hash = (hash ^ ballsColorRGB[ i ]) * HASH_PRIME;
+            hash = (hash ^ ballsBorderColorIndex[ i ]) * HASH_PRIME;
+        }
+
+        return hash;
+    }
+
+    /**
+     * true if the last decoded frame is a keyframe, which should be acknowledged.
+     */
+    public boolean isKeyframe() {
+        return lastType == SpectatorServer.KEYFRAME;
+    }
+
+    public long getFrameNumber() {
+        return frameNumber;
+    }
+
+    /**
+     * get the number of the last decoded frame's keyframe, or of the keyframe its deltas are based on.
+     */
+    public int getKeyframeNumber() {
+        return keyframeNumber;
+    }
+
+    public long getGameElapsedTime() {
+        return gameElapsedTime;
+    }
+
+    public int getBallsDiameter() {
+        return ballsDiameter;
+    }
+
+    public int getPlayerUnitDiameter() {
+        return playerUnitDiameter;
+    }
+
+    public int getNumberOfBalls() {
+        return numberOfBalls;
+    }
+
+    /**
+     * get the x position of a ball's center, in pixels.
+     */
+    public double getBallsCenterX( int index ) {
+        return (double)ballsX[ index ] / (1 << SpectatorServer.FIXED_POINT_SHIFT);
+    }
+
+    public double getBallsCenterY( int index ) {
+        return (double)ballsY[ index ] / (1 << SpectatorServer.FIXED_POINT_SHIFT);
+    }
+
+    public int getBallsColorRGB( int index ) {
+        return ballsColorRGB[ index ];
+    }
+
+    public double getPlayerUnitCenterX() {
+        return (double)playerUnitX / (1 << SpectatorServer.FIXED_POINT_SHIFT);
+    }
+
+    public double getPlayerUnitCenterY() {
+        return (double)playerUnitY / (1 << SpectatorServer.FIXED_POINT_SHIFT);
+    }
+
+    /**
+     * the balls of a keyframe, which the deltas are added to.
+     */
+    private static class Keyframe {
+
+        int number;
+        int numberOfBalls;
+        int ballsX[];
+        int ballsY[];
+        int ballsColorRGB[];
+        byte ballsBorderColorIndex[];
+
+        Keyframe() {
+            number = -1;
+            numberOfBalls = 0;
+            ballsX = new int[ 0 ];
+            ballsY = new int[ 0 ];
+            ballsColorRGB = new int[ 0 ];
+            ballsBorderColorIndex = new byte[ 0 ];
+        }
+
+        void copyBallsFrom( int theNumberOfBalls, int[] x, int[] y, int[] colorRGB, byte[] borderColorIndex ) {
+            numberOfBalls = theNumberOfBalls;
+            if( ballsX.length < numberOfBalls ) {
+                ballsX = new int[ x.length ];
+                ballsY = new int[ x.length ];
+                ballsColorRGB = new int[ x.length ];
+                ballsBorderColorIndex = new byte[ x.length ];
+            }
+            System.arraycopy( x, 0, ballsX, 0, numberOfBalls );
+            System.arraycopy( y, 0, ballsY, 0, numberOfBalls );
+            System.arraycopy( colorRGB, 0, ballsColorRGB, 0, numberOfBalls );
+            System.arraycopy( borderColorIndex, 0, ballsBorderColorIndex, 0, numberOfBalls );
+        }
+    }
+}
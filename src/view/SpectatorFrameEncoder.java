@@ -0,0 +1,290 @@
+package view;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encode the frames of the spectator stream (see SpectatorServer for the format) once per frame,
+ * for all spectators: a keyframe every keyframeInterval frames, otherwise the deltas against the
+ * newest and the previous keyframe. Each delta is encoded only when it's first asked for in a frame.
+ * The positions are quantized to fixed-point, with SpectatorServer.FIXED_POINT_SHIFT fraction bits.
+ * (used by the server thread only; the arrays & messages are reused, and only grow)
+ */
+class SpectatorFrameEncoder {
+
+    private final int MAX_VARINT_SIZE = 5;
+    private final int KEYFRAME_BYTES_PER_BALL = 4 + 4 + 4 + 1;
+    private final int RECOLORED_BALL_SIZE = 4 + 4 + 1;
+
+    private final int keyframeInterval;
+
+    private long frameNumber;               // number of the current frame (0: none yet)
+    private long gameElapsedTime;
+    private int ballsDiameter;
+    private int playerUnitDiameter;
+    private int playerUnitX;                // fixed-point center of player unit
+    private int playerUnitY;
+    private int numberOfBalls;
+    private int ballsX[];                   // fixed-point centers of the balls
+    private int ballsY[];
+    private int ballsColorRGB[];
+    private byte ballsBorderColorIndex[];
+    private long stateHash;
+
+    private Keyframe newestKeyframe;        // number -1: none yet
+    private Keyframe previousKeyframe;
+    private ByteBuffer deltaAgainstNewest;
+    private ByteBuffer deltaAgainstPrevious;
+    private long deltaAgainstNewestFrame;   // the frames the deltas were encoded for
+    private long deltaAgainstPreviousFrame;
+
+    public SpectatorFrameEncoder( int theKeyframeInterval ) {
+        keyframeInterval = theKeyframeInterval;
+
+        frameNumber = 0;
+        numberOfBalls = 0;
+        ballsX = new int[ 0 ];
+        ballsY = new int[ 0 ];
+        ballsColorRGB = new int[ 0 ];
+        ballsBorderColorIndex = new byte[ 0 ];
+
+        newestKeyframe = new Keyframe();
+        previousKeyframe = new Keyframe();
+        deltaAgainstNewest = ByteBuffer.allocate( 0 );
+        deltaAgainstPrevious = ByteBuffer.allocate( 0 );
+        deltaAgainstNewestFrame = 0;
+        deltaAgainstPreviousFrame = 0;
+    }
+
+    /**
+     * begin the next frame: quantize the states of the snapshot.
+     */
+    public void quantize( RenderSnapshot snapshot, long theGameElapsedTime ) {
+        frameNumber++;
+        gameElapsedTime = theGameElapsedTime;
+        ballsDiameter = snapshot.getBallsDiameter();
+        playerUnitDiameter = snapshot.getPlayerUnitDiameter();
+        playerUnitX = toFixedPoint( snapshot.getPlayerUnitCenterX() );
+        playerUnitY = toFixedPoint( snapshot.getPlayerUnitCenterY() );
+
+        numberOfBalls = snapshot.getNumberOfBalls();
+        if( ballsX.length < numberOfBalls ) {
+            int newSize = Math.max( numberOfBalls, ballsX.length * 2 );
+            ballsX = new int[ newSize ];
+            ballsY = new int[ newSize ];
+            ballsColorRGB = new int[ newSize ];
+            ballsBorderColorIndex = new byte[ newSize ];
+        }
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            ballsX[ i ] = toFixedPoint( snapshot.getBallsCenterX( i ) );
+            ballsY[ i ] = toFixedPoint( snapshot.getBallsCenterY( i ) );
+            ballsColorRGB[ i ] = snapshot.getBallsColorRGB( i );
+            ballsBorderColorIndex[ i ] = (byte)snapshot.getBallsBorderColorIndex( i );
+        }
+
+        stateHash = SpectatorFrameDecoder.hashState(
+            playerUnitX, playerUnitY, numberOfBalls, ballsX, ballsY, ballsColorRGB, ballsBorderColorIndex
+        );
+    }
+
+    private int toFixedPoint( double position ) {
+        return (int)Math.round( position * (1 << SpectatorServer.FIXED_POINT_SHIFT) );
+    }
+
+    public boolean isKeyframeDue() {
+        return newestKeyframe.number < 0 || frameNumber - newestKeyframe.frameNumber >= keyframeInterval;
+    }
+
+    /**
+     * make the current frame the newest keyframe, and get its message.
+     */
+    public ByteBuffer encodeKeyframe() {
+        Keyframe keyframe = previousKeyframe;
+        ByteBuffer message;
+
+        keyframe.number = newestKeyframe.number + 1;
+        keyframe.frameNumber = frameNumber;
+        keyframe.copyBallsFrom( numberOfBalls, ballsX, ballsY, ballsColorRGB, ballsBorderColorIndex );
+        previousKeyframe = newestKeyframe;
+        newestKeyframe = keyframe;
+
+        message = beginMessage(
+            keyframe.message, SpectatorServer.KEYFRAME,
+            8 + 4 + 8 + 4 + 4 + 4 + 4 + 4 + numberOfBalls * KEYFRAME_BYTES_PER_BALL + 8
+        );
+        message.putLong( frameNumber );
+        message.putInt( keyframe.number );
+        message.putLong( gameElapsedTime );
+        message.putInt( ballsDiameter );
+        message.putInt( playerUnitDiameter );
+        message.putInt( playerUnitX );
+        message.putInt( playerUnitY );
+        message.putInt( numberOfBalls );
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            message.putInt( ballsX[ i ] );
+            message.putInt( ballsY[ i ] );
+            message.putInt( ballsColorRGB[ i ] );
+            message.put( ballsBorderColorIndex[ i ] );
+        }
+        message.putLong( stateHash );
+        keyframe.message = endMessage( message );
+
+        return keyframe.message;
+    }
+
+    /**
+     * get the message of the newest keyframe. (for the spectators which missed it)
+     */
+    public ByteBuffer getNewestKeyframeMessage() {
+        return newestKeyframe.message;
+    }
+
+    public int getNewestKeyframeNumber() {
+        return newestKeyframe.number;
+    }
+
+    public int getPreviousKeyframeNumber() {
+        return previousKeyframe.number;
+    }
+
+    /**
+     * get the message of the current frame as the deltas against the newest keyframe.
+     */
+    public ByteBuffer getDeltaAgainstNewest() {
+        if( deltaAgainstNewestFrame != frameNumber ) {
+            deltaAgainstNewest = encodeDelta( deltaAgainstNewest, newestKeyframe );
+            deltaAgainstNewestFrame = frameNumber;
+        }
+
+        return deltaAgainstNewest;
+    }
+
+    /**
+     * get the message of the current frame as the deltas against the previous keyframe.
+     */
+    public ByteBuffer getDeltaAgainstPrevious() {
+        if( deltaAgainstPreviousFrame != frameNumber ) {
+            deltaAgainstPrevious = encodeDelta( deltaAgainstPrevious, previousKeyframe );
+            deltaAgainstPreviousFrame = frameNumber;
+        }
+
+        return deltaAgainstPrevious;
+    }
+
+    private ByteBuffer encodeDelta( ByteBuffer buffer, Keyframe base ) {
+        int numberOfBaseBalls = Math.min( numberOfBalls, base.numberOfBalls );
+        int numberOfRecoloredBalls = 0;
+        int numberOfRecoloredBallsPosition;
+        ByteBuffer message = beginMessage(
+            buffer, SpectatorServer.DELTA,
+            8 + 4 + 8 + 4 + 4 + 4 + numberOfBalls * (2 * MAX_VARINT_SIZE + RECOLORED_BALL_SIZE) + 4 + 8
+        );
+
+        message.putLong( frameNumber );
+        message.putInt( base.number );
+        message.putLong( gameElapsedTime );
+        message.putInt( playerUnitX );
+        message.putInt( playerUnitY );
+        message.putInt( numberOfBalls );
+        for( int i = 0; i < numberOfBaseBalls; i++ ) {
+            putVarint( message, ballsX[ i ] - base.ballsX[ i ] );
+            putVarint( message, ballsY[ i ] - base.ballsY[ i ] );
+        }
+        for( int i = numberOfBaseBalls; i < numberOfBalls; i++ ) {
+            putVarint( message, ballsX[ i ] );
+            putVarint( message, ballsY[ i ] );
+        }
+
+        // the balls whose colors differ from the keyframe's ball of the same index (or which it doesn't have)
+        numberOfRecoloredBallsPosition = message.position();
+        message.putInt( 0 );
+        for( int i = 0; i < numberOfBalls; i++ ) {
+            if( i >= numberOfBaseBalls || ballsColorRGB[ i ] != base.ballsColorRGB[ i ]
+                    || ballsBorderColorIndex[ i ] != base.ballsBorderColorIndex[ i ] ) {
+                message.putInt( i );
+                message.putInt( ballsColorRGB[ i ] );
+                message.put( ballsBorderColorIndex[ i ] );
+                numberOfRecoloredBalls++;
+            }
+        }
+        message.putInt( numberOfRecoloredBallsPosition, numberOfRecoloredBalls );
+        message.putLong( stateHash );
+
+        return endMessage( message );
+    }
+
+    /**
+     * clear the buffer (reallocated if smaller than the maximum size of the payload), and write the message header.
+     */
+    private ByteBuffer beginMessage( ByteBuffer buffer, byte type, int maxPayloadSize ) {
+        int maxSize = SpectatorServer.MESSAGE_HEADER_SIZE + maxPayloadSize;
+
+        if( buffer.capacity() < maxSize ) {
+            buffer = ByteBuffer.allocate( maxSize + maxSize / 4 );
+        }
+        buffer.clear();
+        buffer.put( type );
+        buffer.putInt( 0 );         // payload length, written at the end
+
+        return buffer;
+    }
+
+    private ByteBuffer endMessage( ByteBuffer message ) {
+        message.putInt( 1, message.position() - SpectatorServer.MESSAGE_HEADER_SIZE );
+        message.flip();
+
+        return message;
+    }
+
+    /**
+     * write a signed value as a zigzag varint: 7 bits per byte, small magnitudes in few bytes.
+     */
+    static void putVarint( ByteBuffer buffer, int value ) {
+        int zigzag = (value << 1) ^ (value >> 31);
+
+        while( (zigzag & ~0x7f) != 0 ) {
+            buffer.put( (byte)((zigzag & 0x7f) | 0x80) );
+            zigzag >>>= 7;
+        }
+        buffer.put( (byte)zigzag );
+    }
+
+    /**
+     * the quantized balls of a keyframe, and its message.
+     */
+    private static class Keyframe {
+
+        int number;
+        long frameNumber;
+        int numberOfBalls;
+        int ballsX[];
+        int ballsY[];
+        int ballsColorRGB[];
+        byte ballsBorderColorIndex[];
+        ByteBuffer message;
+
+        Keyframe() {
+            number = -1;
+            frameNumber = 0;
+            numberOfBalls = 0;
+            ballsX = new int[ 0 ];
+            ballsY = new int[ 0 ];
+            ballsColorRGB = new int[ 0 ];
+            ballsBorderColorIndex = new byte[ 0 ];
+            message = ByteBuffer.allocate( 0 );
+        }
+
+        void copyBallsFrom( int theNumberOfBalls, int[] x, int[] y, int[] colorRGB, byte[] borderColorIndex ) {
+            numberOfBalls = theNumberOfBalls;
+            if( ballsX.length < numberOfBalls ) {
+                ballsX = new int[ x.length ];
+                ballsY = new int[ x.length ];
+                ballsColorRGB = new int[ x.length ];
+                ballsBorderColorIndex = new byte[ x.length ];
+            }
+            System.arraycopy( x, 0, ballsX, 0, numberOfBalls );
+            System.arraycopy( y, 0, ballsY, 0, numberOfBalls );
+            System.arraycopy( colorRGB, 0, ballsColorRGB, 0, numberOfBalls );
+            System.arraycopy( borderColorIndex, 0, ballsBorderColorIndex, 0, numberOfBalls );
+        }
+    }
+}
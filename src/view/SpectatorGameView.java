@@ -0,0 +1,119 @@
+package view;
+
+import domain.Balls;
+import domain.PlayerUnit;
+
+/**
+ * A view which streams the game to the spectators of a SpectatorServer each tick,
+ * and otherwise passes everything through to the wrapped view. (e.g. a headless view, on a host without screen)
+ */
+public class SpectatorGameView implements GameView {
+
+    private final GameView gameView;
+    private final SpectatorServer spectatorServer;
+
+    public SpectatorGameView( GameView theGameView, SpectatorServer theSpectatorServer ) {
+        gameView = theGameView;
+        spectatorServer = theSpectatorServer;
+    }
+
+    @Override
+    public boolean isStartButtonPushed() {
+        return gameView.isStartButtonPushed();
+    }
+
+    @Override
+    public boolean isRestartButtonPushed() {
+        return gameView.isRestartButtonPushed();
+    }
+
+    @Override
+    public void waitForStartButtonPushed() throws InterruptedException {
+        gameView.waitForStartButtonPushed();
+    }
+
+    @Override
+    public void waitForRestartButtonPushed() throws InterruptedException {
+        gameView.waitForRestartButtonPushed();
+    }
+
+    @Override
+    public boolean isUpArrowKeyPressed() {
+        return gameView.isUpArrowKeyPressed();
+    }
+
+    @Override
+    public boolean isDownArrowKeyPressed() {
+        return gameView.isDownArrowKeyPressed();
+    }
+
+    @Override
+    public boolean isLeftArrowKeyPressed() {
+        return gameView.isLeftArrowKeyPressed();
+    }
+
+    @Override
+    public boolean isRightArrowKeyPressed() {
+        return gameView.isRightArrowKeyPressed();
+    }
+
+    @Override
+    public boolean isBothUpAndDownArrowKeyPressed() {
+        return gameView.isBothUpAndDownArrowKeyPressed();
+    }
+
+    @Override
+    public boolean isBothLeftAndRightArrowKeyPressed() {
+        return gameView.isBothLeftAndRightArrowKeyPressed();
+    }
+
+    @Override
+    public void resetKeyPressedFlag() {
+        gameView.resetKeyPressedFlag();
+    }
+
+    @Override
+    public void requestFocus() {
+        gameView.requestFocus();
+    }
+
+    @Override
+    public void refreshScreen( double interpolationAlpha ) {
+        gameView.refreshScreen( interpolationAlpha );
+    }
+
+    @Override
+    public void updateBallsAndPlayerUnit( Balls balls, PlayerUnit playerUnit ) {
+        gameView.updateBallsAndPlayerUnit( balls, playerUnit );
+        spectatorServer.publish( balls, playerUnit );
+    }
+
+    @Override
+    public void updateGamePlayingTime( long gameElapsedTime ) {
+        gameView.updateGamePlayingTime( gameElapsedTime );
+        spectatorServer.updateGamePlayingTime( gameElapsedTime );
+    }
+
+    @Override
+    public void switchInitialPhaseToDuringGame() {
+        gameView.switchInitialPhaseToDuringGame();
+    }
+
+    @Override
+    public void switchDuringGamePhaseToGameOver() {
+        gameView.switchDuringGamePhaseToGameOver();
+    }
+
+    @Override
+    public void switchGameOverPhaseToDuringGame() {
+        gameView.switchGameOverPhaseToDuringGame();
+    }
+
+    public GameView getGameView() {
+        return gameView;
+    }
+
+    public SpectatorServer getSpectatorServer() {
+        return spectatorServer;
+    }
+}
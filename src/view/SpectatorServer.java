@@ -0,0 +1,393 @@
+package view;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import domain.Balls;
+import domain.PlayerUnit;
+
+/**
+ * Stream the game to remote spectators over TCP, without any display on the game host.
+ * The core thread publishes the balls & player unit each tick (through a SnapshotExchange, as for drawing);
+ * one server thread, on a non-blocking Selector, encodes the latest published states once per frame
+ * and sends the same encoded bytes to every spectator. A frame is queued for a spectator only if it fits
+ * into the spectator's output buffer, so a spectator which can't keep up skips frames.
+ * Stream format (big-endian), messages of: type (byte), payload length (int), payload
+ * - HELLO (first message to a spectator): magic "BBSP" (int), version (int), fixed-point fraction bits (int)
+ * - KEYFRAME: frame number (long), keyframe number (int), game elapsed time (long),
+ *             balls' diameter, player unit's diameter (int), player unit's center x, y (int, fixed-point),
+ *             number of balls (int), then each ball's center x, y (int, fixed-point), color (int, ARGB) &
+ *             border color index (byte); and the hash of the state (long, see SpectatorFrameDecoder)
+ * - DELTA: frame number (long), base keyframe number (int), game elapsed time (long),
+ *          player unit's center x, y (int, fixed-point), number of balls (int), then each ball's center x, y
+ *          as zigzag varints of the difference from the base keyframe's ball of the same index (from 0,
+ *          beyond the keyframe's balls), number of recolored balls (int), then each recolored ball's
+ *          index (int), color (int) & border color index (byte); and the hash of the state (long)
+ * - ACK (from a spectator): keyframe number (int), acknowledging a received keyframe
+ * A spectator is sent the deltas against the last keyframe it acknowledged, if that's the newest or the
+ * previous keyframe, otherwise the newest keyframe. So at most one keyframe or two deltas are encoded
+ * per frame, however many spectators there are.
+ */
+public class SpectatorServer {
+
+    public final static int MAGIC = 0x42425350;         // "BBSP"
+    public final static int VERSION = 1;
+    public final static byte HELLO = 1;                 // message types
+    public final static byte KEYFRAME = 2;
+    public final static byte DELTA = 3;
+    public final static byte ACK = 4;
+    public final static int MESSAGE_HEADER_SIZE = 1 + 4;
+    public final static int ACK_SIZE = 1 + 4;
+    public final static int FIXED_POINT_SHIFT = 4;      // positions in 1/16 pixels
+    public final static int DEFAULT_KEYFRAME_INTERVAL = 60;
+
+    private final int MIN_OUTPUT_BUFFER_SIZE = 65536;   // a spectator's output buffer holds at least 2 keyframes
+    private final int INPUT_BUFFER_SIZE = 64;
+
+    private final InetSocketAddress address;
+    private final int keyframeInterval;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread serverThread;
+    private volatile boolean closed;
+
+    private SnapshotExchange snapshotExchange;
+    private final AtomicBoolean framePublished;         // true if a frame was published since the last sent
+    private volatile long gameElapsedTime;
+
+    // used by the server thread only
+    private SpectatorFrameEncoder encoder;
+    private ByteBuffer helloMessage;
+    private List<Spectator> spectators;
+
+    // statistics (written by the server thread only)
+    private volatile int numberOfSpectators;
+    private volatile long framesEncoded;
+    private volatile long framesQueued;                 // frames queued for a spectator, summed over spectators
+    private volatile long framesSkipped;                // frames not queued for a spectator (no room, or no keyframe)
+    private volatile long bytesSent;
+
+    /**
+     * a server on the loopback interface, at the specified port. (0: any free port)
+     */
+    public SpectatorServer( int port ) {
+        this( new InetSocketAddress( InetAddress.getLoopbackAddress(), port ), DEFAULT_KEYFRAME_INTERVAL );
+    }
+
+    public SpectatorServer( InetSocketAddress theAddress, int theKeyframeInterval ) {
+        if( theKeyframeInterval <= 0 ) {
+            throw new IllegalArgumentException( "keyframe interval: " + theKeyframeInterval );
+        }
+        address = theAddress;
+        keyframeInterval = theKeyframeInterval;
+        closed = false;
+
+        snapshotExchange = new SnapshotExchange();
+        framePublished = new AtomicBoolean( false );
+        gameElapsedTime = 0;
+
+        encoder = new SpectatorFrameEncoder( keyframeInterval );
+        helloMessage = ByteBuffer.allocate( MESSAGE_HEADER_SIZE + 4 + 4 + 4 );
+        helloMessage.put( HELLO ).putInt( 4 + 4 + 4 );
+        helloMessage.putInt( MAGIC ).putInt( VERSION ).putInt( FIXED_POINT_SHIFT );
+        helloMessage.flip();
+        spectators = new ArrayList<Spectator>();
+    }
+
+    /**
+     * listen for spectators, and start the server thread.
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking( false );
+        serverChannel.socket().bind( address );
+        serverChannel.register( selector, SelectionKey.OP_ACCEPT );
+
+        serverThread = new Thread( "spectator server" ) {
+            @Override
+            public void run() {
+                serve();
+            }
+        };
+        serverThread.setDaemon( true );
+        serverThread.start();
+    }
+
+    /**
+     * stop the server thread, and disconnect the spectators.
+     */
+    public void close() throws InterruptedException {
+        closed = true;
+        if( serverThread != null ) {
+            selector.wakeup();
+            serverThread.join();
+        }
+    }
+
+    /**
+     * get the port the server listens at.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * capture the states of balls & player unit, and publish them to the spectators.
+     * (called by the game core thread; the server thread is woken once per frame)
+     */
+    public void publish( Balls balls, PlayerUnit playerUnit ) {
+        snapshotExchange.publish( balls, playerUnit );
+        if( framePublished.compareAndSet( false, true ) && selector != null ) {
+            selector.wakeup();
+        }
+    }
+
+    public void updateGamePlayingTime( long theGameElapsedTime ) {
+        gameElapsedTime = theGameElapsedTime;
+    }
+
+    private void serve() {
+        try {
+            while( !closed ) {
+                selector.select();
+
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while( selectedKeys.hasNext() ) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if( !key.isValid() ) {
+                        continue;
+                    }
+                    if( key.isAcceptable() ) {
+                        acceptSpectator();
+                    } else {
+                        Spectator spectator = (Spectator)key.attachment();
+                        if( key.isReadable() ) {
+                            readAcks( spectator );
+                        }
+                        if( key.isValid() && key.isWritable() ) {
+                            flush( spectator );
+                        }
+                    }
+                }
+
+                if( framePublished.getAndSet( false ) ) {
+                    sendFrame();
+                }
+            }
+        } catch( IOException e ) {
+            e.printStackTrace();
+        } finally {
+            for( int s = spectators.size() - 1; s >= 0; s-- ) {
+                disconnect( spectators.get( s ) );
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch( IOException e ) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void acceptSpectator() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        Spectator spectator;
+
+        if( channel == null ) {
+            return;
+        }
+        channel.configureBlocking( false );
+        channel.socket().setTcpNoDelay( true );
+        spectator = new Spectator( channel, MIN_OUTPUT_BUFFER_SIZE, INPUT_BUFFER_SIZE );
+        spectator.key = channel.register( selector, SelectionKey.OP_READ, spectator );
+        spectators.add( spectator );
+        numberOfSpectators = spectators.size();
+
+        queue( spectator, helloMessage );
+        if( encoder.getNewestKeyframeNumber() >= 0 && queue( spectator, encoder.getNewestKeyframeMessage() ) ) {
+            spectator.sentKeyframe = encoder.getNewestKeyframeNumber();
+        }
+        flush( spectator );
+    }
+
+    /**
+     * encode the latest published frame, queue it for each spectator, and send what can be sent now.
+     */
+    private void sendFrame() {
+        Spectator spectator;
+        ByteBuffer keyframe;
+
+        encoder.quantize( snapshotExchange.acquireLatest(), gameElapsedTime );
+        framesEncoded++;
+
+        if( encoder.isKeyframeDue() ) {
+            keyframe = encoder.encodeKeyframe();
+            for( int s = 0; s < spectators.size(); s++ ) {
+                spectator = spectators.get( s );
+                if( queue( spectator, keyframe ) ) {
+                    spectator.sentKeyframe = encoder.getNewestKeyframeNumber();
+                }
+            }
+        } else {
+            for( int s = 0; s < spectators.size(); s++ ) {
+                spectator = spectators.get( s );
+                if( spectator.ackedKeyframe == encoder.getNewestKeyframeNumber() ) {
+                    queue( spectator, encoder.getDeltaAgainstNewest() );
+                } else if( spectator.ackedKeyframe >= 0
+                           && spectator.ackedKeyframe == encoder.getPreviousKeyframeNumber() ) {
+                    queue( spectator, encoder.getDeltaAgainstPrevious() );
+                } else if( spectator.sentKeyframe != encoder.getNewestKeyframeNumber() ) {
+                    // it missed the newest keyframe (or it's not acknowledged a kept one yet)
+                    if( queue( spectator, encoder.getNewestKeyframeMessage() ) ) {
+                        spectator.sentKeyframe = encoder.getNewestKeyframeNumber();
+                    }
+                } else {
+                    framesSkipped++;    // waiting for the acknowledgement of the newest keyframe
+                }
+            }
+        }
+
+        for( int s = spectators.size() - 1; s >= 0; s-- ) {
+            flush( spectators.get( s ) );
+        }
+    }
+
+    /**
+     * copy a message into the spectator's output buffer, if it fits. (the buffer grows to hold
+     * at least 2 messages of this size) Returns false if the message was skipped.
+     */
+    private boolean queue( Spectator spectator, ByteBuffer message ) {
+        int size = message.limit();
+
+        if( spectator.output.capacity() < 2 * size ) {
+            ByteBuffer output = ByteBuffer.allocateDirect( 2 * size );
+            spectator.output.flip();
+            output.put( spectator.output );
+            spectator.output = output;
+        }
+        if( spectator.output.remaining() < size ) {
+            framesSkipped++;
+            return false;
+        }
+
+        message.rewind();
+        spectator.output.put( message );
+        framesQueued++;
+        return true;
+    }
+
+    /**
+     * send as much of the spectator's output as the socket takes now, and wait for the socket
+     * to be writable again if some is left.
+     */
+    private void flush( Spectator spectator ) {
+        if( spectator.output.position() == 0 || !spectator.key.isValid() ) {
+            return;
+        }
+
+        spectator.output.flip();
+        try {
+            bytesSent += spectator.channel.write( spectator.output );
+        } catch( IOException e ) {
+            disconnect( spectator );
+            return;
+        }
+        spectator.output.compact();
+
+        spectator.key.interestOps(
+            spectator.output.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ
+        );
+    }
+
+    /**
+     * read the acknowledgements of the keyframes received by the spectator.
+     */
+    private void readAcks( Spectator spectator ) {
+        int numberOfBytesRead;
+
+        try {
+            numberOfBytesRead = spectator.channel.read( spectator.input );
+        } catch( IOException e ) {
+            numberOfBytesRead = -1;
+        }
+        if( numberOfBytesRead < 0 ) {
+            disconnect( spectator );
+            return;
+        }
+
+        spectator.input.flip();
+        while( spectator.input.remaining() >= ACK_SIZE ) {
+            if( spectator.input.get() != ACK ) {
+                disconnect( spectator );
+                return;
+            }
+            spectator.ackedKeyframe = spectator.input.getInt();
+        }
+        spectator.input.compact();
+    }
+
+    private void disconnect( Spectator spectator ) {
+        spectator.key.cancel();
+        try {
+            spectator.channel.close();
+        } catch( IOException e ) {
+            e.printStackTrace();
+        }
+        spectators.remove( spectator );
+        numberOfSpectators = spectators.size();
+    }
+
+    public int getNumberOfSpectators() {
+        return numberOfSpectators;
+    }
+
+    public long getFramesEncoded() {
+        return framesEncoded;
+    }
+
+    public long getFramesQueued() {
+        return framesQueued;
+    }
+
+    public long getFramesSkipped() {
+        return framesSkipped;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * a connected spectator: its socket, the bytes not sent yet, and the keyframes it has.
+     */
+    private static class Spectator {
+
+        final SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer output;          // messages not sent yet (filling mode)
+        ByteBuffer input;           // acknowledgements not read completely yet (filling mode)
+        int ackedKeyframe;          // the last keyframe acknowledged (-1: none)
+        int sentKeyframe;           // the last keyframe queued (-1: none)
+
+        Spectator( SocketChannel theChannel, int outputBufferSize, int inputBufferSize ) {
+            channel = theChannel;
+            key = null;
+            output = ByteBuffer.allocateDirect( outputBufferSize );
+            input = ByteBuffer.allocate( inputBufferSize );
+            ackedKeyframe = -1;
+            sentKeyframe = -1;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package view;
+
+/**
+ * Texts of the displayed numbers & game playing times, created once for each value,
+ * so updating the game information allocates nothing after a value has been shown.
+ * Texts are immutable, so threads may share a cache; at worst a text is created twice.
+ */
+class TextCache {
+
+    private final int INITIAL_SIZE = 1024;
+    private final int MAX_CACHED_NUMBER = 1 << 20;         // larger numbers are not cached
+    private final int MAX_CACHED_TIME = 100 * 60;           // up to 100 minutes
+
+    private String numberTexts[];       // text of each number
+    private String timeTexts[];         // text of each second, "mm:ss"
+
+    public TextCache() {
+        numberTexts = new String[ INITIAL_SIZE ];
+        timeTexts = new String[ INITIAL_SIZE ];
+    }
+
+    public String getNumberText( int number ) {
+        String texts[] = numberTexts;
+
+        if( number < 0 || number >= MAX_CACHED_NUMBER ) {
+            return String.valueOf( number );
+        }
+        if( number >= texts.length ) {
+            texts = grow( texts, number );
+            numberTexts = texts;
+        }
+        if( texts[ number ] == null ) {
+            texts[ number ] = String.valueOf( number );
+        }
+
+        return texts[ number ];
+    }
+
+    /**
+     * get the text of a game playing time (mili-second), "mm:ss".
+     */
+    public String getTimeText( long gameElapsedTime ) {
+        long seconds = gameElapsedTime / 1000;
+        String texts[] = timeTexts;
+
+        if( seconds < 0 || seconds >= MAX_CACHED_TIME ) {
+            return formatTime( seconds );
+        }
+        if( seconds >= texts.length ) {
+            texts = grow( texts, (int)seconds );
+            timeTexts = texts;
+        }
+        if( texts[ (int)seconds ] == null ) {
+            texts[ (int)seconds ] = formatTime( seconds );
+        }
+
+        return texts[ (int)seconds ];
+    }
+
+    private String formatTime( long seconds ) {
+        return String.format(
+            "%02d:%02d",
+            (int)( seconds / 60 ),  // minute
+            (int)( seconds % 60 )   // second
+        );
+    }
+
+    private String[] grow( String[] texts, int index ) {
+        int size = texts.length;
+
+        while( size <= index ) {
+            size *= 2;
+        }
+
+        String grownTexts[] = new String[ size ];
+        System.arraycopy( texts, 0, grownTexts, 0, texts.length );
+        return grownTexts;
+    }
+}